@@ -10,5 +10,20 @@ public abstract class AnchoredBarrier {
 	public abstract Vector2D calculateVelocityAfterACollision(Vector2D pos, Vector2D vel);
 	public abstract boolean isCircleCollidingBarrier(Vector2D circleCentre, double radius);
 	public abstract void draw(Graphics2D g);
+	
+	// world-space box {minX, minY, maxX, maxY} around what draw() paints; unbounded unless overridden
+	public void getBoundingBox(double[] box) {
+		box[0] = box[1] = Double.NEGATIVE_INFINITY;
+		box[2] = box[3] = Double.POSITIVE_INFINITY;
+	}
+	
+	// sets vel to the velocity after a collision; subclasses override this to avoid allocating
+	public void bounceVelocity(Vector2D pos, Vector2D vel) {
+		vel.set(calculateVelocityAfterACollision(pos, vel));
+	}
+	
+	// if the circle touches the barrier, fills contact with {normal x, normal y, penetration depth},
+	// the normal pointing away from the barrier towards the circle, and returns true
+	public abstract boolean findContact(Vector2D circleCentre, double radius, double[] contact);
 
 }
\ No newline at end of file
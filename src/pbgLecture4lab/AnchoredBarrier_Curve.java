@@ -80,5 +80,79 @@ public class AnchoredBarrier_Curve extends AnchoredBarrier {
 		return result;
 	}
 
+	@Override
+	public boolean findContact(Vector2D circleCentre, double radius, double[] contact) {
+		if (!isCircleCollidingBarrier(circleCentre, radius))
+			return false;
+		double nx=circleCentre.x-centreOfCircleBarrierArc.x, ny=circleCentre.y-centreOfCircleBarrierArc.y;
+		double distToCentreOfBarrierArc=Math.hypot(nx, ny);
+		if (distToCentreOfBarrierArc==0)
+			return false; // no defined normal at the centre of the arc
+		nx/=distToCentreOfBarrierArc;
+		ny/=distToCentreOfBarrierArc;
+		if (normalPointsInwards) {
+			contact[0]=-nx;
+			contact[1]=-ny;
+			contact[2]=radius-(radiusOfBarrier-distToCentreOfBarrierArc);
+		} else {
+			contact[0]=nx;
+			contact[1]=ny;
+			contact[2]=radius-(distToCentreOfBarrierArc-radiusOfBarrier);
+		}
+		return true;
+	}
+
+	public Vector2D getCentre() {
+		return centreOfCircleBarrierArc;
+	}
+
+	public double getRadiusOfBarrier() {
+		return radiusOfBarrier;
+	}
+
+	public double getStartAngle() {
+		return startAngle;
+	}
+
+	public double getDeltaAngle() {
+		return deltaAngle;
+	}
+
+	public boolean isNormalPointingInwards() {
+		return normalPointsInwards;
+	}
+
+	public Double getBarrierDepth() {
+		return barrierDepth;
+	}
+
+	public Color getColor() {
+		return col;
+	}
+
+	@Override
+	public void getBoundingBox(double[] box) {
+		box[0]=centreOfCircleBarrierArc.x-radiusOfBarrier;
+		box[1]=centreOfCircleBarrierArc.y-radiusOfBarrier;
+		box[2]=centreOfCircleBarrierArc.x+radiusOfBarrier;
+		box[3]=centreOfCircleBarrierArc.y+radiusOfBarrier;
+	}
+
+	@Override
+	public void bounceVelocity(Vector2D pos, Vector2D vel) {
+		double nx=pos.x-centreOfCircleBarrierArc.x, ny=pos.y-centreOfCircleBarrierArc.y;
+		if (normalPointsInwards) {
+			nx=-nx;
+			ny=-ny;
+		}
+		double len=Math.hypot(nx, ny);
+		nx/=len;
+		ny/=len;
+		// tangent is the normal rotated 90 degrees anticlockwise
+		double tx=-ny, ty=nx;
+		double vParallel=vel.x*tx+vel.y*ty;
+		double vNormal=Math.abs(vel.x*nx+vel.y*ny);
+		vel.set(tx*vParallel+nx*vNormal, ty*vParallel+ny*vNormal);
+	}
 
 }
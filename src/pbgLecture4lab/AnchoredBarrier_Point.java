@@ -24,6 +24,20 @@ public class AnchoredBarrier_Point extends AnchoredBarrier_Curve {
 
 	}
 
+	// the normal runs from the point to the circle's centre, and the depth is how far the
+	// point is inside the circle
+	@Override
+	public boolean findContact(Vector2D circleCentre, double radius, double[] contact) {
+		double nx=circleCentre.x-barrierPointPosition.x, ny=circleCentre.y-barrierPointPosition.y;
+		double dist=Math.hypot(nx, ny);
+		if (dist>radius || dist==0)
+			return false; // apart, or no defined normal
+		contact[0]=nx/dist;
+		contact[1]=ny/dist;
+		contact[2]=radius-dist;
+		return true;
+	}
+
 	@Override
 	public void draw(Graphics2D g) {
 		int x1 = BasicPhysicsEngine.convertWorldXtoScreenX(barrierPointPosition.x);
@@ -0,0 +1,278 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+public class AnchoredBarrier_Polyline extends AnchoredBarrier {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// A chain of straight barrier segments (e.g. cave terrain) kept in primitive arrays
+	// instead of one AnchoredBarrier_StraightLine per segment.  As with the straight line,
+	// each segment's normal is its tangent rotated 90 degrees anticlockwise, so list the
+	// vertices anticlockwise around an open space (or clockwise around a solid rock) to make
+	// the normals point into the space.  Vertices at convex joints and at the ends act as
+	// round caps, so no separate AnchoredBarrier_Point is needed; concave joints need no cap.
+	// Circle queries only look at the segments found through an internal grid.
+
+	private final double[] vertexX, vertexY;
+	private final int numSegments;
+	private final double[] unitTangentX, unitTangentY, unitNormalX, unitNormalY, segmentLength;
+	// vertex acts as a round cap: an open end, or a joint that is convex seen from the normal side
+	private final boolean[] capVertex;
+	private final boolean closed;
+	private final double barrierDepth;
+	private final Color col;
+	private final SpatialGrid segmentIndex;
+	private final double minX, minY, maxX, maxY;
+	private final int[] screenX, screenY;
+	// {distance, normal x, normal y} of the nearest feature; bounceVelocity runs on the engine's thread only
+	private final double[] nearest = new double[3];
+
+	public AnchoredBarrier_Polyline(double[] xs, double[] ys, boolean closed, Color col, double barrierDepth) {
+		if (xs.length != ys.length || xs.length < 2)
+			throw new IllegalArgumentException("a polyline needs at least two vertices");
+		int n = xs.length;
+		this.closed = closed;
+		this.vertexX = xs.clone();
+		this.vertexY = ys.clone();
+		this.numSegments = closed ? n : n - 1;
+		this.col = col;
+		this.barrierDepth = barrierDepth;
+		unitTangentX = new double[numSegments];
+		unitTangentY = new double[numSegments];
+		unitNormalX = new double[numSegments];
+		unitNormalY = new double[numSegments];
+		segmentLength = new double[numSegments];
+		double[] boxMinX = new double[numSegments], boxMinY = new double[numSegments];
+		double[] boxMaxX = new double[numSegments], boxMaxY = new double[numSegments];
+		double totalLength = 0;
+		for (int s = 0; s < numSegments; s++) {
+			int e = (s + 1) % n;
+			double dx = vertexX[e] - vertexX[s], dy = vertexY[e] - vertexY[s];
+			double len = Math.hypot(dx, dy);
+			if (len == 0)
+				throw new IllegalArgumentException("zero length segment at vertex " + s);
+			segmentLength[s] = len;
+			unitTangentX[s] = dx / len;
+			unitTangentY[s] = dy / len;
+			unitNormalX[s] = -unitTangentY[s];
+			unitNormalY[s] = unitTangentX[s];
+			totalLength += len;
+			// the segment's collision region extends barrierDepth behind it
+			boxMinX[s] = Math.min(vertexX[s], vertexX[e]) - barrierDepth;
+			boxMinY[s] = Math.min(vertexY[s], vertexY[e]) - barrierDepth;
+			boxMaxX[s] = Math.max(vertexX[s], vertexX[e]) + barrierDepth;
+			boxMaxY[s] = Math.max(vertexY[s], vertexY[e]) + barrierDepth;
+		}
+		capVertex = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			if (!closed && (v == 0 || v == n - 1)) {
+				capVertex[v] = true;
+				continue;
+			}
+			int before = (v - 1 + numSegments) % numSegments, after = v % numSegments;
+			// turning clockwise leaves a wedge on the normal side that neither segment covers
+			double cross = unitTangentX[before] * unitTangentY[after] - unitTangentY[before] * unitTangentX[after];
+			capVertex[v] = cross < 0;
+		}
+		double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < n; v++) {
+			loX = Math.min(loX, vertexX[v]);
+			loY = Math.min(loY, vertexY[v]);
+			hiX = Math.max(hiX, vertexX[v]);
+			hiY = Math.max(hiY, vertexY[v]);
+		}
+		minX = loX;
+		minY = loY;
+		maxX = hiX;
+		maxY = hiY;
+		segmentIndex = new SpatialGrid(Math.max(2 * totalLength / numSegments, barrierDepth));
+		segmentIndex.build(numSegments, boxMinX, boxMinY, boxMaxX, boxMaxY);
+		screenX = new int[n + 1];
+		screenY = new int[n + 1];
+	}
+
+	public int getNumSegments() {
+		return numSegments;
+	}
+
+	public int getNumVertices() {
+		return vertexX.length;
+	}
+
+	public double getVertexX(int v) {
+		return vertexX[v];
+	}
+
+	public double getVertexY(int v) {
+		return vertexY[v];
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	// true for the vertices that stick out on the normal side, which collide as points
+	public boolean isCapVertex(int v) {
+		return capVertex[v];
+	}
+
+	public double getBarrierDepth() {
+		return barrierDepth;
+	}
+
+	public Color getColor() {
+		return col;
+	}
+
+	@Override
+	public void draw(Graphics2D g) {
+		int n = vertexX.length;
+		for (int v = 0; v < n; v++) {
+			screenX[v] = BasicPhysicsEngine.convertWorldXtoScreenX(vertexX[v]);
+			screenY[v] = BasicPhysicsEngine.convertWorldYtoScreenY(vertexY[v]);
+		}
+		g.setColor(col);
+		if (closed)
+			g.drawPolygon(screenX, screenY, n);
+		else
+			g.drawPolyline(screenX, screenY, n);
+	}
+
+	@Override
+	public void getBoundingBox(double[] box) {
+		box[0] = minX;
+		box[1] = minY;
+		box[2] = maxX;
+		box[3] = maxY;
+	}
+
+	@Override
+	public boolean isCircleCollidingBarrier(Vector2D circleCentre, double radius) {
+		double cx = circleCentre.x, cy = circleCentre.y;
+		if (cx + radius < minX - barrierDepth || cx - radius > maxX + barrierDepth || cy + radius < minY - barrierDepth
+				|| cy - radius > maxY + barrierDepth)
+			return false;
+		// the grid is searched cell by cell (not with query) so that several threads can test the same barrier
+		int c0 = segmentIndex.colOf(cx - radius), c1 = segmentIndex.colOf(cx + radius);
+		int r0 = segmentIndex.rowOf(cy - radius), r1 = segmentIndex.rowOf(cy + radius);
+		for (int row = r0; row <= r1; row++) {
+			for (int col = c0; col <= c1; col++) {
+				for (int k = segmentIndex.getCellStart(col, row), end = segmentIndex.getCellEnd(col, row); k < end; k++) {
+					if (isCircleCollidingSegment(segmentIndex.getCellItem(k), cx, cy, radius))
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isCircleCollidingSegment(int s, double cx, double cy, double radius) {
+		double ax = cx - vertexX[s], ay = cy - vertexY[s];
+		double distAlongBarrier = ax * unitTangentX[s] + ay * unitTangentY[s];
+		double distOnCorrectSideOfBarrierToCentre = ax * unitNormalX[s] + ay * unitNormalY[s];
+		if (distAlongBarrier >= 0 && distAlongBarrier <= segmentLength[s]) {
+			// same test as AnchoredBarrier_StraightLine
+			return distOnCorrectSideOfBarrierToCentre <= radius && distOnCorrectSideOfBarrierToCentre >= -(barrierDepth + radius);
+		}
+		int v = distAlongBarrier < 0 ? s : (s + 1) % vertexX.length;
+		return capVertex[v] && distOnCorrectSideOfBarrierToCentre > -barrierDepth
+				&& Math.hypot(cx - vertexX[v], cy - vertexY[v]) <= radius;
+	}
+
+	@Override
+	public boolean findContact(Vector2D circleCentre, double radius, double[] contact) {
+		double cx = circleCentre.x, cy = circleCentre.y;
+		if (cx + radius < minX - barrierDepth || cx - radius > maxX + barrierDepth || cy + radius < minY - barrierDepth
+				|| cy - radius > maxY + barrierDepth)
+			return false;
+		// the deepest of the touching features
+		contact[2] = Double.NEGATIVE_INFINITY;
+		int c0 = segmentIndex.colOf(cx - radius), c1 = segmentIndex.colOf(cx + radius);
+		int r0 = segmentIndex.rowOf(cy - radius), r1 = segmentIndex.rowOf(cy + radius);
+		for (int row = r0; row <= r1; row++) {
+			for (int col = c0; col <= c1; col++) {
+				for (int k = segmentIndex.getCellStart(col, row), end = segmentIndex.getCellEnd(col, row); k < end; k++) {
+					int s = segmentIndex.getCellItem(k);
+					if (!isCircleCollidingSegment(s, cx, cy, radius))
+						continue;
+					double ax = cx - vertexX[s], ay = cy - vertexY[s];
+					double along = ax * unitTangentX[s] + ay * unitTangentY[s];
+					if (along >= 0 && along <= segmentLength[s]) {
+						double penetration = radius - (ax * unitNormalX[s] + ay * unitNormalY[s]);
+						if (penetration > contact[2]) {
+							contact[0] = unitNormalX[s];
+							contact[1] = unitNormalY[s];
+							contact[2] = penetration;
+						}
+					} else {
+						int v = along < 0 ? s : (s + 1) % vertexX.length;
+						double dx = cx - vertexX[v], dy = cy - vertexY[v], d = Math.hypot(dx, dy);
+						if (d > 0 && radius - d > contact[2]) {
+							contact[0] = dx / d;
+							contact[1] = dy / d;
+							contact[2] = radius - d;
+						}
+					}
+				}
+			}
+		}
+		return contact[2] != Double.NEGATIVE_INFINITY;
+	}
+
+	// updates nearest = {distance, normal x, normal y} if segment s has a feature closer to pos
+	private void nearerFeature(int s, Vector2D pos, double[] nearest) {
+		double ax = pos.x - vertexX[s], ay = pos.y - vertexY[s];
+		double along = ax * unitTangentX[s] + ay * unitTangentY[s];
+		if (along >= 0 && along <= segmentLength[s]) {
+			double d = Math.abs(ax * unitNormalX[s] + ay * unitNormalY[s]);
+			if (d < nearest[0]) {
+				nearest[0] = d;
+				nearest[1] = unitNormalX[s];
+				nearest[2] = unitNormalY[s];
+			}
+			return;
+		}
+		int v = along < 0 ? s : (s + 1) % vertexX.length;
+		double dx = pos.x - vertexX[v], dy = pos.y - vertexY[v];
+		double d = Math.hypot(dx, dy);
+		if (d < nearest[0] && d > 0) {
+			nearest[0] = d;
+			nearest[1] = capVertex[v] ? dx / d : unitNormalX[s];
+			nearest[2] = capVertex[v] ? dy / d : unitNormalY[s];
+		}
+	}
+
+	@Override
+	public Vector2D calculateVelocityAfterACollision(Vector2D pos, Vector2D vel) {
+		Vector2D result = new Vector2D(vel);
+		bounceVelocity(pos, result);
+		return result;
+	}
+
+	@Override
+	public void bounceVelocity(Vector2D pos, Vector2D vel) {
+		// reflect off the nearest feature: a segment's face, or a cap vertex.
+		// Contacts are within a cell of pos; the whole polyline is only searched if nothing is that close.
+		double search = segmentIndex.getCellSize();
+		int c0 = segmentIndex.colOf(pos.x - search), c1 = segmentIndex.colOf(pos.x + search);
+		int r0 = segmentIndex.rowOf(pos.y - search), r1 = segmentIndex.rowOf(pos.y + search);
+		nearest[0] = Double.POSITIVE_INFINITY;
+		for (int row = r0; row <= r1; row++)
+			for (int col = c0; col <= c1; col++)
+				for (int k = segmentIndex.getCellStart(col, row), end = segmentIndex.getCellEnd(col, row); k < end; k++)
+					nearerFeature(segmentIndex.getCellItem(k), pos, nearest);
+		if (nearest[0] == Double.POSITIVE_INFINITY)
+			for (int s = 0; s < numSegments; s++)
+				nearerFeature(s, pos, nearest);
+		double bestDist = nearest[0], nx = nearest[1], ny = nearest[2];
+		if (bestDist == Double.POSITIVE_INFINITY)
+			return;
+		// tangent is the normal rotated 90 degrees clockwise
+		double tx = ny, ty = -nx;
+		double vParallel = vel.x * tx + vel.y * ty;
+		double vNormal = Math.abs(vel.x * nx + vel.y * ny); // assumes normal points AWAY from wall
+		vel.set(tx * vParallel + nx * vNormal, ty * vParallel + ny * vNormal);
+	}
+}
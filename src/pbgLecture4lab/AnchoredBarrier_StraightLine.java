@@ -68,6 +68,51 @@ public class AnchoredBarrier_StraightLine extends AnchoredBarrier {
 		return result;
 	}
 
+	@Override
+	public void getBoundingBox(double[] box) {
+		box[0]=Math.min(startPos.x, endPos.x);
+		box[1]=Math.min(startPos.y, endPos.y);
+		box[2]=Math.max(startPos.x, endPos.x);
+		box[3]=Math.max(startPos.y, endPos.y);
+	}
+
+	@Override
+	public void bounceVelocity(Vector2D pos, Vector2D vel) {
+		double vParallel=vel.scalarProduct(getUnitTangent());
+		double vNormal=Math.abs(vel.scalarProduct(getUnitNormal()));
+		vel.set(unitTangent.x*vParallel+unitNormal.x*vNormal, unitTangent.y*vParallel+unitNormal.y*vNormal);
+	}
+
+	@Override
+	public boolean findContact(Vector2D circleCentre, double circleRadius, double[] contact) {
+		double ax=circleCentre.x-startPos.x, ay=circleCentre.y-startPos.y;
+		double distOnCorrectSideOfBarrierToCentre=ax*unitNormal.x+ay*unitNormal.y;
+		double distAlongBarrier=ax*unitTangent.x+ay*unitTangent.y;
+		if (distOnCorrectSideOfBarrierToCentre>circleRadius || (barrierDepth!=null && distOnCorrectSideOfBarrierToCentre<-(barrierDepth+circleRadius))
+				|| distAlongBarrier<0 || distAlongBarrier>barrierLength)
+			return false;
+		contact[0]=unitNormal.x;
+		contact[1]=unitNormal.y;
+		contact[2]=circleRadius-distOnCorrectSideOfBarrierToCentre;
+		return true;
+	}
+
+	public Vector2D getStartPos() {
+		return startPos;
+	}
+
+	public Vector2D getEndPos() {
+		return endPos;
+	}
+
+	public Color getColor() {
+		return col;
+	}
+
+	public Double getBarrierDepth() {
+		return barrierDepth;
+	}
+
 	public Vector2D getUnitNormal() {
 		return unitNormal;
 	}
@@ -38,12 +38,18 @@ public class BasicParticle {
 	}
 
 	public void update() {
-		Vector2D acc;
 		// Apply forces that always exist on particle:
 		applyParticleWeight();
 		if (rollingFriction!=0)
 			// this particle has been told to slow down gradually due to rolling friction 
 			applyBasicRollingFriction(rollingFriction);
+		integrate();
+	}
+
+	// moves the particle under the forces applied so far; the engine uses this directly,
+	// since its ForcePipeline has already applied the weight and rolling friction
+	public void integrate() {
+		Vector2D acc;
 		//calculate Acceleration using Newton's second law.
 		acc=new Vector2D(0,0);
 		acc.addScaled(totalForceThisTimeStep, 1/mass);// using a=F/m from Newton's Second Law
@@ -94,6 +100,24 @@ public class BasicParticle {
 		return radius;
 	}
 
+	public double getMass() {
+		return mass;
+	}
+
+	public double getRollingFriction() {
+		return rollingFriction;
+	}
+
+	public boolean isImprovedEuler() {
+		return improvedEuler;
+	}
+
+	// true for particles whose integrate() does more than the usual Euler step; the engine's
+	// ForcePipeline calls their integrate() instead of moving them in its batched kernels
+	public boolean hasCustomIntegration() {
+		return false;
+	}
+
 	public Vector2D getPos() {
 		return pos;
 	}
@@ -142,6 +166,15 @@ public class BasicParticle {
 		totalForceThisTimeStep.add(force);
 	}
 	
+	public void applyForceToParticle(double fx, double fy) {
+		totalForceThisTimeStep.add(fx, fy);
+	}
+	
+	// the forces applied so far this update
+	public Vector2D getTotalForce() {
+		return totalForceThisTimeStep;
+	}
+
 	public void resetTotalForce() {
 		totalForceThisTimeStep.set(0,0);
 	}
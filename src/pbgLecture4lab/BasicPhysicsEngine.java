@@ -2,7 +2,10 @@ package pbgLecture4lab;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -23,17 +26,42 @@ public class BasicPhysicsEngine {
 
 	// sleep time between two drawn frames in milliseconds 
 	public static final int DELAY = 20;
-	public static final int NUM_EULER_UPDATES_PER_SCREEN_REFRESH=10;
+	// can be set with -Dthrust.substeps=n; StableTimestepTuner finds the smallest safe value
+	public static final int NUM_EULER_UPDATES_PER_SCREEN_REFRESH=Integer.getInteger("thrust.substeps", 10);
 	// estimate for time between two frames in seconds 
 	public static final double DELTA_T = DELAY / 1000.0 / NUM_EULER_UPDATES_PER_SCREEN_REFRESH / 4;
 	
 	
+	// world coordinates of the bottom left corner of the screen in the frame being painted.
+	// Only the painting thread sets them, from its engine's camera at the start of each frame
+	// (useCameraOf), so every conversion in one frame uses the same camera.
+	private static double viewX=0, viewY=0;
+	
+	// world coordinates of the bottom left corner of this engine's view; zero unless the camera
+	// follows something.  Replaced whole, never changed, so a painter reading it once sees one position.
+	private volatile Vector2D camera=new Vector2D(0, 0);
+	
+	public void centreCameraOn(double worldX, double worldY) {
+		camera=new Vector2D(worldX-WORLD_WIDTH/2, worldY-WORLD_HEIGHT/2);
+	}
+	
+	public Vector2D getCamera() {
+		return new Vector2D(camera);
+	}
+	
+	// makes the conversions below use this engine's camera; BasicView calls it once per frame
+	static void useCameraOf(BasicPhysicsEngine game) {
+		Vector2D c=game.camera;
+		viewX=c.x;
+		viewY=c.y;
+	}
+	
 	public static int convertWorldXtoScreenX(double worldX) {
-		return (int) (worldX/WORLD_WIDTH*SCREEN_WIDTH);
+		return (int) ((worldX-viewX)/WORLD_WIDTH*SCREEN_WIDTH);
 	}
 	public static int convertWorldYtoScreenY(double worldY) {
 		// minus sign in here is because screen coordinates are upside down.
-		return (int) (SCREEN_HEIGHT-(worldY/WORLD_HEIGHT*SCREEN_HEIGHT));
+		return (int) (SCREEN_HEIGHT-((worldY-viewY)/WORLD_HEIGHT*SCREEN_HEIGHT));
 	}
 	public static int convertWorldLengthToScreenLength(double worldLength) {
 		return (int) (worldLength/WORLD_WIDTH*SCREEN_WIDTH);
@@ -43,14 +71,14 @@ public class BasicPhysicsEngine {
 		// this means rearranging the equation z=(worldX/WORLD_WIDTH*SCREEN_WIDTH) to make worldX the subject, 
 		// and then returning worldX
 		// Ask for help if you need it!
-                return screenX * WORLD_WIDTH / SCREEN_WIDTH;
+                return screenX * WORLD_WIDTH / SCREEN_WIDTH + viewX;
 	}
 	public static double convertScreenYtoWorldY(int screenY) {
 		// to get this to work you need to program the inverse function to convertWorldYtoScreenY
 		// this means rearranging the equation z= (SCREEN_HEIGHT-(worldY/WORLD_HEIGHT*SCREEN_HEIGHT)) to make 
 		// worldY the subject, and then returning worldY
 		// Ask for help if you need it!
-                return -1 * ((screenY - SCREEN_HEIGHT) * WORLD_HEIGHT / SCREEN_HEIGHT);
+                return -1 * ((screenY - SCREEN_HEIGHT) * WORLD_HEIGHT / SCREEN_HEIGHT) + viewY;
 	}
 	
 	
@@ -68,19 +96,56 @@ public class BasicPhysicsEngine {
 	public List<BasicParticle> particles;
 	public List<AnchoredBarrier> barriers;
 	public List<ElasticConnector> connectors;
+	// bulk connectors for ropes, chains and cloth, indexed into particles
+	public ElasticConnectorNetwork connectorNetwork;
+	// pooled cosmetic particles that only collide with barriers
+	public ParticleEmitter exhaust, debris;
+	// when set, flies particles.get(0) instead of the keyboard
+	public ShipAutopilot autopilot;
+	// when set, streams a large world in around particles.get(0) and the camera follows it
+	public ChunkedWorld chunkedWorld;
+	// resolves particle-particle and particle-barrier contacts each update
+	public ContactSolver contactSolver;
+	// the forces on the particles (weight, rolling friction, thrust, connector tension, ...), applied each update
+	public ForcePipeline forces;
+	// game events (tether, win, crash, collisions), delivered to listeners off this thread
+	public GameEventBus events;
+	// spawn, despawn, attach and detach requests from any thread, applied at the start of each update
+	public WorldCommandQueue commands;
+	// when set, moves the balls exactly from collision to collision instead of stepping them
+	public EventDrivenSimulation eventDriven;
+	// updates run so far
+	public long tick;
+	// WON or CRASHED once the game has ended; the simulation carries on but the rules stop
+	public GameEvent.Type outcome;
 	
 	public static enum LayoutMode {CONVEX_ARENA, CONCAVE_ARENA, CONVEX_ARENA_WITH_CURVE, PINBALL_ARENA, RECTANGLE, SNOOKER_TABLE, THRUST_ARENA};
 	public BasicPhysicsEngine() {
+		this(LayoutMode.THRUST_ARENA);
+	}
+	public BasicPhysicsEngine(LayoutMode layout) {
 		particles = new ArrayList<BasicParticle>();
 		barriers = new ArrayList<AnchoredBarrier>();
 		// empty particles array, so that when a new thread starts it clears current particle state:
 		particles = new ArrayList<BasicParticle>();
 		connectors=new ArrayList<ElasticConnector>();
-		LayoutMode layout=LayoutMode.THRUST_ARENA;
+		connectorNetwork=new ElasticConnectorNetwork(particles, Color.WHITE);
+		forces=new ForcePipeline();
+		forces.addGenerator(new ForceGenerator_UniformGravity(0, -GRAVITY));
+		forces.addGenerator(new ForceGenerator_RollingFriction());
+		forces.addGenerator(new ForceGenerator_Thrust());
+		forces.addGenerator(new ForceGenerator_Springs(connectors));
+		contactSolver=new ContactSolver(0.5);
+		events=new GameEventBus(4096);
+		commands=new WorldCommandQueue(this);
 		// pinball:
 		double r=.1;
 		
-		particles.add(new ControllableSpaceShip(1,WORLD_HEIGHT/10 * 8.1,0,0, r, true, 10000));
+		exhaust=ParticleEmitter.createExhaust();
+		debris=ParticleEmitter.createDebris();
+		ControllableSpaceShip ship=new ControllableSpaceShip(1,WORLD_HEIGHT/10 * 8.1,0,0, r, true, 10000);
+		ship.setExhaustEmitter(exhaust);
+		particles.add(ship);
 		particles.add(new BasicParticle(9,WORLD_HEIGHT/48 * 1.4,0,0, r,true, Color.BLUE, 2*4, rollingFriction));
 		//connectors.add(new ElasticConnector(particles.get(0), particles.get(1), 1, springConstant, springDampingConstant, false, Color.WHITE, hookesLawTruncation));
 
@@ -162,17 +227,17 @@ public class BasicPhysicsEngine {
                         case THRUST_ARENA: {
                                 startBarrierBall = new AnchoredBarrier_StraightLine(WORLD_WIDTH / 8, WORLD_HEIGHT / 48, WORLD_WIDTH, WORLD_HEIGHT / 48, Color.WHITE, 0.1);
                                 barriers.add(startBarrierBall);
-				barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH, WORLD_HEIGHT / 48, WORLD_WIDTH, WORLD_HEIGHT / 4, Color.WHITE, 0.1));
-				barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH, WORLD_HEIGHT / 4, WORLD_WIDTH / 3, WORLD_HEIGHT / 4, Color.WHITE, 0.1));
-                                barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH / 3, WORLD_HEIGHT / 4, WORLD_WIDTH / 3, WORLD_HEIGHT / 4, Color.WHITE, 0.1));
+				// the cave walls are polylines; the start pad and winning line stay separate straight lines
+				// because the game checks for contact with those two in particular
+				barriers.add(new AnchoredBarrier_Polyline(new double[] {WORLD_WIDTH, WORLD_WIDTH, WORLD_WIDTH / 3},
+						new double[] {WORLD_HEIGHT / 48, WORLD_HEIGHT / 4, WORLD_HEIGHT / 4}, false, Color.WHITE, 0.1));
                                 barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH, WORLD_HEIGHT / 4, WORLD_WIDTH, WORLD_HEIGHT, Color.WHITE, 0.1));
                                 winningBarrier = new AnchoredBarrier_StraightLine(WORLD_WIDTH, WORLD_HEIGHT, 0, WORLD_HEIGHT, Color.WHITE, 0.1);
                                 barriers.add(winningBarrier);
-				barriers.add(new AnchoredBarrier_StraightLine(0, WORLD_HEIGHT, 0, WORLD_HEIGHT / 5 * 4, Color.WHITE, 0.1));
-                                barriers.add(new AnchoredBarrier_StraightLine(0, WORLD_HEIGHT / 5 * 4, WORLD_WIDTH / 3 * 2, WORLD_HEIGHT / 5 * 4, Color.WHITE, 0.1));
-                                barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH / 3 * 2, WORLD_HEIGHT / 5 * 4, WORLD_WIDTH / 3 * 2, WORLD_HEIGHT / 32 * 15, Color.WHITE, 0.1));
-                                barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH / 3 * 2, WORLD_HEIGHT / 32 * 15, WORLD_WIDTH / 8, WORLD_HEIGHT / 32 * 15, Color.WHITE, 0.1));
-                                barriers.add(new AnchoredBarrier_StraightLine(WORLD_WIDTH / 8, WORLD_HEIGHT / 32 * 15, WORLD_WIDTH / 8, WORLD_HEIGHT / 48, Color.WHITE, 0.1));
+				barriers.add(new AnchoredBarrier_Polyline(
+						new double[] {0, 0, WORLD_WIDTH / 3 * 2, WORLD_WIDTH / 3 * 2, WORLD_WIDTH / 8, WORLD_WIDTH / 8},
+						new double[] {WORLD_HEIGHT, WORLD_HEIGHT / 5 * 4, WORLD_HEIGHT / 5 * 4, WORLD_HEIGHT / 32 * 15, WORLD_HEIGHT / 32 * 15, WORLD_HEIGHT / 48},
+						false, Color.WHITE, 0.1));
                         }
 		}
 			
@@ -201,15 +266,46 @@ public class BasicPhysicsEngine {
 	}
 	public static void main(String[] args) throws Exception {
 		final BasicPhysicsEngine game = new BasicPhysicsEngine();
+		if (Arrays.asList(args).contains("-autopilot")) {
+			game.autopilot = new ShipAutopilot((ControllableSpaceShip) game.particles.get(0), game.barriers, 30, 256, DELAY * 1000000L / 2);
+			Vector2D ball = game.particles.get(1).getPos();
+			game.autopilot.setTarget(ball.x, ball.y + 1);
+		}
+		if (Arrays.asList(args).contains("-planet")) {
+			// a small planet in the open middle of the cave
+			GravityField planet=new GravityField(1, 0.2);
+			planet.addAttractor(WORLD_WIDTH/2, WORLD_HEIGHT*0.6, 20);
+			game.forces.addGenerator(planet);
+		}
+		if (Arrays.asList(args).contains("-bigworld"))
+			game.chunkedWorld = new ChunkedWorld(game, 1, 5000, 2000, 1, 2, Files.createTempDirectory("thrust-chunks").toFile());
+		// standalone, the game ends the program as it always has: exit status 2 for a win, 1 for a crash
+		game.events.addListener(new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				if (event.getType() == GameEvent.Type.WON)
+					System.exit(2);
+				else if (event.getType() == GameEvent.Type.CRASHED)
+					System.exit(1);
+			}
+		});
+		game.events.startDispatcher();
 		final BasicView view = new BasicView(game);
 		JEasyFrame frame = new JEasyFrame(view, "Thrust Game");
 		frame.addKeyListener(new BasicKeyListener());
 		view.addMouseMotionListener(new BasicMouseListener());
 		game.startThread(view);
 	}
-	private void startThread(final BasicView view) throws InterruptedException {
+	private void startThread(final BasicView view) throws InterruptedException, IOException {
 		final BasicPhysicsEngine game=this;
 		while (true) {
+			if (game.chunkedWorld!=null) {
+				Vector2D focus=game.particles.get(0).getPos();
+				game.chunkedWorld.update(focus.x, focus.y);
+				game.centreCameraOn(focus.x, focus.y);
+			}
+			if (game.autopilot!=null)
+				game.autopilot.plan();
 			for (int i=0;i<NUM_EULER_UPDATES_PER_SCREEN_REFRESH;i++) {
 				game.update();
 			}
@@ -225,46 +321,57 @@ public class BasicPhysicsEngine {
 
 
 	public void update() {
+		commands.apply();
+		if (eventDriven != null) {
+			eventDriven.advance(DELTA_T);
+			tick++;
+			return;
+		}
 		for (BasicParticle p : particles) {
 			p.resetTotalForce();// reset to zero at start of time step, so accumulation of forces can begin.
 		}
-		for (ElasticConnector ec: connectors) {
-			ec.applyTensionForceToBothParticles();
-		}
 		for (BasicParticle p : particles) {
-			p.update(); // tell each particle to move
+			if (p instanceof ControllableSpaceShip)
+				((ControllableSpaceShip) p).updateControls();
 		}
-		for (BasicParticle particle : particles) {
-			for (AnchoredBarrier b : barriers) {
-				if (b.isCircleCollidingBarrier(particle.getPos(), particle.getRadius())) {
-					Vector2D bouncedVel=b.calculateVelocityAfterACollision(particle.getPos(), particle.getVel());
-					particle.setVel(bouncedVel);
-                                        if (b == winningBarrier && connected) {
-                                            System.exit(2);
-                                        } else if ((connected && leavedBarrier) || particle == particles.get(0) && spaceShipStarted) {
-                                            System.exit(1);
-                                        }
-				}
-			}
-		}
-		double e=0.9; // coefficient of restitution for all particle pairs
-		for (int n=0;n<particles.size();n++) {
-			for (int m=0;m<n;m++) {// avoids double check by requiring m<n
-				BasicParticle p1 = particles.get(n);
-				BasicParticle p2 = particles.get(m);
-				if (p1.collidesWith(p2)) {
-					BasicParticle.implementElasticCollision(p1, p2, e);
-				}
-			}
+		forces.apply(particles, tick*DELTA_T);
+		connectorNetwork.applyTensionForces();
+		forces.integrate(particles, DELTA_T); // tell each particle to move
+		exhaust.update(barriers);
+		debris.update(barriers);
+		contactSolver.solve(particles, barriers);
+		tick++;
+		for (int c=0;c<contactSolver.getNumContacts();c++) {
+			int particleIndex=contactSolver.getParticle(c);
+			BasicParticle particle=particles.get(particleIndex);
+			int barrier=contactSolver.getBarrier(c);
+			if (contactSolver.isNewContact(c))
+				events.publish(GameEvent.Type.COLLISION, tick, particleIndex, contactSolver.getOtherParticle(c), barrier,
+						particle.getPos().x, particle.getPos().y, contactSolver.getImpulse(c));
+			if (barrier<0 || outcome!=null)
+				continue;
+			AnchoredBarrier b=barriers.get(barrier);
+                        if (b == winningBarrier && connected) {
+                            outcome=GameEvent.Type.WON;
+                            events.publish(outcome, tick, particleIndex, -1, barrier, particle.getPos().x, particle.getPos().y, 0);
+                        } else if ((connected && leavedBarrier) || particle == particles.get(0) && spaceShipStarted) {
+                            if (particles.get(0) instanceof ControllableSpaceShip)
+                                ((ControllableSpaceShip) particles.get(0)).explode(debris);
+                            outcome=GameEvent.Type.CRASHED;
+                            events.publish(outcome, tick, particleIndex, -1, barrier, particle.getPos().x, particle.getPos().y, 0);
+                        }
 		}
                 if (!connected && BasicKeyListener.isSpaceBarPressed() && particles.get(0).getPos().dist(particles.get(1).getPos()) < 2) {
-                    connectors.add(new ElasticConnector(particles.get(0), particles.get(1), 1, springConstant, springDampingConstant, false, Color.WHITE, hookesLawTruncation));
+                    commands.attach(commands.handleOfParticle(0), commands.handleOfParticle(1), 1, springConstant, springDampingConstant, false, Color.WHITE, hookesLawTruncation);
                     connected = true;
-                    System.out.println(particles.get(0).getPos().dist(particles.get(1).getPos()));
+                    events.publish(GameEvent.Type.TETHER_ATTACHED, tick, 0, 1, -1, particles.get(0).getPos().x, particles.get(0).getPos().y,
+                            particles.get(0).getPos().dist(particles.get(1).getPos()));
                 }
-                if (!leavedBarrier) {
+                if (!leavedBarrier && startBarrierBall != null) {
                     if (!startBarrierBall.isCircleCollidingBarrier(particles.get(1).getPos(), particles.get(1).getRadius()) && connected) {
                         leavedBarrier = true;
+                        events.publish(GameEvent.Type.LEFT_START_PAD, tick, 1, -1, barriers.indexOf(startBarrierBall),
+                                particles.get(1).getPos().x, particles.get(1).getPos().y, 0);
                     }
                 }
                 if (!spaceShipStarted && BasicKeyListener.isThrustKeyPressed()) {
@@ -4,6 +4,9 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.swing.JComponent;
 
@@ -17,6 +20,20 @@ public class BasicView extends JComponent {
 
 	private BasicPhysicsEngine game;
 
+	private int drawnLastFrame, culledLastFrame;
+	private final SpatialGrid barrierGrid = new SpatialGrid(1);
+	private AnchoredBarrier[] indexedBarriers = new AnchoredBarrier[0];
+	private int numIndexedBarriers = -1;
+	private double[] bMinX, bMinY, bMaxX, bMaxY;
+	private final List<Integer> unboundedBarriers = new ArrayList<Integer>();
+	private boolean[] barrierVisible = new boolean[0];
+	private int[] chainX = new int[16], chainY = new int[16];
+	private int chainLength;
+	// when set, ships and plain particles are blitted from pre-rendered images
+	private SpriteAtlas sprites = new SpriteAtlas(64);
+	// when set, plain particles are rasterized off the painting thread and the background comes with them
+	private TileRasterizer rasterizer;
+
 	public BasicView(BasicPhysicsEngine game) {
 		this.game = game;
 	}
@@ -27,16 +44,205 @@ public class BasicView extends JComponent {
 		synchronized(this) {
 			game=this.game;
 		}
-		Graphics2D g = (Graphics2D) g0;
-		// paint the background
-		g.setColor(BG_COLOR);
-		g.fillRect(0, 0, getWidth(), getHeight());
-		for (BasicParticle p : game.particles)
-			p.draw(g);
-		for (ElasticConnector c : game.connectors)
+		BasicPhysicsEngine.useCameraOf(game);
+		// the engine's command queue applies its changes to the lists holding this same lock
+		synchronized (game.commands) {
+			paintWorld((Graphics2D) g0, game);
+		}
+	}
+
+	private void paintWorld(Graphics2D g, BasicPhysicsEngine game) {
+		List<BasicParticle> particles = game.particles;
+		TileRasterizer rasterizer = this.rasterizer;
+		if (rasterizer != null) {
+			g.drawImage(rasterizer.render(particles, getWidth(), getHeight()), 0, 0, null);
+		} else {
+			// paint the background
+			g.setColor(BG_COLOR);
+			g.fillRect(0, 0, getWidth(), getHeight());
+		}
+		// world rectangle currently on screen; anything outside it is culled
+		double minX = BasicPhysicsEngine.convertScreenXtoWorldX(0);
+		double maxX = BasicPhysicsEngine.convertScreenXtoWorldX(getWidth());
+		double minY = BasicPhysicsEngine.convertScreenYtoWorldY(getHeight());
+		double maxY = BasicPhysicsEngine.convertScreenYtoWorldY(0);
+		int drawn = 0, total = 0;
+
+		game.exhaust.draw(g);
+		game.debris.draw(g);
+		// particles move every tick, so a per-frame index would cost more than the direct test it saves
+		Color lastColor = null;
+		for (int i = 0, n = particles.size(); i < n; i++) {
+			BasicParticle p = particles.get(i);
+			Vector2D pos = p.getPos();
+			double r = p.getRadius();
+			total++;
+			if (pos.x + r < minX || pos.x - r > maxX || pos.y + r < minY || pos.y - r > maxY)
+				continue;
+			drawn++;
+			// ships and polygons are drawn as their shapes, everything else as a disc
+			boolean shaped = p instanceof ControllableSpaceShip || p instanceof ConvexPolygonBody;
+			if (rasterizer != null && !shaped)
+				continue;
+			if (BasicPhysicsEngine.convertWorldLengthToScreenLength(r) < 1 && !shaped) {
+				// smaller than a pixel: plot a single pixel instead of an oval
+				if (p.col != lastColor)
+					g.setColor(lastColor = p.col);
+				g.fillRect(BasicPhysicsEngine.convertWorldXtoScreenX(pos.x), BasicPhysicsEngine.convertWorldYtoScreenY(pos.y), 1, 1);
+			} else if (sprites == null || p instanceof ConvexPolygonBody) {
+				p.draw(g);
+				lastColor = null;
+			} else if (p instanceof ControllableSpaceShip) {
+				sprites.drawShip(g, (ControllableSpaceShip) p);
+			} else {
+				sprites.drawParticle(g, p);
+			}
+		}
+		for (ElasticConnector c : game.connectors) {
+			Vector2D p1 = c.getParticle1().getPos(), p2 = c.getParticle2().getPos();
+			total++;
+			if (Math.max(p1.x, p2.x) < minX || Math.min(p1.x, p2.x) > maxX || Math.max(p1.y, p2.y) < minY
+					|| Math.min(p1.y, p2.y) > maxY)
+				continue;
 			c.draw(g);
-		for (AnchoredBarrier b : game.barriers)
-			b.draw(g);
+			drawn++;
+		}
+		drawn += game.connectorNetwork.draw(g, minX, minY, maxX, maxY);
+		total += game.connectorNetwork.getNumConnectors();
+		total += game.barriers.size();
+		drawn += drawBarriers(g, game.barriers, minX, minY, maxX, maxY);
+		synchronized (this) {
+			drawnLastFrame = drawn;
+			culledLastFrame = total - drawn;
+		}
+	}
+
+	// barriers rarely change, so they are kept in a spatial grid that is only rebuilt when the list changes
+	private int drawBarriers(Graphics2D g, List<AnchoredBarrier> barriers, double minX, double minY, double maxX, double maxY) {
+		int n = barriers.size();
+		if (barrierIndexChanged(barriers))
+			rebuildBarrierIndex(barriers);
+		if (barrierVisible.length < n)
+			barrierVisible = new boolean[n];
+		Arrays.fill(barrierVisible, 0, n, false);
+		int found = barrierGrid.query(minX, minY, maxX, maxY);
+		for (int k = 0; k < found; k++) {
+			int i = barrierGrid.getResult(k);
+			barrierVisible[i] = bMaxX[i] >= minX && bMinX[i] <= maxX && bMaxY[i] >= minY && bMinY[i] <= maxY;
+		}
+		for (int i = 0; i < unboundedBarriers.size(); i++)
+			barrierVisible[unboundedBarriers.get(i)] = true;
+
+		// consecutive visible straight lines that join end to start are drawn as one polyline
+		int drawn = 0;
+		chainLength = 0;
+		Color chainColor = null;
+		for (int i = 0; i < n; i++) {
+			if (!barrierVisible[i]) {
+				flushChain(g, chainColor);
+				continue;
+			}
+			drawn++;
+			AnchoredBarrier b = indexedBarriers[i];
+			if (b instanceof AnchoredBarrier_StraightLine) {
+				AnchoredBarrier_StraightLine line = (AnchoredBarrier_StraightLine) b;
+				int sx = BasicPhysicsEngine.convertWorldXtoScreenX(line.getStartPos().x);
+				int sy = BasicPhysicsEngine.convertWorldYtoScreenY(line.getStartPos().y);
+				if (chainLength > 0 && (line.getColor() != chainColor || chainX[chainLength - 1] != sx || chainY[chainLength - 1] != sy))
+					flushChain(g, chainColor);
+				if (chainLength == 0) {
+					chainColor = line.getColor();
+					appendToChain(sx, sy);
+				}
+				appendToChain(BasicPhysicsEngine.convertWorldXtoScreenX(line.getEndPos().x),
+						BasicPhysicsEngine.convertWorldYtoScreenY(line.getEndPos().y));
+			} else {
+				flushChain(g, chainColor);
+				b.draw(g);
+			}
+		}
+		flushChain(g, chainColor);
+		return drawn;
+	}
+
+	private boolean barrierIndexChanged(List<AnchoredBarrier> barriers) {
+		if (barriers.size() != numIndexedBarriers)
+			return true;
+		for (int i = 0; i < numIndexedBarriers; i++)
+			if (barriers.get(i) != indexedBarriers[i])
+				return true;
+		return false;
+	}
+
+	private void rebuildBarrierIndex(List<AnchoredBarrier> barriers) {
+		int n = barriers.size();
+		if (indexedBarriers.length < n) {
+			indexedBarriers = new AnchoredBarrier[n];
+			bMinX = new double[n];
+			bMinY = new double[n];
+			bMaxX = new double[n];
+			bMaxY = new double[n];
+		}
+		unboundedBarriers.clear();
+		double[] box = new double[4];
+		for (int i = 0; i < n; i++) {
+			AnchoredBarrier b = barriers.get(i);
+			indexedBarriers[i] = b;
+			b.getBoundingBox(box);
+			if (Double.isInfinite(box[0]) || Double.isInfinite(box[1]) || Double.isInfinite(box[2]) || Double.isInfinite(box[3])) {
+				unboundedBarriers.add(i);
+				box[0] = box[1] = box[2] = box[3] = 0;
+			}
+			bMinX[i] = box[0];
+			bMinY[i] = box[1];
+			bMaxX[i] = box[2];
+			bMaxY[i] = box[3];
+		}
+		numIndexedBarriers = n;
+		barrierGrid.build(n, bMinX, bMinY, bMaxX, bMaxY);
+	}
+
+	private void appendToChain(int x, int y) {
+		if (chainLength == chainX.length) {
+			chainX = Arrays.copyOf(chainX, chainLength * 2);
+			chainY = Arrays.copyOf(chainY, chainLength * 2);
+		}
+		chainX[chainLength] = x;
+		chainY[chainLength] = y;
+		chainLength++;
+	}
+
+	private void flushChain(Graphics2D g, Color col) {
+		if (chainLength > 1) {
+			g.setColor(col);
+			g.drawPolyline(chainX, chainY, chainLength);
+		}
+		chainLength = 0;
+	}
+
+	public void setSprites(SpriteAtlas sprites) {
+		this.sprites = sprites;
+	}
+
+	public SpriteAtlas getSprites() {
+		return sprites;
+	}
+
+	public void setRasterizer(TileRasterizer rasterizer) {
+		this.rasterizer = rasterizer;
+	}
+
+	public TileRasterizer getRasterizer() {
+		return rasterizer;
+	}
+
+	// number of particles, connectors and barriers drawn and culled in the last painted frame
+	public synchronized int getDrawnLastFrame() {
+		return drawnLastFrame;
+	}
+
+	public synchronized int getCulledLastFrame() {
+		return culledLastFrame;
 	}
 
 	@Override
@@ -0,0 +1,225 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ChunkedWorld {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// A large world split into square chunks of barriers and particles, streamed in
+	// around a focus point (normally the ship).  Chunks within activeRadius of the focus
+	// chunk have their barriers and particles added to the engine and are simulated;
+	// chunks out to cacheRadius are kept in memory but frozen; anything further is paged
+	// out.  Barriers are regenerated from the seed, so only chunks whose particles have
+	// been simulated are written to the page directory, which is emptied when the world is
+	// made, so that pages from an earlier run are never read back.  The engine therefore only ever
+	// holds the active region, and memory holds at most (2*cacheRadius+1)^2 chunks,
+	// however many chunks the world has.
+	//
+	// Particles stay owned by the chunk they were created in, even if they move out of it.
+	// Chunks go in and out of the engine through its WorldCommandQueue, so the change happens
+	// at the start of the next update, and the contact solver's and connector network's
+	// particle and barrier indices are kept right.
+	public static final double CHUNK_SIZE = BasicPhysicsEngine.WORLD_WIDTH;
+
+	private final BasicPhysicsEngine game;
+	private final long seed;
+	private final int chunksAcross, chunksDown;
+	private final int activeRadius, cacheRadius;
+	private final File pageDirectory;
+	private final Map<Long, Chunk> resident = new HashMap<Long, Chunk>();
+	private int focusChunkX = Integer.MIN_VALUE, focusChunkY = Integer.MIN_VALUE;
+	private ByteBuffer pageBuffer = ByteBuffer.allocate(4096);
+
+	public ChunkedWorld(BasicPhysicsEngine game, long seed, double worldWidth, double worldHeight, int activeRadius,
+			int cacheRadius, File pageDirectory) throws IOException {
+		if (cacheRadius < activeRadius)
+			throw new IllegalArgumentException("cache radius must be at least the active radius");
+		this.game = game;
+		this.seed = seed;
+		this.chunksAcross = (int) Math.ceil(worldWidth / CHUNK_SIZE);
+		this.chunksDown = (int) Math.ceil(worldHeight / CHUNK_SIZE);
+		this.activeRadius = activeRadius;
+		this.cacheRadius = cacheRadius;
+		this.pageDirectory = pageDirectory;
+		if (!pageDirectory.isDirectory() && !pageDirectory.mkdirs())
+			throw new IOException("can't make page directory " + pageDirectory);
+		File[] pages = pageDirectory.listFiles();
+		for (File page : pages)
+			if (page.getName().startsWith("chunk_") && page.getName().endsWith(".bin") && !page.delete())
+				throw new IOException("can't clear old page " + page);
+	}
+
+	private static class Chunk {
+		final int cx, cy;
+		final List<AnchoredBarrier> barriers = new ArrayList<AnchoredBarrier>();
+		final List<BasicParticle> particles = new ArrayList<BasicParticle>();
+		// the engine's handles for the particles while the chunk is active
+		final List<Long> handles = new ArrayList<Long>();
+		boolean active;
+		// particles have been simulated, so they can no longer be regenerated from the seed
+		boolean dirty;
+
+		Chunk(int cx, int cy) {
+			this.cx = cx;
+			this.cy = cy;
+		}
+	}
+
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	public static int chunkOf(double worldCoordinate) {
+		return (int) Math.floor(worldCoordinate / CHUNK_SIZE);
+	}
+
+	// call once per frame; the chunks that come and go do so at the start of the next update
+	public void update(double focusX, double focusY) throws IOException {
+		int fx = chunkOf(focusX), fy = chunkOf(focusY);
+		if (fx == focusChunkX && fy == focusChunkY)
+			return;
+		focusChunkX = fx;
+		focusChunkY = fy;
+
+		// freeze or page out chunks that are now too far away
+		WorldCommandQueue commands = game.commands;
+		Iterator<Chunk> it = resident.values().iterator();
+		while (it.hasNext()) {
+			Chunk chunk = it.next();
+			int distance = Math.max(Math.abs(chunk.cx - fx), Math.abs(chunk.cy - fy));
+			if (chunk.active && distance > activeRadius) {
+				for (AnchoredBarrier b : chunk.barriers)
+					commands.removeBarrier(b);
+				for (long handle : chunk.handles)
+					commands.despawn(handle);
+				chunk.handles.clear();
+				chunk.active = false;
+			}
+			if (distance > cacheRadius) {
+				if (chunk.dirty)
+					pageOut(chunk);
+				it.remove();
+			}
+		}
+
+		// load the cache region and activate the region around the focus
+		for (int cx = fx - cacheRadius; cx <= fx + cacheRadius; cx++) {
+			for (int cy = fy - cacheRadius; cy <= fy + cacheRadius; cy++) {
+				if (cx < 0 || cy < 0 || cx >= chunksAcross || cy >= chunksDown)
+					continue;
+				Chunk chunk = resident.get(key(cx, cy));
+				if (chunk == null) {
+					chunk = load(cx, cy);
+					resident.put(key(cx, cy), chunk);
+				}
+				if (!chunk.active && Math.max(Math.abs(cx - fx), Math.abs(cy - fy)) <= activeRadius) {
+					for (AnchoredBarrier b : chunk.barriers)
+						commands.addBarrier(b);
+					for (BasicParticle p : chunk.particles)
+						chunk.handles.add(commands.spawn(p));
+					chunk.active = true;
+					chunk.dirty |= !chunk.particles.isEmpty();
+				}
+			}
+		}
+	}
+
+	private Chunk load(int cx, int cy) throws IOException {
+		Chunk chunk = new Chunk(cx, cy);
+		Random random = new Random(seed * 31 + key(cx, cy) * 0x9E3779B97F4A7C15L);
+		generateBarriers(chunk, random);
+		File page = pageFile(cx, cy);
+		if (page.exists()) {
+			FileInputStream in = new FileInputStream(page);
+			try {
+				FileChannel channel = in.getChannel();
+				ByteBuffer buf = ByteBuffer.allocate((int) channel.size());
+				while (buf.hasRemaining() && channel.read(buf) >= 0) {
+				}
+				buf.flip();
+				WorldStateCodec.decodeParticles(buf, chunk.particles, game.exhaust);
+			} finally {
+				in.close();
+			}
+			chunk.dirty = true;
+		} else {
+			generateParticles(chunk, random);
+		}
+		return chunk;
+	}
+
+	private void pageOut(Chunk chunk) throws IOException {
+		int size = WorldStateCodec.maxEncodedParticlesSize(chunk.particles.size());
+		if (pageBuffer.capacity() < size)
+			pageBuffer = ByteBuffer.allocate(Math.max(size, pageBuffer.capacity() * 2));
+		pageBuffer.clear();
+		WorldStateCodec.lossless().encodeParticles(chunk.particles, pageBuffer);
+		pageBuffer.flip();
+		FileOutputStream out = new FileOutputStream(pageFile(chunk.cx, chunk.cy));
+		try {
+			FileChannel channel = out.getChannel();
+			while (pageBuffer.hasRemaining())
+				channel.write(pageBuffer);
+		} finally {
+			out.close();
+		}
+	}
+
+	private File pageFile(int cx, int cy) {
+		return new File(pageDirectory, "chunk_" + cx + "_" + cy + ".bin");
+	}
+
+	// chunk (0,0) holds the engine's own arena, so it is left empty
+	private void generateBarriers(Chunk chunk, Random random) {
+		if (chunk.cx == 0 && chunk.cy == 0)
+			return;
+		double x0 = chunk.cx * CHUNK_SIZE, y0 = chunk.cy * CHUNK_SIZE;
+		if (chunk.cy == 0)
+			chunk.barriers.add(new AnchoredBarrier_StraightLine(x0, 0, x0 + CHUNK_SIZE, 0, Color.WHITE));
+		int rocks = random.nextInt(4);
+		for (int i = 0; i < rocks; i++) {
+			double size = 0.3 + random.nextDouble() * 0.9;
+			double left = x0 + random.nextDouble() * (CHUNK_SIZE - size);
+			double bottom = y0 + 1 + random.nextDouble() * (CHUNK_SIZE - size - 1);
+			double right = left + size, top = bottom + size;
+			// listed clockwise so that the normals point out of the rock
+			chunk.barriers.add(new AnchoredBarrier_Polyline(new double[] {left, right, right, left},
+					new double[] {top, top, bottom, bottom}, true, Color.LIGHT_GRAY, size));
+		}
+	}
+
+	private void generateParticles(Chunk chunk, Random random) {
+		if (chunk.cx == 0 && chunk.cy == 0)
+			return;
+		double x0 = chunk.cx * CHUNK_SIZE, y0 = chunk.cy * CHUNK_SIZE;
+		int balls = random.nextInt(3);
+		for (int i = 0; i < balls; i++)
+			chunk.particles.add(new BasicParticle(x0 + random.nextDouble() * CHUNK_SIZE, y0 + random.nextDouble() * CHUNK_SIZE, 0, 0,
+					0.1, true, Color.ORANGE, 2, BasicPhysicsEngine.rollingFriction));
+	}
+
+	public int getResidentChunks() {
+		return resident.size();
+	}
+
+	public int getActiveChunks() {
+		int n = 0;
+		for (Chunk c : resident.values())
+			if (c.active)
+				n++;
+		return n;
+	}
+}
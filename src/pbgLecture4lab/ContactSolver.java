@@ -0,0 +1,758 @@
+package pbgLecture4lab;
+
+import static pbgLecture4lab.BasicPhysicsEngine.DELTA_T;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ContactSolver {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Sequential-impulse solver for particle-particle and particle-barrier contacts,
+	// run once per engine update after the particles have moved.
+	//
+	// Each update finds every touching pair (particles through a SpatialGrid, barriers
+	// through AnchoredBarrier.findContact), then repeatedly visits the contacts applying
+	// the normal impulse that stops each one approaching, keeping the total impulse on a
+	// contact non-negative.  Visiting every contact several times lets impulses travel
+	// through a pile, so resting stacks hold still instead of sinking.
+	//
+	// The accumulated impulse of each contact is cached under its body pair and applied
+	// up front the next update (warm starting), so a resting pile starts each update
+	// already close to its solution and few iterations are needed.
+	//
+	// Overlap is removed either by adding a bias to the target velocity (Baumgarte),
+	// or, by default, by a separate pass on pseudo-velocities that move the particles
+	// apart without adding any real velocity (split impulse), which stops deep overlaps
+	// from launching particles.
+	//
+	// Contacts are keyed by index into the particle and barrier lists, so adding or
+	// removing particles only costs one update's warm start, never correctness.
+	//
+	// ConvexPolygonBodies are found by the same grid and bounding-circle test as every other
+	// particle, and only then handed to a ConvexPolygonCollider for their contact points.
+	// Their contacts carry arms from each body's centre to the point, so impulses turn them.
+	// Circles have no arms and no rotation, so those terms are zero for them.
+	//
+	// Large piles are solved colour by colour instead of in the order their contacts were
+	// found.  Each contact gets the lowest colour not already used by a contact on either of
+	// its particles, so the contacts of one colour share no particle and can be solved at the
+	// same time on the ForkJoinPool with no locks: each writes only its own two particles.
+	// The colours are given in contact order, and the order within a colour makes no
+	// difference, so a coloured solve gives the same result to the last bit on any number of
+	// threads.  It differs from a sequential solve only in the order the impulses travel.
+	public static final int NO_POSITION_CORRECTION = 0, BAUMGARTE = 1, SPLIT_IMPULSE = 2;
+
+	// fraction of the overlap removed per update
+	public static final double POSITION_CORRECTION_FACTOR = 0.2;
+	// overlap left alone, so resting contacts stay touching and keep their cache entries
+	public static final double LINEAR_SLOP = 0.002;
+	// slower approaches than this don't bounce, so resting contacts don't jitter
+	public static final double RESTITUTION_THRESHOLD = 0.1;
+	// contact keys hold the particle index in their low bits and which corner of a polygon
+	// is touching above it, so particle indices must stay below 1 << FEATURE_SHIFT
+	public static final int FEATURE_SHIFT = 24;
+	private static final long FEATURE_MASK = 0x7FL << FEATURE_SHIFT;
+
+	// contacts solved in the order they were found, or colour by colour; AUTOMATIC_ORDER
+	// colours them once there are PARALLEL_THRESHOLD of them
+	public static final int AUTOMATIC_ORDER = 0, SEQUENTIAL_ORDER = 1, COLOURED_ORDER = 2;
+	public static final int PARALLEL_THRESHOLD = 4096;
+	// colours with fewer contacts than this are solved on the calling thread
+	public static final int MIN_PARALLEL_BATCH = 512;
+	// contacts that find all of these colours taken go in one more, solved in order on the calling thread
+	private static final int MAX_COLOURS = 64;
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private int iterations = 8;
+	private int positionCorrection = SPLIT_IMPULSE;
+	private boolean warmStarting = true;
+	private double particleRestitution = 0.9, barrierRestitution = 1;
+	private int ordering = AUTOMATIC_ORDER;
+	private boolean parallel = true;
+
+	// contacts, struct-of-arrays; bodyA is a particle index or -1-barrierIndex, bodyB is always a particle
+	private int numContacts;
+	private int[] bodyA = new int[64], bodyB = new int[64];
+	private double[] normalX = new double[64], normalY = new double[64], penetration = new double[64];
+	private double[] normalMass = new double[64], velocityBias = new double[64];
+	private double[] impulse = new double[64], pseudoImpulse = new double[64];
+	private long[] keys = new long[64];
+	// not touching in the previous update
+	private boolean[] newContact = new boolean[64];
+	// contact point relative to the centres of bodies A and B; zero for circle pairs
+	private double[] armAX = new double[64], armAY = new double[64], armBX = new double[64], armBY = new double[64];
+
+	// per-particle working copies
+	private double[] invMass = new double[64], vx = new double[64], vy = new double[64];
+	private double[] pseudoVx = new double[64], pseudoVy = new double[64];
+	// rotation, for polygons only
+	private double[] invInertia = new double[64], angularVelocity = new double[64], pseudoAngularVelocity = new double[64];
+	private ConvexPolygonBody[] polygons = new ConvexPolygonBody[64]; // null for other particles
+	private int numPolygons;
+	private final ConvexPolygonCollider collider = new ConvexPolygonCollider();
+
+	// broad phase for particle pairs
+	private final SpatialGrid grid;
+	private double[] boxMinX = new double[64], boxMinY = new double[64], boxMaxX = new double[64], boxMaxY = new double[64];
+	private final double[] contact = new double[3];
+	private double[] posX = new double[64], posY = new double[64], radius = new double[64];
+	// particle pairs i < j the grid found near each other, and which of them overlap
+	private int numCandidates;
+	private int[] candidateA = new int[256], candidateB = new int[256], hits = new int[256];
+	private final ParticleKernels kernels = ParticleKernels.get();
+
+	// colouring: the colours used by each particle's contacts so far, as bits, and the
+	// contacts sorted by colour, colour k being order[colourStart[k]] .. order[colourStart[k + 1] - 1]
+	private long[] particleColours = new long[64];
+	private int[] colourOf = new int[64], order = new int[64];
+	private final int[] colourStart = new int[MAX_COLOURS + 2];
+	private int numColours;
+	private final List<SolveChunk> chunks = new ArrayList<SolveChunk>();
+	// time spent solving coloured contacts, and of it the time threads were busy on them
+	private long colouredWallNanos, colouredBusyNanos;
+
+	// impulse cache: open-addressing tables from body-pair key to accumulated impulse,
+	// one filled last update and read now, the other being filled for the next update
+	private ImpulseCache previousCache = new ImpulseCache(), currentCache = new ImpulseCache();
+
+	private long totalContacts, warmStartedContacts;
+
+	public ContactSolver(double gridCellSize) {
+		grid = new SpatialGrid(gridCellSize);
+		for (int i = 0; i < POOL.getParallelism(); i++)
+			chunks.add(new SolveChunk());
+	}
+
+	public void setIterations(int iterations) {
+		if (iterations < 1)
+			throw new IllegalArgumentException("need at least one iteration");
+		this.iterations = iterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public void setPositionCorrection(int positionCorrection) {
+		if (positionCorrection < NO_POSITION_CORRECTION || positionCorrection > SPLIT_IMPULSE)
+			throw new IllegalArgumentException("unknown position correction " + positionCorrection);
+		this.positionCorrection = positionCorrection;
+	}
+
+	public void setWarmStarting(boolean warmStarting) {
+		this.warmStarting = warmStarting;
+	}
+
+	public void setOrdering(int ordering) {
+		if (ordering < AUTOMATIC_ORDER || ordering > COLOURED_ORDER)
+			throw new IllegalArgumentException("unknown contact ordering " + ordering);
+		this.ordering = ordering;
+	}
+
+	public int getOrdering() {
+		return ordering;
+	}
+
+	// with parallel off, coloured contacts are solved on the calling thread, with the same result
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public void setRestitution(double particleRestitution, double barrierRestitution) {
+		this.particleRestitution = particleRestitution;
+		this.barrierRestitution = barrierRestitution;
+	}
+
+	public void solve(List<BasicParticle> particles, List<AnchoredBarrier> barriers) {
+		int n = particles.size();
+		ensureParticleCapacity(n);
+		numPolygons = 0;
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			// the mouse particle is moved by hand, so nothing pushes it
+			invMass[i] = p instanceof ParticleAttachedToMousePointer ? 0 : 1 / p.getMass();
+			vx[i] = p.getVel().x;
+			vy[i] = p.getVel().y;
+			pseudoVx[i] = pseudoVy[i] = 0;
+			// the rotation arrays are left at zero for everything else, so circles pay nothing here
+			if (p instanceof ConvexPolygonBody) {
+				ConvexPolygonBody polygon = (ConvexPolygonBody) p;
+				polygon.updateWorldShape();
+				polygons[i] = polygon;
+				invInertia[i] = polygon.getInverseInertia();
+				angularVelocity[i] = polygon.getAngularVelocity();
+				numPolygons++;
+			}
+		}
+		if (numPolygons > 0)
+			collider.beginUpdate();
+		findContacts(particles, barriers);
+		prepareContacts();
+		numColours = 0;
+		if (ordering == COLOURED_ORDER || (ordering == AUTOMATIC_ORDER && numContacts >= PARALLEL_THRESHOLD)) {
+			colourContacts();
+			for (int it = 0; it < iterations; it++)
+				solveColoured(false);
+			if (positionCorrection == SPLIT_IMPULSE)
+				for (int it = 0; it < iterations; it++)
+					solveColoured(true);
+		} else {
+			for (int it = 0; it < iterations; it++)
+				for (int c = 0; c < numContacts; c++)
+					solveVelocity(c);
+			if (positionCorrection == SPLIT_IMPULSE)
+				for (int it = 0; it < iterations; it++)
+					for (int c = 0; c < numContacts; c++)
+						solvePosition(c);
+		}
+
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			p.getVel().set(vx[i], vy[i]);
+			if (pseudoVx[i] != 0 || pseudoVy[i] != 0)
+				p.getPos().add(pseudoVx[i] * DELTA_T, pseudoVy[i] * DELTA_T);
+			ConvexPolygonBody polygon = polygons[i];
+			if (polygon != null) {
+				polygon.setAngularVelocity(angularVelocity[i]);
+				if (pseudoAngularVelocity[i] != 0)
+					polygon.setAngle(polygon.getAngle() + pseudoAngularVelocity[i] * DELTA_T);
+				polygons[i] = null;
+				invInertia[i] = angularVelocity[i] = pseudoAngularVelocity[i] = 0;
+			}
+		}
+		currentCache.clear(numContacts);
+		for (int c = 0; c < numContacts; c++)
+			currentCache.put(keys[c], impulse[c]);
+		ImpulseCache swap = previousCache;
+		previousCache = currentCache;
+		currentCache = swap;
+	}
+
+	private void findContacts(List<BasicParticle> particles, List<AnchoredBarrier> barriers) {
+		numContacts = 0;
+		int n = particles.size();
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			double r = p.getRadius();
+			posX[i] = p.getPos().x;
+			posY[i] = p.getPos().y;
+			radius[i] = r;
+			boxMinX[i] = posX[i] - r;
+			boxMinY[i] = posY[i] - r;
+			boxMaxX[i] = posX[i] + r;
+			boxMaxY[i] = posY[i] + r;
+		}
+		grid.build(n, boxMinX, boxMinY, boxMaxX, boxMaxY);
+		numCandidates = 0;
+		for (int i = 0; i < n; i++) {
+			int found = grid.query(boxMinX[i], boxMinY[i], boxMaxX[i], boxMaxY[i]);
+			for (int k = 0; k < found; k++) {
+				int j = grid.getResult(k);
+				if (j <= i)
+					continue;
+				if (numCandidates == candidateA.length)
+					growCandidates();
+				candidateA[numCandidates] = i;
+				candidateB[numCandidates++] = j;
+			}
+		}
+		// the circle test for every candidate pair in one kernel pass; for polygons this is
+		// the bounding-circle reject
+		int overlapping = kernels.findOverlaps(candidateA, candidateB, numCandidates, posX, posY, radius, hits);
+		for (int h = 0; h < overlapping; h++) {
+			int i = candidateA[hits[h]], j = candidateB[hits[h]];
+			if (polygons[i] != null || polygons[j] != null) {
+				addPolygonContacts(i, j, particles.get(i), particles.get(j));
+				continue;
+			}
+			double dx = posX[j] - posX[i], dy = posY[j] - posY[i], dist = Math.hypot(dx, dy);
+			if (dist != 0)
+				addContact(i, j, dx / dist, dy / dist, radius[i] + radius[j] - dist);
+		}
+		for (int b = 0; b < barriers.size(); b++) {
+			AnchoredBarrier barrier = barriers.get(b);
+			for (int i = 0; i < n; i++) {
+				BasicParticle p = particles.get(i);
+				if (polygons[i] != null) {
+					int points = collider.collide(barrier, polygons[i]);
+					for (int k = 0; k < points; k++)
+						addContact(-1 - b, i, k);
+				} else if (barrier.findContact(p.getPos(), p.getRadius(), contact)) {
+					addContact(-1 - b, i, contact[0], contact[1], contact[2]);
+				}
+			}
+		}
+	}
+
+	// particles i < j, at least one a polygon, whose bounding circles overlap
+	private void addPolygonContacts(int i, int j, BasicParticle p1, BasicParticle p2) {
+		int points;
+		if (polygons[i] != null && polygons[j] != null) {
+			points = collider.collide(polygons[i], polygons[j], ((long) i << 32) | j);
+		} else if (polygons[i] != null) {
+			points = collider.collide(p2, polygons[i]);
+		} else {
+			// the collider's normals point from the polygon, here body B, so turn them round
+			points = collider.collide(p1, polygons[j]);
+			for (int k = 0; k < points; k++) {
+				collider.normalX[k] = -collider.normalX[k];
+				collider.normalY[k] = -collider.normalY[k];
+			}
+		}
+		for (int k = 0; k < points; k++)
+			addContact(i, j, k);
+	}
+
+	// contact point k of the collider's manifold
+	private void addContact(int a, int b, int k) {
+		addContact(a, b, collider.normalX[k], collider.normalY[k], collider.depth[k]);
+		int c = numContacts - 1;
+		double px = collider.pointX[k], py = collider.pointY[k];
+		// a body's centre is the middle of its box
+		if (a >= 0) {
+			armAX[c] = px - (boxMinX[a] + boxMaxX[a]) / 2;
+			armAY[c] = py - (boxMinY[a] + boxMaxY[a]) / 2;
+		}
+		armBX[c] = px - (boxMinX[b] + boxMaxX[b]) / 2;
+		armBY[c] = py - (boxMinY[b] + boxMaxY[b]) / 2;
+		keys[c] |= (long) (collider.feature[k] & 0x7F) << FEATURE_SHIFT;
+	}
+
+	private void addContact(int a, int b, double nx, double ny, double depth) {
+		if (numContacts == bodyA.length)
+			growContacts();
+		int c = numContacts++;
+		bodyA[c] = a;
+		bodyB[c] = b;
+		normalX[c] = nx;
+		normalY[c] = ny;
+		penetration[c] = depth;
+		keys[c] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+		armAX[c] = armAY[c] = armBX[c] = armBY[c] = 0;
+	}
+
+	private void prepareContacts() {
+		for (int c = 0; c < numContacts; c++) {
+			int a = bodyA[c], b = bodyB[c];
+			double invMassA = a >= 0 ? invMass[a] : 0;
+			double invMassSum = invMassA + invMass[b];
+			// turning of either body about the contact point adds to what the impulse moves
+			double crossB = armBX[c] * normalY[c] - armBY[c] * normalX[c];
+			invMassSum += invInertia[b] * crossB * crossB;
+			if (a >= 0) {
+				double crossA = armAX[c] * normalY[c] - armAY[c] * normalX[c];
+				invMassSum += invInertia[a] * crossA * crossA;
+			}
+			normalMass[c] = invMassSum > 0 ? 1 / invMassSum : 0;
+
+			double relativeNormalVelocity = relativeNormalVelocity(c, vx, vy, angularVelocity);
+			double restitution = a >= 0 ? particleRestitution : barrierRestitution;
+			velocityBias[c] = relativeNormalVelocity < -RESTITUTION_THRESHOLD ? -restitution * relativeNormalVelocity : 0;
+			if (positionCorrection == BAUMGARTE)
+				velocityBias[c] += POSITION_CORRECTION_FACTOR / DELTA_T * Math.max(penetration[c] - LINEAR_SLOP, 0);
+
+			pseudoImpulse[c] = 0;
+			newContact[c] = !previousCache.contains(keys[c]);
+			impulse[c] = warmStarting ? previousCache.get(keys[c]) : 0;
+			totalContacts++;
+			if (impulse[c] != 0) {
+				warmStartedContacts++;
+				applyImpulse(c, impulse[c], vx, vy, angularVelocity);
+			}
+		}
+	}
+
+	// (velocity of B - velocity of A) at the contact point, along the normal; negative while approaching
+	private double relativeNormalVelocity(int c, double[] velX, double[] velY, double[] angVel) {
+		int a = bodyA[c], b = bodyB[c];
+		double rvx = velX[b] - angVel[b] * armBY[c], rvy = velY[b] + angVel[b] * armBX[c];
+		if (a >= 0) {
+			rvx -= velX[a] - angVel[a] * armAY[c];
+			rvy -= velY[a] + angVel[a] * armAX[c];
+		}
+		return rvx * normalX[c] + rvy * normalY[c];
+	}
+
+	private void applyImpulse(int c, double j, double[] velX, double[] velY, double[] angVel) {
+		int a = bodyA[c], b = bodyB[c];
+		double px = j * normalX[c], py = j * normalY[c];
+		velX[b] += px * invMass[b];
+		velY[b] += py * invMass[b];
+		angVel[b] += invInertia[b] * (armBX[c] * py - armBY[c] * px);
+		if (a >= 0) {
+			velX[a] -= px * invMass[a];
+			velY[a] -= py * invMass[a];
+			angVel[a] -= invInertia[a] * (armAX[c] * py - armAY[c] * px);
+		}
+	}
+
+	private void solveVelocity(int c) {
+		double lambda = -normalMass[c] * (relativeNormalVelocity(c, vx, vy, angularVelocity) - velocityBias[c]);
+		// clamp the accumulated impulse, not the increment, so earlier overshoots can be taken back
+		double previous = impulse[c];
+		impulse[c] = Math.max(previous + lambda, 0);
+		applyImpulse(c, impulse[c] - previous, vx, vy, angularVelocity);
+	}
+
+	private void solvePosition(int c) {
+		double target = POSITION_CORRECTION_FACTOR / DELTA_T * Math.max(penetration[c] - LINEAR_SLOP, 0);
+		double lambda = -normalMass[c] * (relativeNormalVelocity(c, pseudoVx, pseudoVy, pseudoAngularVelocity) - target);
+		double previous = pseudoImpulse[c];
+		pseudoImpulse[c] = Math.max(previous + lambda, 0);
+		applyImpulse(c, pseudoImpulse[c] - previous, pseudoVx, pseudoVy, pseudoAngularVelocity);
+	}
+
+	// greedy colouring in contact order; barriers never move, so only particles count
+	private void colourContacts() {
+		Arrays.fill(colourStart, 0);
+		for (int c = 0; c < numContacts; c++) {
+			int a = bodyA[c], b = bodyB[c];
+			long used = particleColours[b] | (a >= 0 ? particleColours[a] : 0);
+			int colour = Long.numberOfTrailingZeros(~used);
+			if (colour < MAX_COLOURS) {
+				particleColours[b] |= 1L << colour;
+				if (a >= 0)
+					particleColours[a] |= 1L << colour;
+			}
+			colourOf[c] = colour;
+			colourStart[colour + 1]++;
+		}
+		for (int k = 0; k <= MAX_COLOURS; k++) {
+			if (colourStart[k + 1] > 0)
+				numColours = k + 1;
+			colourStart[k + 1] += colourStart[k];
+		}
+		// counting sort, keeping contact order within each colour; colourStart[k] ends up at
+		// the start of colour k + 1 and is then moved back
+		for (int c = 0; c < numContacts; c++)
+			order[colourStart[colourOf[c]]++] = c;
+		for (int k = MAX_COLOURS; k > 0; k--)
+			colourStart[k] = colourStart[k - 1];
+		colourStart[0] = 0;
+		for (int c = 0; c < numContacts; c++) {
+			particleColours[bodyB[c]] = 0;
+			if (bodyA[c] >= 0)
+				particleColours[bodyA[c]] = 0;
+		}
+	}
+
+	private void solveColoured(boolean position) {
+		long start = System.nanoTime();
+		for (int colour = 0; colour < numColours; colour++) {
+			int from = colourStart[colour], to = colourStart[colour + 1];
+			// the extra colour may have contacts sharing a particle, so it always goes in order
+			if (!parallel || to - from < MIN_PARALLEL_BATCH || colour == MAX_COLOURS) {
+				long t = System.nanoTime();
+				solveRange(from, to, position);
+				colouredBusyNanos += System.nanoTime() - t;
+			} else {
+				solveInParallel(from, to, position);
+			}
+		}
+		colouredWallNanos += System.nanoTime() - start;
+	}
+
+	private void solveRange(int from, int to, boolean position) {
+		if (position)
+			for (int k = from; k < to; k++)
+				solvePosition(order[k]);
+		else
+			for (int k = from; k < to; k++)
+				solveVelocity(order[k]);
+	}
+
+	private void solveInParallel(int from, int to, boolean position) {
+		int n = chunks.size(), per = (to - from + n - 1) / n;
+		for (int i = 0; i < n; i++) {
+			SolveChunk chunk = chunks.get(i);
+			chunk.from = Math.min(from + i * per, to);
+			chunk.to = Math.min(chunk.from + per, to);
+			chunk.position = position;
+		}
+		try {
+			for (Future<Void> result : POOL.invokeAll(chunks))
+				result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		for (int i = 0; i < n; i++)
+			colouredBusyNanos += chunks.get(i).busyNanos;
+	}
+
+	private class SolveChunk implements Callable<Void> {
+		int from, to;
+		boolean position;
+		long busyNanos;
+
+		@Override
+		public Void call() {
+			long start = System.nanoTime();
+			solveRange(from, to, position);
+			busyNanos = System.nanoTime() - start;
+			return null;
+		}
+	}
+
+	// call after particles have been removed from the particle list; newIndexOf[i] is the new
+	// index of old particle i (for i below oldCount), or -1 if it was removed.  The cached
+	// impulses are re-keyed so that warm starting and new-contact detection carry on.
+	public void remapParticles(int[] newIndexOf, int oldCount) {
+		currentCache.clear(previousCache.keys.length / 2);
+		for (int i = 0; i < previousCache.keys.length; i++) {
+			if (!previousCache.used[i])
+				continue;
+			long key = previousCache.keys[i];
+			// a is a particle or a barrier (negative), b always a particle
+			int a = (int) (key >> 32), b = (int) (key & ~FEATURE_MASK);
+			if (b >= oldCount || a >= oldCount)
+				continue;
+			b = newIndexOf[b];
+			if (b < 0)
+				continue;
+			if (a >= 0) {
+				a = newIndexOf[a];
+				if (a < 0)
+					continue;
+			}
+			currentCache.put(((long) a << 32) | (key & FEATURE_MASK) | b, previousCache.values[i]);
+		}
+		ImpulseCache swap = previousCache;
+		previousCache = currentCache;
+		currentCache = swap;
+	}
+
+	// call after barriers have been removed from the barrier list, likewise; barrier contacts
+	// are keyed by barrier index too
+	public void remapBarriers(int[] newIndexOf, int oldCount) {
+		currentCache.clear(previousCache.keys.length / 2);
+		for (int i = 0; i < previousCache.keys.length; i++) {
+			if (!previousCache.used[i])
+				continue;
+			long key = previousCache.keys[i];
+			int a = (int) (key >> 32);
+			if (a < 0) {
+				int barrier = -1 - a;
+				if (barrier >= oldCount || newIndexOf[barrier] < 0)
+					continue;
+				a = -1 - newIndexOf[barrier];
+			}
+			currentCache.put(((long) a << 32) | (key & 0xFFFFFFFFL), previousCache.values[i]);
+		}
+		ImpulseCache swap = previousCache;
+		previousCache = currentCache;
+		currentCache = swap;
+	}
+
+	public int getNumContacts() {
+		return numContacts;
+	}
+
+	// the particle index of contact c
+	public int getParticle(int c) {
+		return bodyB[c];
+	}
+
+	// the barrier index of contact c, or -1 if it is between two particles
+	public int getBarrier(int c) {
+		return bodyA[c] < 0 ? -1 - bodyA[c] : -1;
+	}
+
+	// the other particle index of a particle-particle contact c, or -1
+	public int getOtherParticle(int c) {
+		return bodyA[c] >= 0 ? bodyA[c] : -1;
+	}
+
+	// true if the pair was not touching in the previous update
+	public boolean isNewContact(int c) {
+		return newContact[c];
+	}
+
+	public double getPenetration(int c) {
+		return penetration[c];
+	}
+
+	public double getImpulse(int c) {
+		return impulse[c];
+	}
+
+	public double getWarmStartFraction() {
+		return totalContacts == 0 ? 0 : (double) warmStartedContacts / totalContacts;
+	}
+
+	// colours used in the last update, 0 if its contacts were solved in order
+	public int getNumColours() {
+		return numColours;
+	}
+
+	// contacts of colour k in the last update
+	public int getColourSize(int k) {
+		return colourStart[k + 1] - colourStart[k];
+	}
+
+	// how busy the pool's threads were while solving coloured contacts, from 0 to 1, since the
+	// start: colours too small to split, and uneven chunks, leave threads idle
+	public double getParallelEfficiency() {
+		return colouredWallNanos == 0 ? 0 : (double) colouredBusyNanos / (colouredWallNanos * (double) POOL.getParallelism());
+	}
+
+	// fraction of polygon pair tests settled by the separating axis remembered from the last update
+	public double getAxisCacheHitFraction() {
+		int tests = collider.getAxisTests();
+		return tests == 0 ? 0 : (double) collider.getAxisCacheHits() / tests;
+	}
+
+	private void ensureParticleCapacity(int n) {
+		if (invMass.length >= n)
+			return;
+		int size = Math.max(n, invMass.length * 2);
+		invMass = new double[size];
+		vx = new double[size];
+		vy = new double[size];
+		pseudoVx = new double[size];
+		pseudoVy = new double[size];
+		invInertia = new double[size];
+		angularVelocity = new double[size];
+		pseudoAngularVelocity = new double[size];
+		polygons = new ConvexPolygonBody[size];
+		particleColours = new long[size];
+		boxMinX = new double[size];
+		boxMinY = new double[size];
+		boxMaxX = new double[size];
+		boxMaxY = new double[size];
+		posX = new double[size];
+		posY = new double[size];
+		radius = new double[size];
+	}
+
+	private void growCandidates() {
+		int size = candidateA.length * 2;
+		candidateA = Arrays.copyOf(candidateA, size);
+		candidateB = Arrays.copyOf(candidateB, size);
+		hits = new int[size];
+	}
+
+	private void growContacts() {
+		int size = bodyA.length * 2;
+		bodyA = Arrays.copyOf(bodyA, size);
+		bodyB = Arrays.copyOf(bodyB, size);
+		normalX = Arrays.copyOf(normalX, size);
+		normalY = Arrays.copyOf(normalY, size);
+		penetration = Arrays.copyOf(penetration, size);
+		normalMass = Arrays.copyOf(normalMass, size);
+		velocityBias = Arrays.copyOf(velocityBias, size);
+		impulse = Arrays.copyOf(impulse, size);
+		pseudoImpulse = Arrays.copyOf(pseudoImpulse, size);
+		keys = Arrays.copyOf(keys, size);
+		newContact = Arrays.copyOf(newContact, size);
+		armAX = Arrays.copyOf(armAX, size);
+		armAY = Arrays.copyOf(armAY, size);
+		armBX = Arrays.copyOf(armBX, size);
+		armBY = Arrays.copyOf(armBY, size);
+		colourOf = new int[size];
+		order = new int[size];
+	}
+
+	// times a dense pile solved in order and colour by colour, and checks the coloured solve
+	// gives the same result on one thread as on the pool
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 4800;
+		int updates = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		double[] sequential = pile(n, updates, SEQUENTIAL_ORDER, true);
+		double[] serial = pile(n, updates, COLOURED_ORDER, false);
+		double[] parallel = pile(n, updates, COLOURED_ORDER, true);
+		System.out.println(Arrays.equals(serial, parallel) ? "coloured solve identical on one thread and on "
+				+ POOL.getParallelism() : "FAILED: coloured solve differs between one thread and the pool");
+	}
+
+	// a hexagonal pile of touching balls with no gravity, returning every final position
+	private static double[] pile(int n, int updates, int ordering, boolean parallel) {
+		List<BasicParticle> particles = new ArrayList<BasicParticle>();
+		int perRow = (int) Math.sqrt(n);
+		for (int i = 0; i < n; i++)
+			particles.add(new BasicParticle((i % perRow + (i / perRow) % 2 * 0.5) * 0.199, i / perRow * 0.1725, 0, 0,
+					0.1, true, java.awt.Color.RED, 1, 0));
+		List<AnchoredBarrier> barriers = new ArrayList<AnchoredBarrier>();
+		ContactSolver solver = new ContactSolver(0.5);
+		solver.setOrdering(ordering);
+		solver.setParallel(parallel);
+		long start = System.nanoTime();
+		for (int u = 0; u < updates; u++)
+			solver.solve(particles, barriers);
+		double millis = (System.nanoTime() - start) / 1e6;
+		StringBuilder sizes = new StringBuilder();
+		for (int k = 0; k < solver.getNumColours(); k++)
+			sizes.append(k == 0 ? "" : " ").append(solver.getColourSize(k));
+		System.out.printf("%-10s %s: %d contacts, %.2f ms/update, %d colours [%s], parallel efficiency %.2f%n",
+				ordering == SEQUENTIAL_ORDER ? "sequential" : "coloured", parallel && ordering != SEQUENTIAL_ORDER ? "pool" : "one thread",
+				solver.getNumContacts(), millis / updates, solver.getNumColours(), sizes, solver.getParallelEfficiency());
+		double[] positions = new double[2 * n];
+		for (int i = 0; i < n; i++) {
+			positions[2 * i] = particles.get(i).getPos().x;
+			positions[2 * i + 1] = particles.get(i).getPos().y;
+		}
+		return positions;
+	}
+
+	private static class ImpulseCache {
+		private long[] keys = new long[128];
+		private double[] values = new double[128];
+		private boolean[] used = new boolean[128];
+
+		void clear(int expected) {
+			int size = keys.length;
+			while (size < expected * 2)
+				size *= 2;
+			if (size != keys.length) {
+				keys = new long[size];
+				values = new double[size];
+				used = new boolean[size];
+			} else {
+				Arrays.fill(used, false);
+			}
+		}
+
+		private int slot(long key) {
+			int h = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+			return h & (keys.length - 1);
+		}
+
+		void put(long key, double value) {
+			int i = slot(key);
+			while (used[i] && keys[i] != key)
+				i = (i + 1) & (keys.length - 1);
+			used[i] = true;
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		boolean contains(long key) {
+			int i = slot(key);
+			while (used[i]) {
+				if (keys[i] == key)
+					return true;
+				i = (i + 1) & (keys.length - 1);
+			}
+			return false;
+		}
+
+		double get(long key) {
+			int i = slot(key);
+			while (used[i]) {
+				if (keys[i] == key)
+					return values[i];
+				i = (i + 1) & (keys.length - 1);
+			}
+			return 0;
+		}
+	}
+}
@@ -15,21 +15,29 @@ public class ControllableSpaceShip extends BasicParticle {
 	private double angle=0; // direction ship is facing.
 	public static final double STEER_RATE = 2 * Math.PI;
 	public static final double MAGNITUDE_OF_ENGINE_THRUST_FORCE = 500000;
+	public static final int EXHAUST_PARTICLES_PER_UPDATE = 2;
+	public static final double EXHAUST_SPEED = 3, EXHAUST_LIFETIME = 0.4;
+	private ParticleEmitter exhaust;
+	// null means the ship is driven by the keyboard
+	private ShipInput input;
 
 	public ControllableSpaceShip(double sx, double sy, double vx, double vy, double radius, boolean improvedEuler,
 			double mass) {
 		super(sx, sy, vx, vy, radius, improvedEuler, Color.CYAN, mass, 0);
 	}
 	
+	// outline in units of SCREEN_RADIUS, nose towards -y (screen up)
+	private static final int[] XP = { -2, 0, 2, 0 };
+	private static final int[] YP = { 2, -2, 2, 0 };
+	private static final int[] XPTHRUST = { -2, 0, 2, 0 };
+	private static final int[] YPTHRUST = { 2, 3, 2, 0 };
+	// furthest any point of the outline gets from the centre, in units of SCREEN_RADIUS
+	public static final double SHAPE_EXTENT = Math.hypot(2, 3);
+
 	@Override
 	public void draw(Graphics2D g) {
 		int x = BasicPhysicsEngine.convertWorldXtoScreenX(getPos().x);
 		int y = BasicPhysicsEngine.convertWorldYtoScreenY(getPos().y);
-		g.setColor(col);
-		final int[] XP = { -2, 0, 2, 0 };
-		final int[] YP = { 2, -2, 2, 0 };
-		final int[] XPTHRUST = { -2, 0, 2, 0 };
-		final int[] YPTHRUST = { 2, 3, 2, 0 };
 		final double SCALE = SCREEN_RADIUS;
 
 		AffineTransform at = g.getTransform();
@@ -37,26 +45,84 @@ public class ControllableSpaceShip extends BasicParticle {
 		double rot = -angle;
 		g.rotate(rot);
 		g.scale(SCALE, SCALE);
-		g.setColor(col);
+		drawShape(g, isThrusting());
+		g.setTransform(at);
+	}
+
+	// draws the ship around the origin of g's current transform; also used by SpriteAtlas
+	static void drawShape(Graphics2D g, boolean thrusting) {
+		g.setColor(Color.CYAN);
 		g.fillPolygon(XP, YP, XP.length);
-		if (BasicKeyListener.isThrustKeyPressed()) {
+		if (thrusting) {
 			g.setColor(Color.red);
 			g.fillPolygon(XPTHRUST, YPTHRUST, XPTHRUST.length);
 		}
-		g.setTransform(at);
 	}
 	
 	@Override
 	public void update() {
-		if (BasicKeyListener.isRotateLeftKeyPressed()) 
+		updateControls();
+		if (isThrusting())
+			applyForceToParticle(thrustForceX(angle), thrustForceY(angle));
+		super.update(); // do usual move due to gravity.
+	}
+
+	// the engine's thrust for a ship at this angle: (0, thrust) rotated by angle.  Shared with
+	// ForceGenerator_Thrust, which applies it in the engine.
+	public static double thrustForceX(double angle) {
+		return -MAGNITUDE_OF_ENGINE_THRUST_FORCE * Math.sin(angle);
+	}
+
+	public static double thrustForceY(double angle) {
+		return MAGNITUDE_OF_ENGINE_THRUST_FORCE * Math.cos(angle);
+	}
+
+	// turns the ship and emits its exhaust; in the engine the thrust itself comes from ForceGenerator_Thrust
+	public void updateControls() {
+		boolean rotateLeft = input == null ? BasicKeyListener.isRotateLeftKeyPressed() : input.rotateLeft;
+		boolean rotateRight = input == null ? BasicKeyListener.isRotateRightKeyPressed() : input.rotateRight;
+		if (rotateLeft) 
 			angle+=STEER_RATE * DELTA_T;
-		if (BasicKeyListener.isRotateRightKeyPressed()) 
+		if (rotateRight) 
 			angle-=STEER_RATE * DELTA_T;
-		if (BasicKeyListener.isThrustKeyPressed()) {
-			Vector2D force = new Vector2D(0,MAGNITUDE_OF_ENGINE_THRUST_FORCE);
-			force.rotate(angle);
-			applyForceToParticle(force);
+		if (isThrusting()) {
+			if (exhaust != null) {
+				// exhaust leaves the back of the ship, opposite to the thrust direction
+				double exhaustAngle = angle - Math.PI / 2;
+				double backX = getPos().x + getRadius() * Math.cos(exhaustAngle);
+				double backY = getPos().y + getRadius() * Math.sin(exhaustAngle);
+				exhaust.emitSpray(EXHAUST_PARTICLES_PER_UPDATE, backX, backY, getVel().x, getVel().y, exhaustAngle, 0.5,
+						EXHAUST_SPEED, EXHAUST_LIFETIME);
+			}
 		}
-		super.update(); // do usual move due to gravity.
+	}
+	
+	public boolean isThrusting() {
+		return input == null ? BasicKeyListener.isThrustKeyPressed() : input.thrust;
+	}
+	
+	public ShipInput getInput() {
+		return input;
+	}
+	
+	public void setInput(ShipInput input) {
+		this.input = input;
+	}
+	
+	public double getAngle() {
+		return angle;
+	}
+	
+	public void setAngle(double angle) {
+		this.angle = angle;
+	}
+	
+	public void setExhaustEmitter(ParticleEmitter exhaust) {
+		this.exhaust = exhaust;
+	}
+	
+	// breaks the ship up into debris particles flying out in all directions
+	public void explode(ParticleEmitter debris) {
+		debris.emitSpray(200, getPos().x, getPos().y, getVel().x, getVel().y, 0, 2 * Math.PI, 4, 2);
 	}
 }
@@ -0,0 +1,180 @@
+package pbgLecture4lab;
+
+import static pbgLecture4lab.BasicPhysicsEngine.DELTA_T;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+public class ConvexPolygonBody extends BasicParticle {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// A rigid convex polygon with an orientation and an angular velocity.  It moves under
+	// the engine's forces like any other particle, and its radius is that of the smallest
+	// circle about its centre holding every vertex, so the engine's circle tests (spatial
+	// grid, bounding-circle reject) work on it unchanged.  ContactSolver collides it as a
+	// polygon once those tests pass.
+	//
+	// Vertices are given relative to the centre of mass, counter-clockwise.  The moment of
+	// inertia is that of a uniform plate of that shape.
+
+	// vertices and outward edge normals in the body's own frame; edge i runs from vertex i to i+1
+	private final double[] localX, localY, localNormalX, localNormalY;
+	private final double inverseInertia;
+	private boolean fixedRotation;
+
+	private double angle, angularVelocity, torque;
+
+	// vertices and edge normals in the world, brought up to date by updateWorldShape
+	public final double[] worldX, worldY, normalX, normalY;
+
+	public ConvexPolygonBody(double sx, double sy, double vx, double vy, double[] vertexX, double[] vertexY,
+			boolean improvedEuler, Color col, double mass, double rollingFriction) {
+		super(sx, sy, vx, vy, boundingRadius(vertexX, vertexY), improvedEuler, col, mass, rollingFriction);
+		int n = vertexX.length;
+		if (n < 3 || vertexY.length != n)
+			throw new IllegalArgumentException("a polygon needs at least three vertices");
+		localX = vertexX.clone();
+		localY = vertexY.clone();
+		localNormalX = new double[n];
+		localNormalY = new double[n];
+		double area = 0, second = 0;
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			double ex = localX[j] - localX[i], ey = localY[j] - localY[i], len = Math.hypot(ex, ey);
+			if (len == 0)
+				throw new IllegalArgumentException("repeated vertex " + i);
+			localNormalX[i] = ey / len;
+			localNormalY[i] = -ex / len;
+			// every other vertex must be on the inside of this edge
+			for (int k = (i + 2) % n; k != i; k = (k + 1) % n)
+				if (ex * (localY[k] - localY[i]) - ey * (localX[k] - localX[i]) <= 0)
+					throw new IllegalArgumentException("vertices must make a convex polygon, counter-clockwise");
+			double cross = localX[i] * localY[j] - localX[j] * localY[i];
+			area += cross / 2;
+			second += cross * (localX[i] * localX[i] + localX[i] * localX[j] + localX[j] * localX[j]
+					+ localY[i] * localY[i] + localY[i] * localY[j] + localY[j] * localY[j]) / 12;
+		}
+		// second moment of area about the origin, scaled to the mass
+		inverseInertia = 1 / (mass * second / area);
+		worldX = new double[n];
+		worldY = new double[n];
+		normalX = new double[n];
+		normalY = new double[n];
+		updateWorldShape();
+	}
+
+	// a regular polygon with the given number of sides and distance from centre to each vertex
+	public static ConvexPolygonBody createRegular(double sx, double sy, double vx, double vy, int sides, double radius,
+			boolean improvedEuler, Color col, double mass, double rollingFriction) {
+		double[] xs = new double[sides], ys = new double[sides];
+		for (int i = 0; i < sides; i++) {
+			xs[i] = radius * Math.cos(2 * Math.PI * i / sides);
+			ys[i] = radius * Math.sin(2 * Math.PI * i / sides);
+		}
+		return new ConvexPolygonBody(sx, sy, vx, vy, xs, ys, improvedEuler, col, mass, rollingFriction);
+	}
+
+	public static ConvexPolygonBody createBox(double sx, double sy, double vx, double vy, double width, double height,
+			boolean improvedEuler, Color col, double mass, double rollingFriction) {
+		double w = width / 2, h = height / 2;
+		return new ConvexPolygonBody(sx, sy, vx, vy, new double[] { -w, w, w, -w }, new double[] { -h, -h, h, h },
+				improvedEuler, col, mass, rollingFriction);
+	}
+
+	private static double boundingRadius(double[] xs, double[] ys) {
+		double r = 0;
+		for (int i = 0; i < xs.length; i++)
+			r = Math.max(r, Math.hypot(xs[i], ys[i]));
+		return r;
+	}
+
+	// turns as well as moves
+	@Override
+	public boolean hasCustomIntegration() {
+		return true;
+	}
+
+	@Override
+	public void integrate() {
+		super.integrate();
+		if (!fixedRotation)
+			angularVelocity += torque * inverseInertia * DELTA_T;
+		angle += angularVelocity * DELTA_T;
+	}
+
+	@Override
+	public void resetTotalForce() {
+		super.resetTotalForce();
+		torque = 0;
+	}
+
+	public void applyTorque(double t) {
+		torque += t;
+	}
+
+	// a force applied at a point in the world, which turns the body as well as pushing it
+	public void applyForceAtPoint(double fx, double fy, double px, double py) {
+		applyForceToParticle(fx, fy);
+		torque += (px - getPos().x) * fy - (py - getPos().y) * fx;
+	}
+
+	// works out where the vertices and edge normals are, from the current position and angle
+	public void updateWorldShape() {
+		double c = Math.cos(angle), s = Math.sin(angle), x = getPos().x, y = getPos().y;
+		for (int i = 0; i < localX.length; i++) {
+			worldX[i] = x + c * localX[i] - s * localY[i];
+			worldY[i] = y + s * localX[i] + c * localY[i];
+			normalX[i] = c * localNormalX[i] - s * localNormalY[i];
+			normalY[i] = s * localNormalX[i] + c * localNormalY[i];
+		}
+	}
+
+	@Override
+	public void draw(Graphics2D g) {
+		// worked out here rather than with updateWorldShape, which belongs to the engine's thread
+		double c = Math.cos(angle), s = Math.sin(angle), x = getPos().x, y = getPos().y;
+		int n = localX.length;
+		int[] xs = new int[n], ys = new int[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = BasicPhysicsEngine.convertWorldXtoScreenX(x + c * localX[i] - s * localY[i]);
+			ys[i] = BasicPhysicsEngine.convertWorldYtoScreenY(y + s * localX[i] + c * localY[i]);
+		}
+		g.setColor(col);
+		g.fillPolygon(xs, ys, n);
+	}
+
+	public int getNumVertices() {
+		return localX.length;
+	}
+
+	public double getAngle() {
+		return angle;
+	}
+
+	public void setAngle(double angle) {
+		this.angle = angle;
+	}
+
+	public double getAngularVelocity() {
+		return angularVelocity;
+	}
+
+	public void setAngularVelocity(double angularVelocity) {
+		this.angularVelocity = angularVelocity;
+	}
+
+	// zero when the rotation is fixed, so contacts never turn the body
+	public double getInverseInertia() {
+		return fixedRotation ? 0 : inverseInertia;
+	}
+
+	public boolean isFixedRotation() {
+		return fixedRotation;
+	}
+
+	// a body with fixed rotation still turns at its set angular velocity, but nothing changes it
+	public void setFixedRotation(boolean fixedRotation) {
+		this.fixedRotation = fixedRotation;
+	}
+}
@@ -0,0 +1,365 @@
+package pbgLecture4lab;
+
+import java.util.Arrays;
+
+public class ConvexPolygonCollider {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Narrow phase for ConvexPolygonBodies, used by ContactSolver after the bounding circles
+	// of a pair have been found to overlap.  Each call fills in a contact manifold: a few
+	// contact points, each with a normal pointing from the first body towards the second, a
+	// penetration depth, and a feature number that stays the same while the same corner is
+	// touching, for warm starting.
+	//
+	// Polygon pairs are tested by the separating axis theorem: the pair is apart if some edge
+	// normal of either polygon has the other polygon entirely on its outside.  The axis that
+	// separated a pair is remembered for the next update, when it is tried first; pairs
+	// whose bounding circles overlap without touching are usually still parted by the same
+	// axis, so most updates need one edge test instead of all of them.  Touching pairs are
+	// clipped Box2D-style: the incident edge of one polygon is clipped to the sides of the
+	// reference edge of the other, leaving up to two points.
+	//
+	// World vertices are read from updateWorldShape, which the caller runs first.
+
+	// a polygon edge has to separate this much more than the other polygon's best edge to be
+	// preferred as the reference edge, so the choice doesn't flicker between near-equal faces
+	private static final double REFERENCE_TOLERANCE = 0.98, REFERENCE_MARGIN = 0.001;
+
+	// the manifold from the last call
+	public int numPoints;
+	public double[] pointX = new double[4], pointY = new double[4], normalX = new double[4], normalY = new double[4];
+	public double[] depth = new double[4];
+	public int[] feature = new int[4];
+
+	// separating axes found last update and this one, keyed by body pair
+	private AxisCache previousAxes = new AxisCache(), currentAxes = new AxisCache();
+	private int axisTests, axisCacheHits;
+
+	// clipping work space
+	private final double[] clipX = new double[2], clipY = new double[2];
+	private final int[] clipFeature = new int[2];
+	private final Vector2D probe = new Vector2D();
+	private final double[] contact = new double[3], box = new double[4];
+	private int bestEdge;
+
+	// call once per update, before the first collide
+	public void beginUpdate() {
+		AxisCache swap = previousAxes;
+		previousAxes = currentAxes;
+		currentAxes = swap;
+		currentAxes.clear(previousAxes.size);
+	}
+
+	// a and b are different polygons; pairKey names the pair for the axis cache
+	public int collide(ConvexPolygonBody a, ConvexPolygonBody b, long pairKey) {
+		numPoints = 0;
+		axisTests++;
+		int cached = previousAxes.get(pairKey);
+		if (cached >= 0) {
+			boolean ofB = (cached & 0x10000) != 0;
+			int edge = cached & 0xFFFF;
+			ConvexPolygonBody owner = ofB ? b : a;
+			if (edge < owner.getNumVertices() && edgeSeparation(owner, edge, ofB ? a : b) > 0) {
+				axisCacheHits++;
+				currentAxes.put(pairKey, cached);
+				return 0;
+			}
+		}
+		double separationA = maxSeparation(a, b);
+		int edgeA = bestEdge;
+		if (separationA > 0) {
+			currentAxes.put(pairKey, edgeA);
+			return 0;
+		}
+		double separationB = maxSeparation(b, a);
+		int edgeB = bestEdge;
+		if (separationB > 0) {
+			currentAxes.put(pairKey, 0x10000 | edgeB);
+			return 0;
+		}
+
+		ConvexPolygonBody reference, incident;
+		int referenceEdge;
+		boolean flip;
+		if (separationB > REFERENCE_TOLERANCE * separationA + REFERENCE_MARGIN) {
+			reference = b;
+			incident = a;
+			referenceEdge = edgeB;
+			flip = true;
+		} else {
+			reference = a;
+			incident = b;
+			referenceEdge = edgeA;
+			flip = false;
+		}
+		double nx = reference.normalX[referenceEdge], ny = reference.normalY[referenceEdge];
+
+		// the incident edge is the one facing the reference edge most directly
+		int incidentEdge = 0;
+		double mostOpposed = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < incident.getNumVertices(); i++) {
+			double d = nx * incident.normalX[i] + ny * incident.normalY[i];
+			if (d < mostOpposed) {
+				mostOpposed = d;
+				incidentEdge = i;
+			}
+		}
+		int i1 = incidentEdge, i2 = (incidentEdge + 1) % incident.getNumVertices();
+		clipX[0] = incident.worldX[i1];
+		clipY[0] = incident.worldY[i1];
+		clipFeature[0] = i1;
+		clipX[1] = incident.worldX[i2];
+		clipY[1] = incident.worldY[i2];
+		clipFeature[1] = i2;
+
+		// clip to the sides of the reference edge
+		int r1 = referenceEdge, r2 = (referenceEdge + 1) % reference.getNumVertices();
+		double tx = reference.worldX[r2] - reference.worldX[r1], ty = reference.worldY[r2] - reference.worldY[r1];
+		double len = Math.hypot(tx, ty);
+		tx /= len;
+		ty /= len;
+		if (!clip(-tx, -ty, -(tx * reference.worldX[r1] + ty * reference.worldY[r1]))
+				|| !clip(tx, ty, tx * reference.worldX[r2] + ty * reference.worldY[r2]))
+			return 0;
+
+		// keep the points below the reference edge
+		double faceOffset = nx * reference.worldX[r1] + ny * reference.worldY[r1];
+		for (int k = 0; k < 2; k++) {
+			double separation = nx * clipX[k] + ny * clipY[k] - faceOffset;
+			if (separation > 0)
+				continue;
+			addPoint(clipX[k], clipY[k], flip ? -nx : nx, flip ? -ny : ny, -separation, (flip ? 64 : 0) | (clipFeature[k] & 63));
+		}
+		return numPoints;
+	}
+
+	// a circle (any particle that isn't a polygon) against a polygon; the normal points from
+	// the polygon towards the circle
+	public int collide(BasicParticle circle, ConvexPolygonBody polygon) {
+		numPoints = 0;
+		double cx = circle.getPos().x, cy = circle.getPos().y, r = circle.getRadius();
+		int n = polygon.getNumVertices();
+		double separation = Double.NEGATIVE_INFINITY;
+		int edge = 0;
+		for (int i = 0; i < n; i++) {
+			double s = polygon.normalX[i] * (cx - polygon.worldX[i]) + polygon.normalY[i] * (cy - polygon.worldY[i]);
+			if (s > r)
+				return 0;
+			if (s > separation) {
+				separation = s;
+				edge = i;
+			}
+		}
+		int v1 = edge, v2 = (edge + 1) % n;
+		double x1 = polygon.worldX[v1], y1 = polygon.worldY[v1], x2 = polygon.worldX[v2], y2 = polygon.worldY[v2];
+		if (separation > 0) {
+			// outside the polygon: the nearest feature may be a corner rather than the edge
+			int corner = -1;
+			if ((cx - x1) * (x2 - x1) + (cy - y1) * (y2 - y1) <= 0)
+				corner = v1;
+			else if ((cx - x2) * (x1 - x2) + (cy - y2) * (y1 - y2) <= 0)
+				corner = v2;
+			if (corner >= 0) {
+				double dx = cx - polygon.worldX[corner], dy = cy - polygon.worldY[corner], d = Math.hypot(dx, dy);
+				if (d > r)
+					return 0;
+				if (d > 0) {
+					addPoint(polygon.worldX[corner], polygon.worldY[corner], dx / d, dy / d, r - d, corner);
+					return 1;
+				}
+			}
+		}
+		double nx = polygon.normalX[edge], ny = polygon.normalY[edge];
+		addPoint(cx - nx * separation, cy - ny * separation, nx, ny, r - separation, edge);
+		return 1;
+	}
+
+	// a barrier against a polygon; the normal points away from the barrier.  Each polygon
+	// corner inside the barrier is a contact point, and so is each end or corner of the
+	// barrier inside the polygon, so a polygon resting its face on a barrier's end still stops.
+	// Polygon corners are features 0 to 63 and barrier corners 64 up, so the two never share
+	// a number in ContactSolver's seven-bit feature field, however many vertices a polyline has.
+	public int collide(AnchoredBarrier barrier, ConvexPolygonBody polygon) {
+		numPoints = 0;
+		// bounding-circle reject, which is all most barriers need; the barrier's box catches
+		// corners reaching past the end of a line, the circle test polygons deep in a thick one
+		double x = polygon.getPos().x, y = polygon.getPos().y, r = polygon.getRadius();
+		barrier.getBoundingBox(box);
+		if ((x + r < box[0] || x - r > box[2] || y + r < box[1] || y - r > box[3])
+				&& !barrier.findContact(polygon.getPos(), r, contact))
+			return 0;
+		int n = polygon.getNumVertices();
+		for (int i = 0; i < n; i++) {
+			probe.set(polygon.worldX[i], polygon.worldY[i]);
+			if (barrier.findContact(probe, 0, contact))
+				addPoint(probe.x, probe.y, contact[0], contact[1], contact[2], i & 63);
+		}
+		if (barrier instanceof AnchoredBarrier_StraightLine) {
+			AnchoredBarrier_StraightLine line = (AnchoredBarrier_StraightLine) barrier;
+			barrierCorner(polygon, line.getStartPos().x, line.getStartPos().y, 64);
+			barrierCorner(polygon, line.getEndPos().x, line.getEndPos().y, 65);
+		} else if (barrier instanceof AnchoredBarrier_Point) {
+			Vector2D p = ((AnchoredBarrier_Point) barrier).barrierPointPosition;
+			barrierCorner(polygon, p.x, p.y, 64);
+		} else if (barrier instanceof AnchoredBarrier_Polyline) {
+			AnchoredBarrier_Polyline polyline = (AnchoredBarrier_Polyline) barrier;
+			for (int v = 0; v < polyline.getNumVertices(); v++) {
+				double px = polyline.getVertexX(v), py = polyline.getVertexY(v);
+				if (Math.abs(px - x) > r || Math.abs(py - y) > r)
+					continue;
+				// two vertices share a number only if they are 64 apart along the polyline and
+				// both inside this one polygon
+				barrierCorner(polygon, px, py, 64 | (v & 63));
+			}
+		}
+		return numPoints;
+	}
+
+	// adds a contact if the barrier corner (px, py) is inside the polygon, pushing the polygon
+	// out through its nearest edge
+	private void barrierCorner(ConvexPolygonBody polygon, double px, double py, int featureNumber) {
+		double separation = Double.NEGATIVE_INFINITY;
+		int edge = 0;
+		for (int i = 0; i < polygon.getNumVertices(); i++) {
+			double s = polygon.normalX[i] * (px - polygon.worldX[i]) + polygon.normalY[i] * (py - polygon.worldY[i]);
+			if (s > 0)
+				return;
+			if (s > separation) {
+				separation = s;
+				edge = i;
+			}
+		}
+		addPoint(px, py, -polygon.normalX[edge], -polygon.normalY[edge], -separation, featureNumber);
+	}
+
+	private void addPoint(double x, double y, double nx, double ny, double penetration, int featureNumber) {
+		if (numPoints == pointX.length) {
+			int size = numPoints * 2;
+			pointX = Arrays.copyOf(pointX, size);
+			pointY = Arrays.copyOf(pointY, size);
+			normalX = Arrays.copyOf(normalX, size);
+			normalY = Arrays.copyOf(normalY, size);
+			depth = Arrays.copyOf(depth, size);
+			feature = Arrays.copyOf(feature, size);
+		}
+		pointX[numPoints] = x;
+		pointY[numPoints] = y;
+		normalX[numPoints] = nx;
+		normalY[numPoints] = ny;
+		depth[numPoints] = penetration;
+		feature[numPoints] = featureNumber;
+		numPoints++;
+	}
+
+	// keeps the part of the clip segment with n.x <= offset; false if none is left
+	private boolean clip(double nx, double ny, double offset) {
+		double d0 = nx * clipX[0] + ny * clipY[0] - offset, d1 = nx * clipX[1] + ny * clipY[1] - offset;
+		if (d0 > 0 && d1 > 0)
+			return false;
+		if (d0 > 0 || d1 > 0) {
+			int out = d0 > 0 ? 0 : 1;
+			double t = d0 / (d0 - d1);
+			clipX[out] = clipX[0] + t * (clipX[1] - clipX[0]);
+			clipY[out] = clipY[0] + t * (clipY[1] - clipY[0]);
+		}
+		return true;
+	}
+
+	// largest separation along any edge normal of a, with the edge left in bestEdge
+	private double maxSeparation(ConvexPolygonBody a, ConvexPolygonBody b) {
+		double best = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < a.getNumVertices(); i++) {
+			double s = edgeSeparation(a, i, b);
+			if (s > best) {
+				best = s;
+				bestEdge = i;
+				if (s > 0)
+					break;
+			}
+		}
+		return best;
+	}
+
+	// how far b is outside edge i of a; negative if b crosses that edge's line
+	private static double edgeSeparation(ConvexPolygonBody a, int i, ConvexPolygonBody b) {
+		double nx = a.normalX[i], ny = a.normalY[i];
+		double offset = nx * a.worldX[i] + ny * a.worldY[i];
+		double least = Double.POSITIVE_INFINITY;
+		for (int j = 0; j < b.getNumVertices(); j++)
+			least = Math.min(least, nx * b.worldX[j] + ny * b.worldY[j] - offset);
+		return least;
+	}
+
+	// polygon pair tests so far, and those settled by the remembered axis alone
+	public int getAxisTests() {
+		return axisTests;
+	}
+
+	public int getAxisCacheHits() {
+		return axisCacheHits;
+	}
+
+	private static class AxisCache {
+		private long[] keys = new long[64];
+		private int[] values = new int[64];
+		private boolean[] used = new boolean[64];
+		private int size;
+
+		void clear(int expected) {
+			int capacity = keys.length;
+			while (capacity < expected * 2)
+				capacity *= 2;
+			if (capacity != keys.length) {
+				keys = new long[capacity];
+				values = new int[capacity];
+				used = new boolean[capacity];
+			} else {
+				Arrays.fill(used, false);
+			}
+			size = 0;
+		}
+
+		private int slot(long key) {
+			int h = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+			return h & (keys.length - 1);
+		}
+
+		void put(long key, int value) {
+			if (2 * (size + 1) > keys.length)
+				grow();
+			int i = slot(key);
+			while (used[i] && keys[i] != key)
+				i = (i + 1) & (keys.length - 1);
+			if (!used[i])
+				size++;
+			used[i] = true;
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		// the value, or -1
+		int get(long key) {
+			int i = slot(key);
+			while (used[i]) {
+				if (keys[i] == key)
+					return values[i];
+				i = (i + 1) & (keys.length - 1);
+			}
+			return -1;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			boolean[] oldUsed = used;
+			keys = new long[oldKeys.length * 2];
+			values = new int[keys.length];
+			used = new boolean[keys.length];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++)
+				if (oldUsed[i])
+					put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
@@ -29,8 +29,19 @@ public class ElasticConnector {
 	}
 	
 	public double calculateTension() {
+		Vector2D p12=Vector2D.minus(particle2.getPos(), particle1.getPos()); // goes from p1 to p2
+		double dist=p12.mag();
+		p12.normalise(); // make it a unit vector.
+		return calculateTension(p12, dist);
+	}
+	
+	private double calculateTension(Vector2D unitVector12, double dist) {
+		return calculateTension(dist, rateOfChangeOfExtension(unitVector12));
+	}
+	
+	// tension for a given length and rate of change of that length, as used by ForceGenerator_Springs
+	public double calculateTension(double dist, double rateOfChangeOfExtension) {
 		// implementation of truncated hooke's law
-		double dist=Vector2D.minus(particle1.getPos(), particle2.getPos()).mag();
 		if (dist<naturalLength && canGoSlack) return 0;
 		
 		double extensionRatio = (dist-naturalLength)/naturalLength;
@@ -40,30 +51,65 @@ public class ElasticConnector {
 		if (truncationLimit!=null && extensionRatio<-truncationLimit) 
 			extensionRatio=-truncationLimit;
 		double tensionDueToHookesLaw = extensionRatio*springConstant;
-		double tensionDueToMotionDamping=motionDampingConstant*rateOfChangeOfExtension();
+		double tensionDueToMotionDamping=motionDampingConstant*rateOfChangeOfExtension;
 		return tensionDueToHookesLaw+tensionDueToMotionDamping;
 	}
 	
 	public double rateOfChangeOfExtension() {
 		Vector2D v12=Vector2D.minus(particle2.getPos(), particle1.getPos()); // goes from p1 to p2
 		v12.normalise(); // make it a unit vector.
-		Vector2D relativeVeloicty=Vector2D.minus(particle2.getVel(), particle1.getVel()); // goes from p1 to p2
-		return relativeVeloicty.scalarProduct(v12);// if this is positive then it means the 
-		// connector is getting longer
+		return rateOfChangeOfExtension(v12);
+	}
+	
+	private double rateOfChangeOfExtension(Vector2D unitVector12) {
+		Vector2D v1=particle1.getVel(), v2=particle2.getVel();
+		// relative velocity goes from p1 to p2; if this is positive then it means the connector is getting longer
+		return (v2.x-v1.x)*unitVector12.x+(v2.y-v1.y)*unitVector12.y;
 	}
 	
 	public void applyTensionForceToBothParticles() {
-		double tension=calculateTension();
+		// direction is computed once here and shared with the tension calculation
 		Vector2D p12=Vector2D.minus(particle2.getPos(), particle1.getPos()); // goes from p1 to p2
+		double dist=p12.mag();
 		p12.normalise(); // make it a unit vector.
-		Vector2D forceOnP1=new Vector2D(p12);
-		forceOnP1.mult(tension);
-		particle1.applyForceToParticle(forceOnP1);
-
-		Vector2D forceOnP2=new Vector2D(p12);
-		forceOnP2.mult(-tension);// tension on second particle acts in opposite direction (an example of Newton's 3rd Law)
-		particle2.applyForceToParticle(forceOnP2);
+		double tension=calculateTension(p12, dist);
+		particle1.applyForceToParticle(p12.x*tension, p12.y*tension);
+		// tension on second particle acts in opposite direction (an example of Newton's 3rd Law)
+		particle2.applyForceToParticle(-p12.x*tension, -p12.y*tension);
+	}
+	
+	public BasicParticle getParticle1() {
+		return particle1;
+	}
+	
+	public BasicParticle getParticle2() {
+		return particle2;
 	}
+	
+	public double getNaturalLength() {
+		return naturalLength;
+	}
+	
+	public double getSpringConstant() {
+		return springConstant;
+	}
+	
+	public double getMotionDampingConstant() {
+		return motionDampingConstant;
+	}
+	
+	public boolean canGoSlack() {
+		return canGoSlack;
+	}
+	
+	public Double getHookesLawTruncation() {
+		return hookesLawTruncation;
+	}
+	
+	public Color getColor() {
+		return col;
+	}
+	
 	public void draw(Graphics2D g) {
 		int x1 = BasicPhysicsEngine.convertWorldXtoScreenX(particle1.getPos().x);
 		int y1 = BasicPhysicsEngine.convertWorldYtoScreenY(particle1.getPos().y);
@@ -0,0 +1,456 @@
+package pbgLecture4lab;
+
+import static pbgLecture4lab.BasicPhysicsEngine.DELTA_T;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ElasticConnectorNetwork {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Stores many elastic connectors (ropes, chains, cloth) as index arrays into the
+	// engine's particle list, instead of one ElasticConnector object per spring.
+	// Each connector's direction is computed once per tick.  Large networks have their
+	// forces accumulated in parallel into per-thread force buffers which are summed at the end.
+	// Optionally the spring forces are solved implicitly (backward Euler, solved by
+	// preconditioned conjugate gradient) so that stiff springs stay stable at larger timesteps.
+
+	// below this many connectors the forces are accumulated on the calling thread
+	public static final int PARALLEL_THRESHOLD = 4096;
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final List<BasicParticle> particles;
+	private final Color col;
+
+	private int numConnectors;
+	private int[] index1 = new int[16], index2 = new int[16];
+	private double[] naturalLength = new double[16], springConstant = new double[16], dampingConstant = new double[16];
+	private double[] truncation = new double[16]; // Double.NaN means no truncation
+	private boolean[] canGoSlack = new boolean[16];
+
+	// values computed once per connector per tick
+	private double[] unitX = new double[16], unitY = new double[16], length = new double[16];
+	// derivative of the hooke's law tension with respect to length, zero when slack or truncated
+	private double[] stiffness = new double[16];
+	private boolean[] active = new boolean[16];
+
+	// particle state gathered from the particle list at the start of each tick
+	private int numParticles;
+	private double[] posX = new double[0], posY = new double[0], velX = new double[0], velY = new double[0], mass = new double[0];
+	private double[] force = new double[0]; // interleaved fx,fy per particle
+
+	private final List<ForceChunk> chunks = new ArrayList<ForceChunk>();
+
+	private boolean implicit = false;
+	private int maxSolverIterations = 30;
+	private double solverTolerance = 1e-8;
+	private int lastSolverIterations;
+	// conjugate gradient work arrays, interleaved x,y per particle
+	private double[] rhs = new double[0], deltaV = new double[0], residual = new double[0], precond = new double[0],
+			search = new double[0], product = new double[0], z = new double[0];
+
+	public ElasticConnectorNetwork(List<BasicParticle> particles, Color col) {
+		this.particles = particles;
+		this.col = col;
+		int threads = POOL.getParallelism();
+		for (int i = 0; i < threads; i++)
+			chunks.add(new ForceChunk());
+	}
+
+	public int addConnector(int particleIndex1, int particleIndex2, double naturalLength, double springConstant,
+			double motionDampingConstant, boolean canGoSlack, Double hookesLawTruncation) {
+		if (particleIndex1 == particleIndex2 || particleIndex1 < 0 || particleIndex2 < 0)
+			throw new IllegalArgumentException("invalid particle indices " + particleIndex1 + "," + particleIndex2);
+		if (numConnectors == index1.length)
+			growConnectorArrays(numConnectors * 2);
+		int c = numConnectors++;
+		index1[c] = particleIndex1;
+		index2[c] = particleIndex2;
+		this.naturalLength[c] = naturalLength;
+		this.springConstant[c] = springConstant;
+		this.dampingConstant[c] = motionDampingConstant;
+		this.canGoSlack[c] = canGoSlack;
+		this.truncation[c] = hookesLawTruncation == null ? Double.NaN : hookesLawTruncation;
+		return c;
+	}
+
+	public int addConnector(ElasticConnector ec) {
+		return addConnector(particles.indexOf(ec.getParticle1()), particles.indexOf(ec.getParticle2()), ec.getNaturalLength(),
+				ec.getSpringConstant(), ec.getMotionDampingConstant(), ec.canGoSlack(), ec.getHookesLawTruncation());
+	}
+
+	public int getNumConnectors() {
+		return numConnectors;
+	}
+
+	public int getParticleIndex1(int connector) {
+		return index1[connector];
+	}
+
+	public int getParticleIndex2(int connector) {
+		return index2[connector];
+	}
+
+	public double getNaturalLength(int connector) {
+		return naturalLength[connector];
+	}
+
+	public double getSpringConstant(int connector) {
+		return springConstant[connector];
+	}
+
+	public double getMotionDampingConstant(int connector) {
+		return dampingConstant[connector];
+	}
+
+	public boolean canGoSlack(int connector) {
+		return canGoSlack[connector];
+	}
+
+	public Double getHookesLawTruncation(int connector) {
+		double t = truncation[connector];
+		return t == t ? Double.valueOf(t) : null;
+	}
+
+	public void clear() {
+		numConnectors = 0;
+	}
+
+	// call after particles have been removed from the particle list; newIndexOf[i] is the new
+	// index of old particle i (for i below oldCount), or -1 if it was removed.  Connectors to
+	// removed particles are dropped and the rest keep their order, compacted in place.
+	// Returns the number dropped.
+	public int remapParticles(int[] newIndexOf, int oldCount) {
+		int kept = 0;
+		for (int c = 0; c < numConnectors; c++) {
+			if (index1[c] >= oldCount || index2[c] >= oldCount)
+				continue;
+			int a = newIndexOf[index1[c]], b = newIndexOf[index2[c]];
+			if (a < 0 || b < 0)
+				continue;
+			index1[kept] = a;
+			index2[kept] = b;
+			naturalLength[kept] = naturalLength[c];
+			springConstant[kept] = springConstant[c];
+			dampingConstant[kept] = dampingConstant[c];
+			truncation[kept] = truncation[c];
+			canGoSlack[kept] = canGoSlack[c];
+			kept++;
+		}
+		int dropped = numConnectors - kept;
+		numConnectors = kept;
+		return dropped;
+	}
+
+	public void setImplicit(boolean implicit) {
+		this.implicit = implicit;
+	}
+
+	public boolean isImplicit() {
+		return implicit;
+	}
+
+	public void setSolverLimits(int maxIterations, double tolerance) {
+		this.maxSolverIterations = maxIterations;
+		this.solverTolerance = tolerance;
+	}
+
+	public int getLastSolverIterations() {
+		return lastSolverIterations;
+	}
+
+	public void applyTensionForces() {
+		if (numConnectors == 0)
+			return;
+		gatherParticleState();
+		if (numConnectors < PARALLEL_THRESHOLD) {
+			Arrays.fill(force, 0, 2 * numParticles, 0);
+			accumulateForces(0, numConnectors, force);
+		} else {
+			accumulateForcesInParallel();
+		}
+		if (implicit)
+			solveImplicitVelocityChange(DELTA_T);
+		for (int i = 0; i < numParticles; i++) {
+			double fx = force[2 * i], fy = force[2 * i + 1];
+			if (fx != 0 || fy != 0)
+				particles.get(i).applyForceToParticle(fx, fy);
+		}
+	}
+
+	private void gatherParticleState() {
+		numParticles = particles.size();
+		if (posX.length < numParticles)
+			growParticleArrays(Math.max(numParticles, posX.length * 2));
+		for (int i = 0; i < numParticles; i++) {
+			BasicParticle p = particles.get(i);
+			Vector2D pos = p.getPos(), vel = p.getVel();
+			posX[i] = pos.x;
+			posY[i] = pos.y;
+			velX[i] = vel.x;
+			velY[i] = vel.y;
+			mass[i] = p.getMass();
+		}
+	}
+
+	private void accumulateForces(int from, int to, double[] f) {
+		for (int c = from; c < to; c++) {
+			int a = index1[c], b = index2[c];
+			double dx = posX[b] - posX[a], dy = posY[b] - posY[a];
+			double dist = Math.sqrt(dx * dx + dy * dy);
+			length[c] = dist;
+			double L = naturalLength[c];
+			if ((dist < L && canGoSlack[c]) || dist == 0) {
+				active[c] = false;
+				continue;
+			}
+			active[c] = true;
+			double ux = dx / dist, uy = dy / dist;
+			unitX[c] = ux;
+			unitY[c] = uy;
+			// implementation of truncated hooke's law, as in ElasticConnector
+			double extensionRatio = (dist - L) / L;
+			double limit = truncation[c];
+			double k = springConstant[c] / L;
+			if (limit == limit && extensionRatio > limit) {
+				extensionRatio = limit;
+				k = 0;
+			} else if (limit == limit && extensionRatio < -limit) {
+				extensionRatio = -limit;
+				k = 0;
+			}
+			stiffness[c] = k;
+			double rateOfChangeOfExtension = (velX[b] - velX[a]) * ux + (velY[b] - velY[a]) * uy;
+			double tension = extensionRatio * springConstant[c] + dampingConstant[c] * rateOfChangeOfExtension;
+			double fx = ux * tension, fy = uy * tension;
+			f[2 * a] += fx;
+			f[2 * a + 1] += fy;
+			f[2 * b] -= fx;
+			f[2 * b + 1] -= fy;
+		}
+	}
+
+	private void accumulateForcesInParallel() {
+		int n = chunks.size();
+		int per = (numConnectors + n - 1) / n;
+		for (int i = 0; i < n; i++) {
+			ForceChunk chunk = chunks.get(i);
+			chunk.from = Math.min(i * per, numConnectors);
+			chunk.to = Math.min(chunk.from + per, numConnectors);
+		}
+		try {
+			for (Future<Void> result : POOL.invokeAll(chunks))
+				result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		// reduce the per-thread buffers
+		int len = 2 * numParticles;
+		double[] first = chunks.get(0).buffer;
+		System.arraycopy(first, 0, force, 0, len);
+		for (int i = 1; i < n; i++) {
+			double[] buf = chunks.get(i).buffer;
+			for (int j = 0; j < len; j++)
+				force[j] += buf[j];
+		}
+	}
+
+	private class ForceChunk implements Callable<Void> {
+		int from, to;
+		double[] buffer = new double[0];
+
+		@Override
+		public Void call() {
+			int len = 2 * numParticles;
+			if (buffer.length < len)
+				buffer = new double[force.length];
+			else
+				Arrays.fill(buffer, 0, len, 0);
+			accumulateForces(from, to, buffer);
+			return null;
+		}
+	}
+
+	// Backward Euler for the spring forces only:
+	//   (M - h dF/dv - h^2 dF/dx) deltaV = h (F + h dF/dx v)
+	// The resulting velocity change is handed back as the equivalent force M deltaV / h,
+	// so the particles' own integrators stay unchanged.
+	private void solveImplicitVelocityChange(double h) {
+		int len = 2 * numParticles;
+		for (int i = 0; i < numParticles; i++) {
+			rhs[2 * i] = h * force[2 * i];
+			rhs[2 * i + 1] = h * force[2 * i + 1];
+			precond[2 * i] = mass[i];
+			precond[2 * i + 1] = mass[i];
+		}
+		double h2 = h * h;
+		for (int c = 0; c < numConnectors; c++) {
+			if (!active[c])
+				continue;
+			int a = index1[c], b = index2[c];
+			double dvx = velX[b] - velX[a], dvy = velY[b] - velY[a];
+			double kxx = stiffnessXX(c), kxy = stiffnessXY(c), kyy = stiffnessYY(c);
+			double tx = h2 * (kxx * dvx + kxy * dvy), ty = h2 * (kxy * dvx + kyy * dvy);
+			rhs[2 * a] += tx;
+			rhs[2 * a + 1] += ty;
+			rhs[2 * b] -= tx;
+			rhs[2 * b + 1] -= ty;
+			double d = h * dampingConstant[c];
+			double sxx = h2 * kxx + d * unitX[c] * unitX[c], syy = h2 * kyy + d * unitY[c] * unitY[c];
+			precond[2 * a] += sxx;
+			precond[2 * b] += sxx;
+			precond[2 * a + 1] += syy;
+			precond[2 * b + 1] += syy;
+		}
+		// preconditioned conjugate gradient, starting from deltaV=0
+		Arrays.fill(deltaV, 0, len, 0);
+		System.arraycopy(rhs, 0, residual, 0, len);
+		double rz = 0, rhsNorm = 0;
+		for (int j = 0; j < len; j++) {
+			z[j] = residual[j] / precond[j];
+			search[j] = z[j];
+			rz += residual[j] * z[j];
+			rhsNorm += rhs[j] * rhs[j];
+		}
+		int iter = 0;
+		double tolerance = solverTolerance * solverTolerance * rhsNorm;
+		while (iter < maxSolverIterations && rhsNorm > 0) {
+			multiplySystemMatrix(search, product, h);
+			double pAp = 0;
+			for (int j = 0; j < len; j++)
+				pAp += search[j] * product[j];
+			if (pAp <= 0)
+				break;
+			double alpha = rz / pAp;
+			double rr = 0, rzNew = 0;
+			for (int j = 0; j < len; j++) {
+				deltaV[j] += alpha * search[j];
+				residual[j] -= alpha * product[j];
+				rr += residual[j] * residual[j];
+				z[j] = residual[j] / precond[j];
+				rzNew += residual[j] * z[j];
+			}
+			iter++;
+			if (rr <= tolerance)
+				break;
+			double beta = rzNew / rz;
+			rz = rzNew;
+			for (int j = 0; j < len; j++)
+				search[j] = z[j] + beta * search[j];
+		}
+		lastSolverIterations = iter;
+		for (int i = 0; i < numParticles; i++) {
+			force[2 * i] = mass[i] * deltaV[2 * i] / h;
+			force[2 * i + 1] = mass[i] * deltaV[2 * i + 1] / h;
+		}
+	}
+
+	private void multiplySystemMatrix(double[] p, double[] result, double h) {
+		double h2 = h * h;
+		for (int i = 0; i < numParticles; i++) {
+			result[2 * i] = mass[i] * p[2 * i];
+			result[2 * i + 1] = mass[i] * p[2 * i + 1];
+		}
+		for (int c = 0; c < numConnectors; c++) {
+			if (!active[c])
+				continue;
+			int a = index1[c], b = index2[c];
+			double dx = p[2 * b] - p[2 * a], dy = p[2 * b + 1] - p[2 * a + 1];
+			double ux = unitX[c], uy = unitY[c];
+			double damp = h * dampingConstant[c] * (ux * dx + uy * dy);
+			double sx = h2 * (stiffnessXX(c) * dx + stiffnessXY(c) * dy) + damp * ux;
+			double sy = h2 * (stiffnessXY(c) * dx + stiffnessYY(c) * dy) + damp * uy;
+			result[2 * a] -= sx;
+			result[2 * a + 1] -= sy;
+			result[2 * b] += sx;
+			result[2 * b + 1] += sy;
+		}
+	}
+
+	// Jacobian of the spring force on particle 1 with respect to the position of particle 2:
+	//   k (u u^T + max(0, 1 - L/l) (I - u u^T))
+	// the transverse term is clamped at zero so the system matrix stays positive definite
+	private double transverse(int c) {
+		return Math.max(0, 1 - naturalLength[c] / length[c]);
+	}
+
+	private double stiffnessXX(int c) {
+		double ux = unitX[c], t = transverse(c);
+		return stiffness[c] * (ux * ux + t * (1 - ux * ux));
+	}
+
+	private double stiffnessXY(int c) {
+		double uxy = unitX[c] * unitY[c];
+		return stiffness[c] * (uxy - transverse(c) * uxy);
+	}
+
+	private double stiffnessYY(int c) {
+		double uy = unitY[c], t = transverse(c);
+		return stiffness[c] * (uy * uy + t * (1 - uy * uy));
+	}
+
+	public void draw(Graphics2D g) {
+		draw(g, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	// draws the connectors that cross the given world rectangle and returns how many were drawn
+	public int draw(Graphics2D g, double minX, double minY, double maxX, double maxY) {
+		g.setColor(col);
+		int n = particles.size();
+		int drawn = 0;
+		for (int c = 0; c < numConnectors; c++) {
+			if (index1[c] >= n || index2[c] >= n)
+				continue;
+			Vector2D p1 = particles.get(index1[c]).getPos(), p2 = particles.get(index2[c]).getPos();
+			if (Math.max(p1.x, p2.x) < minX || Math.min(p1.x, p2.x) > maxX || Math.max(p1.y, p2.y) < minY
+					|| Math.min(p1.y, p2.y) > maxY)
+				continue;
+			g.drawLine(BasicPhysicsEngine.convertWorldXtoScreenX(p1.x), BasicPhysicsEngine.convertWorldYtoScreenY(p1.y),
+					BasicPhysicsEngine.convertWorldXtoScreenX(p2.x), BasicPhysicsEngine.convertWorldYtoScreenY(p2.y));
+			drawn++;
+		}
+		return drawn;
+	}
+
+	private void growConnectorArrays(int capacity) {
+		index1 = Arrays.copyOf(index1, capacity);
+		index2 = Arrays.copyOf(index2, capacity);
+		naturalLength = Arrays.copyOf(naturalLength, capacity);
+		springConstant = Arrays.copyOf(springConstant, capacity);
+		dampingConstant = Arrays.copyOf(dampingConstant, capacity);
+		truncation = Arrays.copyOf(truncation, capacity);
+		canGoSlack = Arrays.copyOf(canGoSlack, capacity);
+		unitX = Arrays.copyOf(unitX, capacity);
+		unitY = Arrays.copyOf(unitY, capacity);
+		length = Arrays.copyOf(length, capacity);
+		stiffness = Arrays.copyOf(stiffness, capacity);
+		active = Arrays.copyOf(active, capacity);
+	}
+
+	private void growParticleArrays(int capacity) {
+		posX = new double[capacity];
+		posY = new double[capacity];
+		velX = new double[capacity];
+		velY = new double[capacity];
+		mass = new double[capacity];
+		force = new double[2 * capacity];
+		rhs = new double[2 * capacity];
+		deltaV = new double[2 * capacity];
+		residual = new double[2 * capacity];
+		precond = new double[2 * capacity];
+		search = new double[2 * capacity];
+		product = new double[2 * capacity];
+		z = new double[2 * capacity];
+	}
+}
@@ -0,0 +1,596 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class EventDrivenSimulation {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Exact simulation of ball-only scenes such as the SNOOKER_TABLE layout.  Instead of
+	// stepping every particle by DELTA_T and looking for overlaps, it works out the exact time
+	// at which each ball next hits another ball, a barrier or the edge of its cell, keeps those
+	// times in a priority queue, and jumps from one to the next.  Between events nothing is
+	// computed at all; each ball's position is kept as where it was at its last event plus
+	// its velocity times the time since.
+	//
+	// An event records how many collisions its balls had been in when it was predicted.  A
+	// collision changes a ball's velocity, so any event whose counts no longer match is stale
+	// and is thrown away when it comes off the queue, rather than searched for and removed.
+	//
+	// The world is divided into cells at least a ball's diameter across, and a ball only
+	// looks for collisions with balls in its own and the eight surrounding cells, and with the
+	// barriers passing near its cell.  Crossing into a new cell is itself an event, at which
+	// the ball looks at its new neighbours.
+	//
+	// Balls fly in straight lines: the scene is taken as seen from above, so gravity, rolling
+	// friction and any other forces are ignored.  Barriers are taken as the front (normal)
+	// side of each straight line or polyline segment, with the line ends and polyline corners
+	// as points, and arcs; barriers of other kinds have no exact collision times and are
+	// refused.  Call reset() after changing particles' positions or velocities from outside.
+
+	public static final int BALL = 0, SEGMENT = 1, POINT = 2, ARC = 3, CELL = 4;
+	// the grid never has more cells than this
+	public static final int MAX_CELLS = 1 << 16;
+
+	private final List<BasicParticle> particles;
+	private final List<AnchoredBarrier> barriers;
+	private double particleRestitution = 0.9, barrierRestitution = 1;
+
+	private double time;
+	// balls, at ballTime[i] each
+	private int n;
+	private double[] x = new double[0], y = new double[0], vx = new double[0], vy = new double[0];
+	private double[] radius = new double[0], mass = new double[0], ballTime = new double[0];
+	// collisions each ball has been in, for spotting stale events
+	private int[] count = new int[0];
+
+	private final List<Feature> features = new ArrayList<Feature>();
+
+	private double cellSize, originX, originY;
+	private int cols, rows;
+	private int[] cellOf = new int[0], slotInCell = new int[0];
+	private int[][] cellBalls;
+	private int[] cellBallCount;
+	private int[][] cellFeatures;
+
+	private final PriorityQueue<Event> queue = new PriorityQueue<Event>();
+	private long sequence;
+	private long eventsProcessed, eventsStale, predictions;
+
+	public EventDrivenSimulation(List<BasicParticle> particles, List<AnchoredBarrier> barriers) {
+		this.particles = particles;
+		this.barriers = barriers;
+		reset();
+	}
+
+	public void setRestitution(double particleRestitution, double barrierRestitution) {
+		this.particleRestitution = particleRestitution;
+		this.barrierRestitution = barrierRestitution;
+		reset();
+	}
+
+	// reloads the balls and barriers and predicts every event again
+	public void reset() {
+		n = particles.size();
+		if (x.length < n) {
+			x = new double[n];
+			y = new double[n];
+			vx = new double[n];
+			vy = new double[n];
+			radius = new double[n];
+			mass = new double[n];
+			ballTime = new double[n];
+			count = new int[n];
+			cellOf = new int[n];
+			slotInCell = new int[n];
+		}
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			x[i] = p.getPos().x;
+			y[i] = p.getPos().y;
+			vx[i] = p.getVel().x;
+			vy[i] = p.getVel().y;
+			radius[i] = p.getRadius();
+			mass[i] = p.getMass();
+			ballTime[i] = time;
+			count[i] = 0;
+		}
+		buildFeatures();
+		buildCells();
+		queue.clear();
+		for (int i = 0; i < n; i++)
+			predict(i);
+	}
+
+	// runs the simulation dt seconds on, then writes the balls' positions and velocities back
+	public void advance(double dt) {
+		if (particles.size() != n)
+			reset();
+		double target = time + dt;
+		while (!queue.isEmpty() && queue.peek().time <= target) {
+			Event e = queue.poll();
+			if (count[e.a] != e.countA || (e.type == BALL && count[e.b] != e.countB)) {
+				eventsStale++;
+				continue;
+			}
+			time = e.time;
+			process(e);
+			eventsProcessed++;
+		}
+		time = target;
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			double t = time - ballTime[i];
+			p.getPos().set(x[i] + vx[i] * t, y[i] + vy[i] * t);
+			p.getVel().set(vx[i], vy[i]);
+		}
+	}
+
+	private void process(Event e) {
+		int i = e.a;
+		if (e.type == CELL) {
+			removeFromCell(i);
+			addToCell(i, e.b);
+			predict(i);
+			return;
+		}
+		moveTo(i, time);
+		if (e.type == BALL) {
+			int j = e.b;
+			moveTo(j, time);
+			double dx = x[j] - x[i], dy = y[j] - y[i], dist = Math.hypot(dx, dy);
+			double nx = dx / dist, ny = dy / dist;
+			double approach = (vx[j] - vx[i]) * nx + (vy[j] - vy[i]) * ny;
+			if (approach < 0) {
+				double impulse = mass[i] * mass[j] * (1 + particleRestitution) * -approach / (mass[i] + mass[j]);
+				vx[i] -= impulse / mass[i] * nx;
+				vy[i] -= impulse / mass[i] * ny;
+				vx[j] += impulse / mass[j] * nx;
+				vy[j] += impulse / mass[j] * ny;
+			}
+			count[i]++;
+			count[j]++;
+			predict(i);
+			predict(j);
+			return;
+		}
+		Feature f = features.get(e.b);
+		double nx, ny;
+		if (e.type == SEGMENT) {
+			nx = f.nx;
+			ny = f.ny;
+		} else {
+			// points and arcs push along the line from their centre
+			nx = x[i] - f.x;
+			ny = y[i] - f.y;
+			double len = Math.hypot(nx, ny);
+			nx /= len;
+			ny /= len;
+			if (e.type == ARC && f.inwards) {
+				nx = -nx;
+				ny = -ny;
+			}
+		}
+		double vn = vx[i] * nx + vy[i] * ny;
+		if (vn < 0) {
+			vx[i] -= (1 + barrierRestitution) * vn * nx;
+			vy[i] -= (1 + barrierRestitution) * vn * ny;
+		}
+		count[i]++;
+		predict(i);
+	}
+
+	private void moveTo(int i, double t) {
+		x[i] += vx[i] * (t - ballTime[i]);
+		y[i] += vy[i] * (t - ballTime[i]);
+		ballTime[i] = t;
+	}
+
+	// queues ball i's next collisions with its neighbours and barriers, and its next cell crossing
+	private void predict(int i) {
+		double px = x[i] + vx[i] * (time - ballTime[i]), py = y[i] + vy[i] * (time - ballTime[i]);
+		int cell = cellOf[i], col = cell % cols, row = cell / cols;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++)
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+				int other = r * cols + c;
+				for (int k = 0; k < cellBallCount[other]; k++) {
+					int j = cellBalls[other][k];
+					if (j != i)
+						predictBall(i, j, px, py);
+				}
+			}
+		int[] near = cellFeatures[cell];
+		for (int k = 0; k < near.length; k++)
+			predictFeature(i, near[k], px, py);
+		predictCrossing(i, px, py);
+	}
+
+	private void predictBall(int i, int j, double px, double py) {
+		predictions++;
+		double qx = x[j] + vx[j] * (time - ballTime[j]), qy = y[j] + vy[j] * (time - ballTime[j]);
+		double dt = timeToReach(qx - px, qy - py, vx[j] - vx[i], vy[j] - vy[i], radius[i] + radius[j]);
+		if (dt >= 0)
+			schedule(time + dt, BALL, i, j);
+	}
+
+	// time until two points with this separation and relative velocity are distance apart,
+	// coming together; 0 if they already overlap and are closing, -1 if never
+	private static double timeToReach(double dx, double dy, double dvx, double dvy, double distance) {
+		double dvdr = dx * dvx + dy * dvy;
+		if (dvdr >= 0)
+			return -1;
+		double dvdv = dvx * dvx + dvy * dvy;
+		double drdr = dx * dx + dy * dy;
+		double d = dvdr * dvdr - dvdv * (drdr - distance * distance);
+		if (d < 0)
+			return -1;
+		return Math.max(-(dvdr + Math.sqrt(d)) / dvdv, 0);
+	}
+
+	private void predictFeature(int i, int featureIndex, double px, double py) {
+		predictions++;
+		Feature f = features.get(featureIndex);
+		double r = radius[i], dt;
+		if (f.type == SEGMENT) {
+			double ahead = (px - f.x) * f.nx + (py - f.y) * f.ny;
+			double vn = vx[i] * f.nx + vy[i] * f.ny;
+			// only the front of a segment is solid
+			if (vn >= 0 || ahead < 0)
+				return;
+			dt = Math.max(ahead - r, 0) / -vn;
+			double along = (px + vx[i] * dt - f.x) * f.tx + (py + vy[i] * dt - f.y) * f.ty;
+			if (along < 0 || along > f.length)
+				return;
+		} else if (f.type == POINT) {
+			dt = timeToReach(f.x - px, f.y - py, -vx[i], -vy[i], r);
+			if (dt < 0)
+				return;
+		} else {
+			double dx = px - f.x, dy = py - f.y, b = dx * vx[i] + dy * vy[i], vv = vx[i] * vx[i] + vy[i] * vy[i];
+			double dd = dx * dx + dy * dy;
+			if (vv == 0)
+				return;
+			if (f.inwards) {
+				// inside the circle, hitting it on the way out
+				double target = f.radius - r;
+				if (dd > f.radius * f.radius || target <= 0 || b <= 0)
+					return;
+				double disc = b * b - vv * (dd - target * target);
+				dt = disc < 0 ? 0 : Math.max((-b + Math.sqrt(disc)) / vv, 0);
+			} else {
+				dt = dd < f.radius * f.radius ? -1 : timeToReach(-dx, -dy, -vx[i], -vy[i], f.radius + r);
+				if (dt < 0)
+					return;
+			}
+			double angle = Math.toDegrees(Math.atan2(dy + vy[i] * dt, dx + vx[i] * dt));
+			if (!f.containsAngle(angle))
+				return;
+		}
+		schedule(time + dt, f.type, i, featureIndex);
+	}
+
+	private void predictCrossing(int i, double px, double py) {
+		int cell = cellOf[i], col = cell % cols, row = cell / cols;
+		double dt = Double.POSITIVE_INFINITY;
+		int next = -1;
+		// the outer cells reach out forever, so there is no crossing out of the grid
+		if (vx[i] > 0 && col < cols - 1) {
+			dt = (originX + (col + 1) * cellSize - px) / vx[i];
+			next = cell + 1;
+		} else if (vx[i] < 0 && col > 0) {
+			dt = (originX + col * cellSize - px) / vx[i];
+			next = cell - 1;
+		}
+		if (vy[i] > 0 && row < rows - 1) {
+			double t = (originY + (row + 1) * cellSize - py) / vy[i];
+			if (t < dt) {
+				dt = t;
+				next = cell + cols;
+			}
+		} else if (vy[i] < 0 && row > 0) {
+			double t = (originY + row * cellSize - py) / vy[i];
+			if (t < dt) {
+				dt = t;
+				next = cell - cols;
+			}
+		}
+		if (next >= 0)
+			schedule(time + Math.max(dt, 0), CELL, i, next);
+	}
+
+	private void schedule(double t, int type, int a, int b) {
+		Event e = new Event();
+		e.time = t;
+		e.sequence = sequence++;
+		e.type = type;
+		e.a = a;
+		e.b = b;
+		e.countA = count[a];
+		e.countB = type == BALL ? count[b] : 0;
+		queue.add(e);
+	}
+
+	private void buildFeatures() {
+		features.clear();
+		for (int b = 0; b < barriers.size(); b++) {
+			AnchoredBarrier barrier = barriers.get(b);
+			if (barrier instanceof AnchoredBarrier_StraightLine) {
+				AnchoredBarrier_StraightLine line = (AnchoredBarrier_StraightLine) barrier;
+				Vector2D s = line.getStartPos(), e = line.getEndPos();
+				addSegment(s.x, s.y, e.x, e.y);
+				addPoint(s.x, s.y);
+				addPoint(e.x, e.y);
+			} else if (barrier instanceof AnchoredBarrier_Point) {
+				Vector2D p = ((AnchoredBarrier_Point) barrier).barrierPointPosition;
+				addPoint(p.x, p.y);
+			} else if (barrier instanceof AnchoredBarrier_Curve) {
+				AnchoredBarrier_Curve curve = (AnchoredBarrier_Curve) barrier;
+				Feature f = new Feature();
+				f.type = ARC;
+				f.x = curve.getCentre().x;
+				f.y = curve.getCentre().y;
+				f.radius = curve.getRadiusOfBarrier();
+				f.startAngle = curve.getStartAngle();
+				f.deltaAngle = curve.getDeltaAngle();
+				f.inwards = curve.isNormalPointingInwards();
+				features.add(f);
+			} else if (barrier instanceof AnchoredBarrier_Polyline) {
+				AnchoredBarrier_Polyline polyline = (AnchoredBarrier_Polyline) barrier;
+				int v = polyline.getNumVertices();
+				for (int s = 0; s < polyline.getNumSegments(); s++)
+					addSegment(polyline.getVertexX(s), polyline.getVertexY(s), polyline.getVertexX((s + 1) % v),
+							polyline.getVertexY((s + 1) % v));
+				for (int k = 0; k < v; k++)
+					if (polyline.isCapVertex(k))
+						addPoint(polyline.getVertexX(k), polyline.getVertexY(k));
+			} else {
+				throw new IllegalArgumentException("no exact collision times for " + barrier.getClass().getSimpleName());
+			}
+		}
+	}
+
+	private void addSegment(double x1, double y1, double x2, double y2) {
+		Feature f = new Feature();
+		f.type = SEGMENT;
+		f.x = x1;
+		f.y = y1;
+		f.length = Math.hypot(x2 - x1, y2 - y1);
+		f.tx = (x2 - x1) / f.length;
+		f.ty = (y2 - y1) / f.length;
+		// the normal is the tangent turned anticlockwise, as AnchoredBarrier_StraightLine has it
+		f.nx = -f.ty;
+		f.ny = f.tx;
+		f.x2 = x2;
+		f.y2 = y2;
+		features.add(f);
+	}
+
+	private void addPoint(double px, double py) {
+		Feature f = new Feature();
+		f.type = POINT;
+		f.x = f.x2 = px;
+		f.y = f.y2 = py;
+		features.add(f);
+	}
+
+	private void buildCells() {
+		double maxRadius = 0, loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+		double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			maxRadius = Math.max(maxRadius, radius[i]);
+			loX = Math.min(loX, x[i]);
+			loY = Math.min(loY, y[i]);
+			hiX = Math.max(hiX, x[i]);
+			hiY = Math.max(hiY, y[i]);
+		}
+		double[] box = new double[4];
+		for (int k = 0; k < features.size(); k++) {
+			features.get(k).getBox(box);
+			loX = Math.min(loX, box[0]);
+			loY = Math.min(loY, box[1]);
+			hiX = Math.max(hiX, box[2]);
+			hiY = Math.max(hiY, box[3]);
+		}
+		if (loX > hiX) {
+			loX = loY = 0;
+			hiX = hiY = 1;
+		}
+		double width = Math.max(hiX - loX, 1e-9), height = Math.max(hiY - loY, 1e-9);
+		// about one ball per cell, but never narrower than a ball
+		cellSize = Math.max(2 * maxRadius, Math.sqrt(width * height / Math.max(n, 1)));
+		while (Math.ceil(width / cellSize) * Math.ceil(height / cellSize) > MAX_CELLS)
+			cellSize *= 1.5;
+		cols = (int) Math.max(Math.ceil(width / cellSize), 1);
+		rows = (int) Math.max(Math.ceil(height / cellSize), 1);
+		originX = loX;
+		originY = loY;
+
+		int numCells = cols * rows;
+		cellBalls = new int[numCells][];
+		cellBallCount = new int[numCells];
+		for (int i = 0; i < n; i++)
+			addToCell(i, rowOf(y[i]) * cols + colOf(x[i]));
+
+		// each barrier feature goes in every cell where a ball's centre could be when touching it
+		int[] numNear = new int[numCells];
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass == 1) {
+				cellFeatures = new int[numCells][];
+				for (int c = 0; c < numCells; c++)
+					cellFeatures[c] = new int[numNear[c]];
+				Arrays.fill(numNear, 0);
+			}
+			for (int k = 0; k < features.size(); k++) {
+				features.get(k).getBox(box);
+				for (int r = rowOf(box[1] - maxRadius); r <= rowOf(box[3] + maxRadius); r++)
+					for (int c = colOf(box[0] - maxRadius); c <= colOf(box[2] + maxRadius); c++) {
+						int cell = r * cols + c;
+						if (pass == 1)
+							cellFeatures[cell][numNear[cell]] = k;
+						numNear[cell]++;
+					}
+			}
+		}
+	}
+
+	private int colOf(double px) {
+		return Math.min(Math.max((int) Math.floor((px - originX) / cellSize), 0), cols - 1);
+	}
+
+	private int rowOf(double py) {
+		return Math.min(Math.max((int) Math.floor((py - originY) / cellSize), 0), rows - 1);
+	}
+
+	private void addToCell(int i, int cell) {
+		if (cellBalls[cell] == null)
+			cellBalls[cell] = new int[4];
+		else if (cellBallCount[cell] == cellBalls[cell].length)
+			cellBalls[cell] = Arrays.copyOf(cellBalls[cell], cellBallCount[cell] * 2);
+		slotInCell[i] = cellBallCount[cell];
+		cellBalls[cell][cellBallCount[cell]++] = i;
+		cellOf[i] = cell;
+	}
+
+	private void removeFromCell(int i) {
+		int cell = cellOf[i], last = cellBalls[cell][--cellBallCount[cell]];
+		cellBalls[cell][slotInCell[i]] = last;
+		slotInCell[last] = slotInCell[i];
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	// events acted on, stale events thrown away, and collision times worked out, since the start
+	public long getEventsProcessed() {
+		return eventsProcessed;
+	}
+
+	public long getEventsStale() {
+		return eventsStale;
+	}
+
+	public long getPredictions() {
+		return predictions;
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	private static class Feature {
+		int type;
+		// start and end of a segment, a point (both the same), or an arc's centre
+		double x, y, x2, y2;
+		double tx, ty, nx, ny, length;
+		double radius, startAngle, deltaAngle;
+		boolean inwards;
+
+		void getBox(double[] box) {
+			if (type == ARC) {
+				box[0] = x - radius;
+				box[1] = y - radius;
+				box[2] = x + radius;
+				box[3] = y + radius;
+			} else {
+				box[0] = Math.min(x, x2);
+				box[1] = Math.min(y, y2);
+				box[2] = Math.max(x, x2);
+				box[3] = Math.max(y, y2);
+			}
+		}
+
+		// the same test as AnchoredBarrier_Curve.isCircleCollidingBarrier, angles in degrees
+		boolean containsAngle(double angle) {
+			double ang = (angle + 360) % 360;
+			if (deltaAngle < 0)
+				return (ang >= startAngle + deltaAngle && ang <= startAngle)
+						|| (ang >= startAngle + deltaAngle + 360 && ang <= startAngle + 360);
+			return (ang <= startAngle + deltaAngle && ang >= startAngle)
+					|| (ang <= startAngle + deltaAngle + 360 && ang >= startAngle + 360);
+		}
+	}
+
+	private static class Event implements Comparable<Event> {
+		double time;
+		// ties go in the order the events were predicted, so runs are repeatable
+		long sequence;
+		int type, a, b, countA, countB;
+
+		@Override
+		public int compareTo(Event other) {
+			if (time != other.time)
+				return time < other.time ? -1 : 1;
+			return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+		}
+	}
+
+	// compares a box of balls run by update() and by this class, without gravity or friction
+	public static void main(String[] args) {
+		int balls = args.length > 0 ? Integer.parseInt(args[0]) : 22;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 20;
+		BasicPhysicsEngine stepped = createBox(balls);
+		BasicPhysicsEngine exact = createBox(balls);
+		EventDrivenSimulation events = new EventDrivenSimulation(exact.particles, exact.barriers);
+		events.setRestitution(1, 1);
+		stepped.contactSolver.setRestitution(1, 1);
+
+		int updates = (int) Math.round(seconds / BasicPhysicsEngine.DELTA_T);
+		long start = System.nanoTime();
+		for (int u = 0; u < updates; u++)
+			stepped.update();
+		double steppedMillis = (System.nanoTime() - start) / 1e6;
+		int frames = updates / BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH;
+		start = System.nanoTime();
+		for (int f = 0; f < frames; f++)
+			events.advance(BasicPhysicsEngine.DELTA_T * BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH);
+		double exactMillis = (System.nanoTime() - start) / 1e6;
+
+		System.out.printf("%d balls, %.0f simulated seconds%n", balls, seconds);
+		System.out.printf("update(): %d updates, %.1f ms%n", updates, steppedMillis);
+		System.out.printf("events:   %d events (%d stale), %d predictions, %.1f ms, %.0fx faster%n",
+				events.getEventsProcessed(), events.getEventsStale(), events.getPredictions(), exactMillis,
+				steppedMillis / exactMillis);
+		double energyBefore = 0, energyAfter = 0;
+		for (BasicParticle p : createBox(balls).particles)
+			energyBefore += 0.5 * p.getMass() * p.getVel().mag() * p.getVel().mag();
+		for (BasicParticle p : exact.particles)
+			energyAfter += 0.5 * p.getMass() * p.getVel().mag() * p.getVel().mag();
+		System.out.printf("kinetic energy with elastic events: %.6f -> %.6f%n", energyBefore, energyAfter);
+	}
+
+	private static BasicPhysicsEngine createBox(int balls) {
+		BasicPhysicsEngine game = new BasicPhysicsEngine(BasicPhysicsEngine.LayoutMode.RECTANGLE);
+		game.forces.getGenerators().clear();
+		game.particles.clear();
+		double[] box = new double[4];
+		double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+		for (AnchoredBarrier b : game.barriers) {
+			b.getBoundingBox(box);
+			loX = Math.min(loX, box[0]);
+			loY = Math.min(loY, box[1]);
+			hiX = Math.max(hiX, box[2]);
+			hiY = Math.max(hiY, box[3]);
+		}
+		Random random = new Random(1);
+		double r = 0.1, margin = 0.3 + r;
+		while (game.particles.size() < balls) {
+			double px = loX + margin + random.nextDouble() * (hiX - loX - 2 * margin);
+			double py = loY + margin + random.nextDouble() * (hiY - loY - 2 * margin);
+			boolean clear = true;
+			for (BasicParticle p : game.particles)
+				clear &= Math.hypot(p.getPos().x - px, p.getPos().y - py) > 2.5 * r;
+			if (!clear)
+				continue;
+			double angle = random.nextDouble() * 2 * Math.PI, speed = 1 + random.nextDouble() * 3;
+			game.particles.add(new BasicParticle(px, py, speed * Math.cos(angle), speed * Math.sin(angle), r, false,
+					Color.RED, 1, 0));
+		}
+		return game;
+	}
+}
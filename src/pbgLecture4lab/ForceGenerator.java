@@ -0,0 +1,14 @@
+package pbgLecture4lab;
+
+public interface ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// One source of force, applied by a ForcePipeline as a single loop over the particles
+	// it affects.  accumulate adds to forces.forceX/forceY and must not touch the particles.
+
+	// false when this generator would add nothing this update, so the pipeline can skip it
+	boolean hasEffect(ForcePipeline forces);
+
+	void accumulate(ForcePipeline forces);
+}
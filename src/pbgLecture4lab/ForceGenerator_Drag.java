@@ -0,0 +1,44 @@
+package pbgLecture4lab;
+
+public class ForceGenerator_Drag implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Drag from a still medium on every particle, opposite to its velocity:
+	// -(linear + quadratic * speed) * velocity.  Linear drag suits slow particles in a
+	// thick medium, quadratic drag fast ones in air.
+	private double linear, quadratic;
+
+	public ForceGenerator_Drag(double linear, double quadratic) {
+		setCoefficients(linear, quadratic);
+	}
+
+	public void setCoefficients(double linear, double quadratic) {
+		this.linear = linear;
+		this.quadratic = quadratic;
+	}
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return linear != 0 || quadratic != 0;
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		double[] velX = forces.velX, velY = forces.velY, forceX = forces.forceX, forceY = forces.forceY;
+		int n = forces.numParticles;
+		if (quadratic == 0) {
+			for (int i = 0; i < n; i++) {
+				forceX[i] -= linear * velX[i];
+				forceY[i] -= linear * velY[i];
+			}
+			return;
+		}
+		for (int i = 0; i < n; i++) {
+			double vx = velX[i], vy = velY[i];
+			double k = linear + quadratic * Math.sqrt(vx * vx + vy * vy);
+			forceX[i] -= k * vx;
+			forceY[i] -= k * vy;
+		}
+	}
+}
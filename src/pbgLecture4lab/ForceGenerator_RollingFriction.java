@@ -0,0 +1,20 @@
+package pbgLecture4lab;
+
+public class ForceGenerator_RollingFriction implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Each particle's own rolling friction: -rollingFriction * mass * velocity, so particles
+	// given a rolling friction slow down gradually.  Skipped when no particle has any.
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return forces.maxRollingFriction > 0;
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		forces.kernels.addRollingFriction(forces.rollingFriction, forces.mass, forces.velX, forces.velY, forces.forceX,
+				forces.forceY, forces.numParticles);
+	}
+}
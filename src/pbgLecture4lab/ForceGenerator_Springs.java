@@ -0,0 +1,71 @@
+package pbgLecture4lab;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ForceGenerator_Springs implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The tension of a list of ElasticConnectors (such as the engine's connectors), computed
+	// from the pipeline's arrays.  Connectors refer to particles by object, so each one's
+	// particle indices are cached and only searched for again when the list or the
+	// particles have moved around.  Bulk ropes and cloth belong in an ElasticConnectorNetwork.
+	private final List<ElasticConnector> connectors;
+	private int[] index1 = new int[4], index2 = new int[4];
+	private int numResolved;
+
+	public ForceGenerator_Springs(List<ElasticConnector> connectors) {
+		this.connectors = connectors;
+	}
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return !connectors.isEmpty();
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		resolveIndices(forces.particles);
+		double[] posX = forces.posX, posY = forces.posY, velX = forces.velX, velY = forces.velY;
+		double[] forceX = forces.forceX, forceY = forces.forceY;
+		for (int c = 0, n = connectors.size(); c < n; c++) {
+			int i = index1[c], j = index2[c];
+			if (i < 0 || j < 0)
+				continue;
+			double dx = posX[j] - posX[i], dy = posY[j] - posY[i];
+			double dist = Math.sqrt(dx * dx + dy * dy);
+			if (dist == 0)
+				continue;
+			double ux = dx / dist, uy = dy / dist;
+			double rate = (velX[j] - velX[i]) * ux + (velY[j] - velY[i]) * uy;
+			double tension = connectors.get(c).calculateTension(dist, rate);
+			forceX[i] += ux * tension;
+			forceY[i] += uy * tension;
+			// Newton's 3rd Law
+			forceX[j] -= ux * tension;
+			forceY[j] -= uy * tension;
+		}
+	}
+
+	// a connector whose particle is no longer in the list gets index -1 and is skipped
+	private void resolveIndices(List<BasicParticle> particles) {
+		int n = connectors.size();
+		if (index1.length < n) {
+			index1 = Arrays.copyOf(index1, Math.max(n, index1.length * 2));
+			index2 = Arrays.copyOf(index2, index1.length);
+		}
+		for (int c = 0; c < n; c++) {
+			ElasticConnector ec = connectors.get(c);
+			if (c >= numResolved || !isAt(particles, index1[c], ec.getParticle1()))
+				index1[c] = particles.indexOf(ec.getParticle1());
+			if (c >= numResolved || !isAt(particles, index2[c], ec.getParticle2()))
+				index2[c] = particles.indexOf(ec.getParticle2());
+		}
+		numResolved = n;
+	}
+
+	private static boolean isAt(List<BasicParticle> particles, int index, BasicParticle p) {
+		return index >= 0 && index < particles.size() && particles.get(index) == p;
+	}
+}
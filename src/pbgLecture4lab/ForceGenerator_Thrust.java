@@ -0,0 +1,27 @@
+package pbgLecture4lab;
+
+public class ForceGenerator_Thrust implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The engine thrust of every ControllableSpaceShip that is thrusting, along the way the
+	// ship faces.  Steering and exhaust stay with the ship (ControllableSpaceShip.updateControls).
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return forces.numShips > 0;
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		for (int k = 0; k < forces.numShips; k++) {
+			int i = forces.shipIndex[k];
+			ControllableSpaceShip ship = (ControllableSpaceShip) forces.particles.get(i);
+			if (!ship.isThrusting())
+				continue;
+			double angle = ship.getAngle();
+			forces.forceX[i] += ControllableSpaceShip.thrustForceX(angle);
+			forces.forceY[i] += ControllableSpaceShip.thrustForceY(angle);
+		}
+	}
+}
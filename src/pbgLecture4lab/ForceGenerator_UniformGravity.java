@@ -0,0 +1,29 @@
+package pbgLecture4lab;
+
+public class ForceGenerator_UniformGravity implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The same acceleration on every particle: the weight mass * g.
+	private double accelerationX, accelerationY;
+
+	public ForceGenerator_UniformGravity(double accelerationX, double accelerationY) {
+		setAcceleration(accelerationX, accelerationY);
+	}
+
+	public void setAcceleration(double accelerationX, double accelerationY) {
+		this.accelerationX = accelerationX;
+		this.accelerationY = accelerationY;
+	}
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return accelerationX != 0 || accelerationY != 0;
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		forces.kernels.addWeight(forces.mass, forces.forceX, forces.forceY, forces.numParticles, accelerationX,
+				accelerationY);
+	}
+}
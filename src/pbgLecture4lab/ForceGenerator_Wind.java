@@ -0,0 +1,57 @@
+package pbgLecture4lab;
+
+public class ForceGenerator_Wind implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// A wind field: each particle is pushed towards the local wind velocity with force
+	// coefficient * (wind - velocity), so in still air it is plain linear drag.
+	//
+	// The wind is (windX, windY) scaled by 1 + gust * sin(2 pi (x - gustSpeed * t) / gustWavelength),
+	// i.e. bands of stronger and weaker wind that travel along x.  A gust of 0 gives a steady, uniform wind.
+	private final double coefficient;
+	private double windX, windY;
+	private double gust, gustWavelength = 1, gustSpeed;
+
+	public ForceGenerator_Wind(double coefficient, double windX, double windY) {
+		this.coefficient = coefficient;
+		setWind(windX, windY);
+	}
+
+	public void setWind(double windX, double windY) {
+		this.windX = windX;
+		this.windY = windY;
+	}
+
+	public void setGusts(double gust, double gustWavelength, double gustSpeed) {
+		if (gustWavelength <= 0)
+			throw new IllegalArgumentException("gust wavelength must be positive");
+		this.gust = gust;
+		this.gustWavelength = gustWavelength;
+		this.gustSpeed = gustSpeed;
+	}
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return coefficient != 0;
+	}
+
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		double[] posX = forces.posX, velX = forces.velX, velY = forces.velY, forceX = forces.forceX, forceY = forces.forceY;
+		int n = forces.numParticles;
+		if (gust == 0) {
+			for (int i = 0; i < n; i++) {
+				forceX[i] += coefficient * (windX - velX[i]);
+				forceY[i] += coefficient * (windY - velY[i]);
+			}
+			return;
+		}
+		double k = 2 * Math.PI / gustWavelength, phase = k * gustSpeed * forces.time;
+		for (int i = 0; i < n; i++) {
+			double strength = 1 + gust * Math.sin(k * posX[i] - phase);
+			forceX[i] += coefficient * (windX * strength - velX[i]);
+			forceY[i] += coefficient * (windY * strength - velY[i]);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package pbgLecture4lab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ForcePipeline {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The forces on the engine's particles, as a list of ForceGenerators run once per update.
+	//
+	// apply() copies every particle's position, velocity, mass and rolling friction into
+	// primitive arrays, lets each generator that has an effect add its forces into forceX
+	// and forceY in one loop of its own, and then hands each particle its total with a
+	// single applyForceToParticle.  Generators see the particles as they were when apply
+	// started, so their order only changes the rounding of the sums.
+	//
+	// integrate() then moves the particles under their totals the same way: one pass of the
+	// kernels over the arrays rather than a call per particle.  The loops themselves are
+	// ParticleKernels, chosen at startup.
+	private final List<ForceGenerator> generators = new ArrayList<ForceGenerator>();
+
+	// particle state for the generators; entries 0 .. numParticles - 1 are valid
+	public int numParticles;
+	public double[] posX = new double[0], posY = new double[0], velX = new double[0], velY = new double[0];
+	public double[] mass = new double[0], rollingFriction = new double[0];
+	public double[] forceX = new double[0], forceY = new double[0];
+	// indices of the ControllableSpaceShips among them
+	public int numShips;
+	public int[] shipIndex = new int[4];
+	// largest rolling friction of any particle, so friction can be skipped when there is none
+	public double maxRollingFriction;
+	// simulated seconds since the engine started, for forces that vary in time
+	public double time;
+	// the particles themselves, for generators that need more than the arrays hold
+	public List<BasicParticle> particles;
+	// the loops generators and integrate() run over the arrays
+	public ParticleKernels kernels = ParticleKernels.get();
+
+	private int numActive;
+	// for integrate(): 1 / mass, and the particle in each slot
+	private double[] inverseMass = new double[0];
+	private BasicParticle[] slotParticle = new BasicParticle[0];
+
+	public void addGenerator(ForceGenerator generator) {
+		generators.add(generator);
+	}
+
+	public boolean removeGenerator(ForceGenerator generator) {
+		return generators.remove(generator);
+	}
+
+	public List<ForceGenerator> getGenerators() {
+		return generators;
+	}
+
+	// call once per update, after the particles' forces have been reset
+	public void apply(List<BasicParticle> particles, double time) {
+		gather(particles, time);
+		numActive = 0;
+		for (int g = 0; g < generators.size(); g++) {
+			ForceGenerator generator = generators.get(g);
+			if (!generator.hasEffect(this))
+				continue;
+			generator.accumulate(this);
+			numActive++;
+		}
+		if (numActive == 0)
+			return;
+		for (int i = 0; i < numParticles; i++)
+			if (forceX[i] != 0 || forceY[i] != 0)
+				particles.get(i).applyForceToParticle(forceX[i], forceY[i]);
+	}
+
+	private void gather(List<BasicParticle> particles, double time) {
+		int n = particles.size();
+		ensureCapacity(n);
+		this.particles = particles;
+		this.time = time;
+		numParticles = n;
+		numShips = 0;
+		maxRollingFriction = 0;
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			Vector2D pos = p.getPos(), vel = p.getVel();
+			posX[i] = pos.x;
+			posY[i] = pos.y;
+			velX[i] = vel.x;
+			velY[i] = vel.y;
+			mass[i] = p.getMass();
+			rollingFriction[i] = p.getRollingFriction();
+			maxRollingFriction = Math.max(maxRollingFriction, rollingFriction[i]);
+			forceX[i] = 0;
+			forceY[i] = 0;
+			if (p instanceof ControllableSpaceShip) {
+				if (numShips == shipIndex.length)
+					shipIndex = Arrays.copyOf(shipIndex, numShips * 2);
+				shipIndex[numShips++] = i;
+			}
+		}
+	}
+
+	// moves every particle on by dt under the forces applied to it this update, after the
+	// connectors have added theirs.  Improved-Euler particles go in the slots at the front and
+	// basic-Euler ones at the back, so each kind is one kernel call; particles with their own
+	// integration (BasicParticle.hasCustomIntegration), such as polygons, which turn as well,
+	// integrate themselves.  Overwrites the arrays the generators saw.
+	public void integrate(List<BasicParticle> particles, double dt) {
+		int n = particles.size();
+		ensureCapacity(n);
+		int improved = 0, basic = n;
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			if (p.hasCustomIntegration()) {
+				p.integrate();
+				continue;
+			}
+			int s = p.isImprovedEuler() ? improved++ : --basic;
+			Vector2D pos = p.getPos(), vel = p.getVel(), force = p.getTotalForce();
+			posX[s] = pos.x;
+			posY[s] = pos.y;
+			velX[s] = vel.x;
+			velY[s] = vel.y;
+			forceX[s] = force.x;
+			forceY[s] = force.y;
+			inverseMass[s] = 1 / p.getMass();
+			slotParticle[s] = p;
+		}
+		kernels.integrate(posX, posY, velX, velY, forceX, forceY, inverseMass, 0, improved, dt, true);
+		kernels.integrate(posX, posY, velX, velY, forceX, forceY, inverseMass, basic, n, dt, false);
+		scatter(0, improved);
+		scatter(basic, n);
+	}
+
+	private void scatter(int from, int to) {
+		for (int s = from; s < to; s++) {
+			slotParticle[s].getPos().set(posX[s], posY[s]);
+			slotParticle[s].getVel().set(velX[s], velY[s]);
+			slotParticle[s] = null;
+		}
+	}
+
+	private void ensureCapacity(int n) {
+		if (posX.length >= n)
+			return;
+		int capacity = Math.max(n, posX.length * 2);
+		posX = new double[capacity];
+		posY = new double[capacity];
+		velX = new double[capacity];
+		velY = new double[capacity];
+		mass = new double[capacity];
+		rollingFriction = new double[capacity];
+		forceX = new double[capacity];
+		forceY = new double[capacity];
+		inverseMass = new double[capacity];
+		slotParticle = new BasicParticle[capacity];
+	}
+
+	// generators that ran in the last apply
+	public int getNumActive() {
+		return numActive;
+	}
+}
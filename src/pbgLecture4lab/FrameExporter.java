@@ -0,0 +1,348 @@
+package pbgLecture4lab;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+public class FrameExporter {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Records a simulation without a display: capture() paints a BasicView into an
+	// off-screen image and queues it, and background workers encode the queued frames and
+	// write them with asynchronous file channels.
+	//
+	// PNG writes one file per frame (frame_000000.png, ...).  RAW_RGB writes every frame
+	// into a single file of packed 8-bit RGB, frame k at offset k * width * height * 3,
+	// which ffmpeg reads with -f rawvideo -pix_fmt rgb24 -s WIDTHxHEIGHT.
+	//
+	// The frames are a fixed pool of images.  When none is free, because the encoders have
+	// fallen behind, capture() either waits for one (BLOCK: back-pressure on the simulation,
+	// no frame lost) or drops the new frame (DROP: the simulation never waits).  Writes are
+	// asynchronous too: an encoder hands its output to the file channel and moves on, and
+	// only waits when all of its output buffers are still being written.
+	public static enum Format {PNG, RAW_RGB};
+	public static enum OverflowPolicy {BLOCK, DROP};
+
+	private static final Frame END = new Frame(null);
+
+	private final File directory;
+	private final Format format;
+	private final OverflowPolicy policy;
+	private final int width, height;
+	private final BlockingQueue<Frame> free, pending;
+	// encoded output; a buffer is taken by an encoder and given back when its write completes
+	private final BlockingQueue<ByteBuffer> buffers;
+	private final int numBuffers;
+	private final Thread[] workers;
+	private final AsynchronousFileChannel rawChannel;
+
+	// capture thread only
+	private long nextFrame;
+	private boolean closed;
+	private long startNanos, blockedNanos;
+
+	private final AtomicLong encoded = new AtomicLong(), written = new AtomicLong(), dropped = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong(), encodeNanos = new AtomicLong(), writeErrors = new AtomicLong();
+
+	private static class Frame {
+		final BufferedImage image;
+		final int[] pixels;
+		long index;
+
+		Frame(BufferedImage image) {
+			this.image = image;
+			this.pixels = image == null ? null : ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	public FrameExporter(File directory, Format format, OverflowPolicy policy, int width, int height, int queuedFrames,
+			int numWorkers) throws IOException {
+		if (queuedFrames < 1 || numWorkers < 1)
+			throw new IllegalArgumentException("need at least one queued frame and one worker");
+		this.directory = directory;
+		this.format = format;
+		this.policy = policy;
+		this.width = width;
+		this.height = height;
+		directory.mkdirs();
+		free = new ArrayBlockingQueue<Frame>(queuedFrames);
+		pending = new ArrayBlockingQueue<Frame>(queuedFrames + numWorkers);
+		for (int i = 0; i < queuedFrames; i++)
+			free.add(new Frame(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)));
+		// two per worker, so a worker can encode the next frame while the last is being written
+		numBuffers = 2 * numWorkers;
+		buffers = new ArrayBlockingQueue<ByteBuffer>(numBuffers);
+		for (int i = 0; i < numBuffers; i++)
+			buffers.add(ByteBuffer.allocate(format == Format.RAW_RGB ? width * height * 3 : 64 * 1024));
+		rawChannel = format != Format.RAW_RGB ? null : AsynchronousFileChannel.open(new File(directory, "frames_" + width + "x"
+				+ height + ".rgb").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		workers = new Thread[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					encodeFrames();
+				}
+			}, "frame encoder " + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	// paints view into the next frame and queues it; false if the frame was dropped
+	public boolean capture(BasicView view) {
+		if (closed)
+			throw new IllegalStateException("exporter is closed");
+		if (startNanos == 0)
+			startNanos = System.nanoTime();
+		Frame frame = free.poll();
+		if (frame == null) {
+			if (policy == OverflowPolicy.DROP) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			long t0 = System.nanoTime();
+			try {
+				frame = free.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped.incrementAndGet();
+				return false;
+			} finally {
+				blockedNanos += System.nanoTime() - t0;
+			}
+		}
+		Graphics2D g = frame.image.createGraphics();
+		view.paintComponent(g);
+		g.dispose();
+		frame.index = nextFrame++;
+		// never full: there are more slots than frames
+		pending.add(frame);
+		return true;
+	}
+
+	private void encodeFrames() {
+		ExposedByteArrayOutputStream png = format == Format.PNG ? new ExposedByteArrayOutputStream() : null;
+		try {
+			while (true) {
+				Frame frame = pending.take();
+				if (frame == END)
+					return;
+				ByteBuffer buf = buffers.take();
+				try {
+					long t0 = System.nanoTime();
+					buf = encode(frame, buf, png);
+					encodeNanos.addAndGet(System.nanoTime() - t0);
+					encoded.incrementAndGet();
+					write(buf, frame.index);
+				} catch (IOException e) {
+					// the frame is lost, but the recording carries on
+					writeErrors.incrementAndGet();
+					buffers.add(buf);
+				} finally {
+					free.add(frame);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// returns buf, or a larger replacement, flipped and ready to write
+	private ByteBuffer encode(Frame frame, ByteBuffer buf, ExposedByteArrayOutputStream png) throws IOException {
+		buf.clear();
+		if (format == Format.PNG) {
+			png.reset();
+			ImageIO.write(frame.image, "png", png);
+			if (buf.capacity() < png.size())
+				buf = ByteBuffer.allocate(Math.max(png.size(), buf.capacity() * 2));
+			buf.put(png.getBuffer(), 0, png.size());
+		} else {
+			int[] pixels = frame.pixels;
+			for (int i = 0, n = width * height; i < n; i++) {
+				int rgb = pixels[i];
+				buf.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+			}
+		}
+		buf.flip();
+		return buf;
+	}
+
+	private void write(ByteBuffer buf, long index) throws IOException {
+		if (format == Format.RAW_RGB) {
+			new WriteHandler(rawChannel, buf, index * width * height * 3, false).start();
+		} else {
+			String name = String.format("frame_%06d.png", index);
+			AsynchronousFileChannel channel = AsynchronousFileChannel.open(new File(directory, name).toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			new WriteHandler(channel, buf, 0, true).start();
+		}
+	}
+
+	// writes the whole buffer, reissuing the write after a partial one, then returns the buffer to the pool
+	private class WriteHandler implements CompletionHandler<Integer, Void> {
+		final AsynchronousFileChannel channel;
+		final ByteBuffer buf;
+		final boolean closeWhenDone;
+		long position;
+
+		WriteHandler(AsynchronousFileChannel channel, ByteBuffer buf, long position, boolean closeWhenDone) {
+			this.channel = channel;
+			this.buf = buf;
+			this.position = position;
+			this.closeWhenDone = closeWhenDone;
+		}
+
+		void start() {
+			channel.write(buf, position, null, this);
+		}
+
+		@Override
+		public void completed(Integer count, Void attachment) {
+			position += count;
+			bytesWritten.addAndGet(count);
+			if (buf.hasRemaining()) {
+				start();
+				return;
+			}
+			written.incrementAndGet();
+			finish();
+		}
+
+		@Override
+		public void failed(Throwable e, Void attachment) {
+			writeErrors.incrementAndGet();
+			finish();
+		}
+
+		private void finish() {
+			if (closeWhenDone) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					writeErrors.incrementAndGet();
+				}
+			}
+			buffers.add(buf);
+		}
+	}
+
+	// encodes and writes everything already captured, then stops the workers
+	public void close() throws IOException, InterruptedException {
+		if (closed)
+			return;
+		closed = true;
+		for (int i = 0; i < workers.length; i++)
+			pending.put(END);
+		for (Thread worker : workers)
+			worker.join();
+		// every buffer comes back once its write has completed
+		ByteBuffer[] returned = new ByteBuffer[numBuffers];
+		for (int i = 0; i < numBuffers; i++)
+			returned[i] = buffers.take();
+		buffers.addAll(Arrays.asList(returned));
+		if (rawChannel != null)
+			rawChannel.close();
+	}
+
+	public long getCaptured() {
+		return nextFrame;
+	}
+
+	public long getEncoded() {
+		return encoded.get();
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getWriteErrors() {
+		return writeErrors.get();
+	}
+
+	// time capture() has spent waiting for a free frame under BLOCK
+	public double getBlockedSeconds() {
+		return blockedNanos / 1e9;
+	}
+
+	public String report() {
+		double seconds = startNanos == 0 ? 0 : (System.nanoTime() - startNanos) / 1e9;
+		long frames = encoded.get();
+		return String.format("%d captured, %d dropped, %d encoded (%.1f frames/s, %.2f ms each), %d written, %.1f MB, "
+				+ "%d errors, capture blocked %.2f s", nextFrame, dropped.get(), frames, seconds > 0 ? frames / seconds : 0,
+				frames > 0 ? encodeNanos.get() / 1e6 / frames : 0, written.get(), bytesWritten.get() / 1e6, writeErrors.get(),
+				getBlockedSeconds());
+	}
+
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+		byte[] getBuffer() {
+			return buf;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		// FrameExporter [-dir d] [-format png|raw] [-policy block|drop] [-frames n] [-queue n] [-workers n]
+		File dir = new File("frames");
+		Format format = Format.PNG;
+		OverflowPolicy policy = OverflowPolicy.BLOCK;
+		int frames = 500, queue = 8, numWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-dir"))
+				dir = new File(args[++i]);
+			else if (args[i].equals("-format"))
+				format = args[++i].equals("raw") ? Format.RAW_RGB : Format.PNG;
+			else if (args[i].equals("-policy"))
+				policy = args[++i].equals("drop") ? OverflowPolicy.DROP : OverflowPolicy.BLOCK;
+			else if (args[i].equals("-frames"))
+				frames = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-queue"))
+				queue = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-workers"))
+				numWorkers = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+		}
+		// the usual game, flown to the ball by the autopilot, one frame per screen refresh
+		BasicPhysicsEngine game = new BasicPhysicsEngine();
+		game.autopilot = new ShipAutopilot((ControllableSpaceShip) game.particles.get(0), game.barriers, 30, 64,
+				BasicPhysicsEngine.DELAY * 1000000L / 2);
+		Vector2D ball = game.particles.get(1).getPos();
+		game.autopilot.setTarget(ball.x, ball.y + 1);
+		BasicView view = new BasicView(game);
+		view.setSize(BasicPhysicsEngine.FRAME_SIZE);
+		FrameExporter exporter = new FrameExporter(dir, format, policy, BasicPhysicsEngine.SCREEN_WIDTH,
+				BasicPhysicsEngine.SCREEN_HEIGHT, queue, numWorkers);
+		long t0 = System.nanoTime();
+		for (int f = 0; f < frames; f++) {
+			game.autopilot.plan();
+			for (int i = 0; i < BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH; i++)
+				game.update();
+			exporter.capture(view);
+		}
+		double simSeconds = (System.nanoTime() - t0) / 1e9;
+		exporter.close();
+		System.out.println(String.format("simulated and captured %d frames in %.2f s (%.1f frames/s)", frames, simSeconds,
+				frames / simSeconds));
+		System.out.println(exporter.report());
+		System.out.println("written to " + dir.getAbsolutePath());
+	}
+}
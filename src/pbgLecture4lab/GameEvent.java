@@ -0,0 +1,72 @@
+package pbgLecture4lab;
+
+public class GameEvent {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// One event read back from a GameEventBus.  The bus reuses a single GameEvent per
+	// listener call, so copy out anything needed after onGameEvent returns.
+	public static enum Type {
+		// the ship picked up the ball; value is the distance between them
+		TETHER_ATTACHED,
+		// the tethered ball lifted off its start pad
+		LEFT_START_PAD,
+		// the ball crossed the winning barrier
+		WON,
+		// the ship hit a barrier, or the tethered ball did after leaving its pad
+		CRASHED,
+		// a contact began; other is a particle index, or -1 when barrier is set; value is the impulse
+		COLLISION
+	};
+
+	// Type.values() allocates a copy each call, so the bus indexes this one
+	static final Type[] TYPES = Type.values();
+
+	Type type;
+	long tick;
+	int particle, other, barrier;
+	double x, y, value;
+
+	public Type getType() {
+		return type;
+	}
+
+	// the engine update that published the event
+	public long getTick() {
+		return tick;
+	}
+
+	// index into the engine's particles, or -1
+	public int getParticle() {
+		return particle;
+	}
+
+	public int getOtherParticle() {
+		return other;
+	}
+
+	// index into the engine's barriers, or -1
+	public int getBarrier() {
+		return barrier;
+	}
+
+	// world position where it happened
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return type + " at tick " + tick + " (" + String.format("%.2f,%.2f", x, y) + ") particle " + particle
+				+ (other >= 0 ? " other " + other : "") + (barrier >= 0 ? " barrier " + barrier : "") + " value "
+				+ String.format("%.3f", value);
+	}
+}
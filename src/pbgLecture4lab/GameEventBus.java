@@ -0,0 +1,139 @@
+package pbgLecture4lab;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameEventBus {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Carries GameEvents from the simulation thread to listeners on a dispatcher thread.
+	//
+	// The events live in a ring buffer of preallocated primitive arrays.  There is one
+	// publisher (the simulation thread) and one consumer (the dispatcher, or whoever calls
+	// drain), so the only synchronisation is the two sequence counters: the publisher
+	// fills a slot and then publishes it by advancing its counter, and the consumer frees
+	// slots by advancing its own.  publish never blocks, locks or allocates; if the
+	// consumer has fallen a whole buffer behind, the event is dropped and counted.
+	private final int mask;
+	private final int[] type;
+	private final long[] tick;
+	private final int[] particle, other, barrier;
+	private final double[] x, y, value;
+
+	// sequence numbers of the next slot to write and the next slot to read
+	private final AtomicLong published = new AtomicLong(), consumed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final List<GameEventListener> listeners = new CopyOnWriteArrayList<GameEventListener>();
+	private final GameEvent event = new GameEvent();
+	private volatile Thread dispatcher;
+
+	public GameEventBus(int capacity) {
+		if (Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("capacity must be a power of two");
+		mask = capacity - 1;
+		type = new int[capacity];
+		tick = new long[capacity];
+		particle = new int[capacity];
+		other = new int[capacity];
+		barrier = new int[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		value = new double[capacity];
+	}
+
+	public void addListener(GameEventListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(GameEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	// simulation thread only; returns false if the event was dropped because the buffer is full
+	public boolean publish(GameEvent.Type eventType, long eventTick, int particleIndex, int otherParticle, int barrierIndex,
+			double px, double py, double eventValue) {
+		long seq = published.get();
+		if (seq - consumed.get() > mask) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		int slot = (int) seq & mask;
+		type[slot] = eventType.ordinal();
+		tick[slot] = eventTick;
+		particle[slot] = particleIndex;
+		other[slot] = otherParticle;
+		barrier[slot] = barrierIndex;
+		x[slot] = px;
+		y[slot] = py;
+		value[slot] = eventValue;
+		// ordered store: the slot's fields are visible before the new count is
+		published.lazySet(seq + 1);
+		Thread d = dispatcher;
+		if (d != null)
+			LockSupport.unpark(d);
+		return true;
+	}
+
+	// consumer side: hands every published event to the listeners and returns how many there were
+	public int drain() {
+		long start = consumed.get(), end = published.get();
+		for (long seq = start; seq < end; seq++) {
+			int slot = (int) seq & mask;
+			event.type = GameEvent.TYPES[type[slot]];
+			event.tick = tick[slot];
+			event.particle = particle[slot];
+			event.other = other[slot];
+			event.barrier = barrier[slot];
+			event.x = x[slot];
+			event.y = y[slot];
+			event.value = value[slot];
+			// free the slot before the listeners run, so a slow listener holds back at most one event
+			consumed.lazySet(seq + 1);
+			for (GameEventListener listener : listeners)
+				listener.onGameEvent(event);
+		}
+		return (int) (end - start);
+	}
+
+	// starts a daemon thread that delivers events as they arrive
+	public synchronized void startDispatcher() {
+		if (dispatcher != null)
+			return;
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (dispatcher == Thread.currentThread()) {
+					drain();
+					// woken by publish; the timeout covers an unpark that raced with going to sleep
+					LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+				}
+			}
+		}, "game events");
+		thread.setDaemon(true);
+		dispatcher = thread;
+		thread.start();
+	}
+
+	public synchronized void stopDispatcher() {
+		Thread thread = dispatcher;
+		dispatcher = null;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	public long getPublished() {
+		return published.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,10 @@
+package pbgLecture4lab;
+
+public interface GameEventListener {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Called on the bus's dispatcher thread, never on the simulation thread.
+	// The event object is reused after this returns.
+	void onGameEvent(GameEvent event);
+}
@@ -0,0 +1,403 @@
+package pbgLecture4lab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class GravityField implements ForceGenerator {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Newtonian point gravity, on top of the constant GRAVITY every particle already feels:
+	// fixed attractors (planets) pull on every particle, and optionally the particles
+	// all pull on each other.
+	//
+	// Mutual gravity is evaluated with a Barnes-Hut quadtree, rebuilt every update in flat
+	// arrays.  A node far enough away (node width / distance < opening angle, and not
+	// containing the particle itself) is treated as a single mass at its centre of mass,
+	// so each particle visits O(log n) nodes instead of n particles.  An opening angle of 0
+	// opens every node, which is exact.  Coincident particles that can't be separated by
+	// splitting share a leaf, chained through nextInLeaf.
+	// Traversals for large swarms are split across a ForkJoinPool; the tree is read-only
+	// while they run.
+	//
+	// Forces are softened: 1/(d^2+softening^2) instead of 1/d^2, so close passes stay finite.
+
+	// below this many particles the tree is walked on the calling thread
+	public static final int PARALLEL_THRESHOLD = 2048;
+	private static final int MAX_DEPTH = 48;
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final double gravitationalConstant, softeningSquared;
+	private double openingAngle = 0.5;
+	private boolean mutualGravity;
+	// sum over every pair instead of walking the tree; faster for small swarms, and exact
+	private boolean directSummation;
+
+	private int numAttractors;
+	private double[] attractorX = new double[4], attractorY = new double[4], attractorMass = new double[4];
+
+	// particle state
+	private int numParticles;
+	private double[] posX = new double[0], posY = new double[0], mass = new double[0];
+	private double[] accX = new double[0], accY = new double[0];
+	private int[] nextInLeaf = new int[0];
+
+	// quadtree nodes; a node's four children are allocated together starting at firstChild
+	private int numNodes;
+	private double[] nodeCentreX = new double[64], nodeCentreY = new double[64], nodeHalfSize = new double[64];
+	private double[] nodeMass = new double[64], nodeComX = new double[64], nodeComY = new double[64];
+	private int[] firstChild = new int[64], firstBody = new int[64], nodeDepth = new int[64];
+
+	private final List<TraversalChunk> chunks = new ArrayList<TraversalChunk>();
+
+	public GravityField(double gravitationalConstant, double softening) {
+		this.gravitationalConstant = gravitationalConstant;
+		this.softeningSquared = softening * softening;
+		for (int i = 0; i < POOL.getParallelism(); i++)
+			chunks.add(new TraversalChunk());
+	}
+
+	public void addAttractor(double x, double y, double mass) {
+		if (numAttractors == attractorX.length) {
+			attractorX = Arrays.copyOf(attractorX, numAttractors * 2);
+			attractorY = Arrays.copyOf(attractorY, numAttractors * 2);
+			attractorMass = Arrays.copyOf(attractorMass, numAttractors * 2);
+		}
+		attractorX[numAttractors] = x;
+		attractorY[numAttractors] = y;
+		attractorMass[numAttractors] = mass;
+		numAttractors++;
+	}
+
+	public void clearAttractors() {
+		numAttractors = 0;
+	}
+
+	public int getNumAttractors() {
+		return numAttractors;
+	}
+
+	public void setMutualGravity(boolean mutualGravity) {
+		this.mutualGravity = mutualGravity;
+	}
+
+	public boolean isMutualGravity() {
+		return mutualGravity;
+	}
+
+	public void setDirectSummation(boolean directSummation) {
+		this.directSummation = directSummation;
+	}
+
+	public void setOpeningAngle(double openingAngle) {
+		if (openingAngle < 0)
+			throw new IllegalArgumentException("opening angle must not be negative");
+		this.openingAngle = openingAngle;
+	}
+
+	public double getOpeningAngle() {
+		return openingAngle;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	@Override
+	public boolean hasEffect(ForcePipeline forces) {
+		return numAttractors > 0 || mutualGravity;
+	}
+
+	// as a generator in the engine's ForcePipeline
+	@Override
+	public void accumulate(ForcePipeline forces) {
+		int n = forces.numParticles;
+		ensureParticleCapacity(n);
+		System.arraycopy(forces.posX, 0, posX, 0, n);
+		System.arraycopy(forces.posY, 0, posY, 0, n);
+		System.arraycopy(forces.mass, 0, mass, 0, n);
+		computeAccelerations(n);
+		for (int i = 0; i < n; i++) {
+			forces.forceX[i] += accX[i] * mass[i];
+			forces.forceY[i] += accY[i] * mass[i];
+		}
+	}
+
+	// standalone: call once per update, after the forces have been reset
+	public void applyForces(List<BasicParticle> particles) {
+		if (numAttractors == 0 && !mutualGravity)
+			return;
+		int n = particles.size();
+		ensureParticleCapacity(n);
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			posX[i] = p.getPos().x;
+			posY[i] = p.getPos().y;
+			mass[i] = p.getMass();
+		}
+		computeAccelerations(n);
+		for (int i = 0; i < n; i++)
+			if (accX[i] != 0 || accY[i] != 0)
+				particles.get(i).applyForceToParticle(accX[i] * mass[i], accY[i] * mass[i]);
+	}
+
+	// fills accX/accY for the first n entries of posX/posY/mass
+	private void computeAccelerations(int n) {
+		numParticles = n;
+		if (mutualGravity && !directSummation && n > 1)
+			buildTree();
+		if (n < PARALLEL_THRESHOLD) {
+			accumulate(0, n, new int[4 * MAX_DEPTH + 4]);
+			return;
+		}
+		int per = (n + chunks.size() - 1) / chunks.size();
+		for (int i = 0; i < chunks.size(); i++) {
+			TraversalChunk chunk = chunks.get(i);
+			chunk.from = Math.min(i * per, n);
+			chunk.to = Math.min(chunk.from + per, n);
+		}
+		try {
+			for (Future<Void> result : POOL.invokeAll(chunks))
+				result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private class TraversalChunk implements Callable<Void> {
+		int from, to;
+		final int[] stack = new int[4 * MAX_DEPTH + 4];
+
+		@Override
+		public Void call() {
+			accumulate(from, to, stack);
+			return null;
+		}
+	}
+
+	private void accumulate(int from, int to, int[] stack) {
+		for (int i = from; i < to; i++) {
+			double x = posX[i], y = posY[i], ax = 0, ay = 0;
+			for (int a = 0; a < numAttractors; a++) {
+				double dx = attractorX[a] - x, dy = attractorY[a] - y;
+				double d2 = dx * dx + dy * dy + softeningSquared;
+				double s = attractorMass[a] / (d2 * Math.sqrt(d2));
+				ax += dx * s;
+				ay += dy * s;
+			}
+			if (mutualGravity && directSummation) {
+				for (int j = 0; j < numParticles; j++) {
+					if (j == i)
+						continue;
+					double ex = posX[j] - x, ey = posY[j] - y;
+					double e2 = ex * ex + ey * ey + softeningSquared;
+					double s = mass[j] / (e2 * Math.sqrt(e2));
+					ax += ex * s;
+					ay += ey * s;
+				}
+			} else if (mutualGravity && numParticles > 1) {
+				// iterative depth-first walk; a node is pushed only if it has mass
+				int top = 0;
+				stack[top++] = 0;
+				double theta2 = openingAngle * openingAngle;
+				while (top > 0) {
+					int node = stack[--top];
+					double dx = nodeComX[node] - x, dy = nodeComY[node] - y;
+					double d2 = dx * dx + dy * dy;
+					double width = 2 * nodeHalfSize[node];
+					if (firstChild[node] < 0) {
+						// leaf: exact sum over its particles
+						for (int j = firstBody[node]; j >= 0; j = nextInLeaf[j]) {
+							if (j == i)
+								continue;
+							double ex = posX[j] - x, ey = posY[j] - y;
+							double e2 = ex * ex + ey * ey + softeningSquared;
+							double s = mass[j] / (e2 * Math.sqrt(e2));
+							ax += ex * s;
+							ay += ey * s;
+						}
+					} else if (width * width < theta2 * d2 && !containsPoint(node, x, y)) {
+						double e2 = d2 + softeningSquared;
+						double s = nodeMass[node] / (e2 * Math.sqrt(e2));
+						ax += dx * s;
+						ay += dy * s;
+					} else {
+						for (int c = firstChild[node], end = c + 4; c < end; c++)
+							if (nodeMass[c] > 0)
+								stack[top++] = c;
+					}
+				}
+			}
+			accX[i] = ax * gravitationalConstant;
+			accY[i] = ay * gravitationalConstant;
+		}
+	}
+
+	// a node holding the particle itself is always opened, however far its centre of mass is
+	private boolean containsPoint(int node, double x, double y) {
+		double h = nodeHalfSize[node];
+		return Math.abs(x - nodeCentreX[node]) <= h && Math.abs(y - nodeCentreY[node]) <= h;
+	}
+
+	private void buildTree() {
+		int n = numParticles;
+		double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+		double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			loX = Math.min(loX, posX[i]);
+			loY = Math.min(loY, posY[i]);
+			hiX = Math.max(hiX, posX[i]);
+			hiY = Math.max(hiY, posY[i]);
+		}
+		numNodes = 0;
+		// slightly larger than the bounds so no particle sits exactly on the far edge
+		int root = newNode((loX + hiX) / 2, (loY + hiY) / 2, Math.max(hiX - loX, hiY - loY) / 2 * 1.0001 + 1e-9, 0);
+		for (int i = 0; i < n; i++)
+			insert(root, i);
+		// children are always allocated after their parent, so a reverse sweep sums bottom up
+		for (int node = numNodes - 1; node >= 0; node--) {
+			double m = 0, mx = 0, my = 0;
+			if (firstChild[node] < 0) {
+				for (int j = firstBody[node]; j >= 0; j = nextInLeaf[j]) {
+					m += mass[j];
+					mx += mass[j] * posX[j];
+					my += mass[j] * posY[j];
+				}
+			} else {
+				for (int c = firstChild[node], end = c + 4; c < end; c++) {
+					m += nodeMass[c];
+					mx += nodeMass[c] * nodeComX[c];
+					my += nodeMass[c] * nodeComY[c];
+				}
+			}
+			nodeMass[node] = m;
+			nodeComX[node] = m > 0 ? mx / m : nodeCentreX[node];
+			nodeComY[node] = m > 0 ? my / m : nodeCentreY[node];
+		}
+	}
+
+	private void insert(int node, int body) {
+		while (true) {
+			if (firstChild[node] >= 0) {
+				node = firstChild[node] + quadrant(node, body);
+				continue;
+			}
+			if (firstBody[node] < 0 || nodeDepth[node] == MAX_DEPTH) {
+				nextInLeaf[body] = firstBody[node];
+				firstBody[node] = body;
+				return;
+			}
+			// split the leaf and push its particle down a level
+			int resident = firstBody[node];
+			firstBody[node] = -1;
+			double h = nodeHalfSize[node] / 2;
+			double cx = nodeCentreX[node], cy = nodeCentreY[node];
+			int depth = nodeDepth[node] + 1;
+			int child = newNode(cx - h, cy - h, h, depth);
+			newNode(cx + h, cy - h, h, depth);
+			newNode(cx - h, cy + h, h, depth);
+			newNode(cx + h, cy + h, h, depth);
+			firstChild[node] = child;
+			int target = child + quadrant(node, resident);
+			nextInLeaf[resident] = -1;
+			firstBody[target] = resident;
+		}
+	}
+
+	private int quadrant(int node, int body) {
+		return (posX[body] >= nodeCentreX[node] ? 1 : 0) + (posY[body] >= nodeCentreY[node] ? 2 : 0);
+	}
+
+	private int newNode(double cx, double cy, double halfSize, int depth) {
+		if (numNodes == firstChild.length) {
+			int size = numNodes * 2;
+			nodeCentreX = Arrays.copyOf(nodeCentreX, size);
+			nodeCentreY = Arrays.copyOf(nodeCentreY, size);
+			nodeHalfSize = Arrays.copyOf(nodeHalfSize, size);
+			nodeMass = Arrays.copyOf(nodeMass, size);
+			nodeComX = Arrays.copyOf(nodeComX, size);
+			nodeComY = Arrays.copyOf(nodeComY, size);
+			firstChild = Arrays.copyOf(firstChild, size);
+			firstBody = Arrays.copyOf(firstBody, size);
+			nodeDepth = Arrays.copyOf(nodeDepth, size);
+		}
+		int node = numNodes++;
+		nodeCentreX[node] = cx;
+		nodeCentreY[node] = cy;
+		nodeHalfSize[node] = halfSize;
+		nodeMass[node] = 0;
+		firstChild[node] = -1;
+		firstBody[node] = -1;
+		nodeDepth[node] = depth;
+		return node;
+	}
+
+	private void ensureParticleCapacity(int n) {
+		if (posX.length >= n)
+			return;
+		int size = Math.max(n, posX.length * 2);
+		posX = new double[size];
+		posY = new double[size];
+		mass = new double[size];
+		accX = new double[size];
+		accY = new double[size];
+		nextInLeaf = new int[size];
+	}
+
+	public static void main(String[] args) {
+		// accuracy and speed of Barnes-Hut against direct summation:
+		// GravityField [particles] [repeats]
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Random random = new Random(1);
+		GravityField field = new GravityField(1, 0.01);
+		field.setMutualGravity(true);
+		field.ensureParticleCapacity(n);
+		// a disc-shaped swarm, denser towards the middle
+		for (int i = 0; i < n; i++) {
+			double r = Math.abs(random.nextGaussian()) * 2, a = random.nextDouble() * 2 * Math.PI;
+			field.posX[i] = r * Math.cos(a);
+			field.posY[i] = r * Math.sin(a);
+			field.mass[i] = 0.5 + random.nextDouble();
+		}
+		double[] exactX = new double[n], exactY = new double[n];
+		field.setDirectSummation(true);
+		long exactNanos = time(field, n, 1);
+		System.arraycopy(field.accX, 0, exactX, 0, n);
+		System.arraycopy(field.accY, 0, exactY, 0, n);
+		System.out.println(String.format("%d particles, direct summation: %.1f ms", n, exactNanos / 1e6));
+		field.setDirectSummation(false);
+		double[] angles = {0.3, 0.5, 0.7, 1.0};
+		for (double theta : angles) {
+			field.setOpeningAngle(theta);
+			long nanos = time(field, n, repeats);
+			double sumSq = 0, worst = 0;
+			for (int i = 0; i < n; i++) {
+				double ex = field.accX[i] - exactX[i], ey = field.accY[i] - exactY[i];
+				double rel = Math.hypot(ex, ey) / Math.hypot(exactX[i], exactY[i]);
+				sumSq += rel * rel;
+				worst = Math.max(worst, rel);
+			}
+			System.out.println(String.format("opening angle %.1f: %8.1f ms (%.1fx faster), %d nodes, rms relative error %.2e, max %.2e",
+					theta, nanos / 1e6, (double) exactNanos / nanos, field.getNumNodes(), Math.sqrt(sumSq / n), worst));
+		}
+	}
+
+	// mean time of one evaluation, after one warm-up run
+	private static long time(GravityField field, int n, int repeats) {
+		field.computeAccelerations(n);
+		long start = System.nanoTime();
+		for (int r = 0; r < repeats; r++)
+			field.computeAccelerations(n);
+		return (System.nanoTime() - start) / repeats;
+	}
+}
@@ -0,0 +1,296 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import pbgLecture4lab.BasicPhysicsEngine.LayoutMode;
+
+public class LoadTestScenario {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// A whole-engine load test: one LayoutMode filled with loose particles, randomly steered
+	// ships and connector chains, all placed from a fixed seed so every run simulates the
+	// same world.  run() times each engine update headlessly.
+	//
+	// main runs the standard scenarios and compares updates/s and p99 update latency with
+	// the baselines stored in a properties file, failing (exit status 1) if either has
+	// regressed by more than the threshold.  Each scenario is run several times from scratch
+	// and the best figures kept, since a stray GC or JIT pause only ever makes a run slower.
+	// Baselines depend on the machine, so record them with -record on the machine that runs the gate.
+	public static final double DEFAULT_THRESHOLD = 0.25;
+
+	private final String name;
+	private final LayoutMode layout;
+	private final long seed;
+	private final int numParticles, numShips, numChains, chainLength;
+
+	public LoadTestScenario(String name, LayoutMode layout, long seed, int numParticles, int numShips, int numChains,
+			int chainLength) {
+		this.name = name;
+		this.layout = layout;
+		this.seed = seed;
+		this.numParticles = numParticles;
+		this.numShips = numShips;
+		this.numChains = numChains;
+		this.chainLength = chainLength;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// the same scenario with another seed and number of loose particles
+	public LoadTestScenario withSeed(long seed, int numParticles) {
+		return new LoadTestScenario(name, layout, seed, numParticles, numShips, numChains, chainLength);
+	}
+
+	public static List<LoadTestScenario> standardScenarios() {
+		List<LoadTestScenario> scenarios = new ArrayList<LoadTestScenario>();
+		scenarios.add(new LoadTestScenario("pinball", LayoutMode.PINBALL_ARENA, 1, 400, 4, 4, 20));
+		scenarios.add(new LoadTestScenario("snooker", LayoutMode.SNOOKER_TABLE, 2, 150, 0, 0, 0));
+		scenarios.add(new LoadTestScenario("concave", LayoutMode.CONCAVE_ARENA, 3, 300, 2, 8, 15));
+		scenarios.add(new LoadTestScenario("thrust", LayoutMode.THRUST_ARENA, 4, 200, 8, 4, 25));
+		return scenarios;
+	}
+
+	// the ships' controls, one ShipInput each, re-rolled every CONTROL_PERIOD updates
+	private static final int CONTROL_PERIOD = 200;
+	private final List<ShipInput> shipInputs = new ArrayList<ShipInput>();
+	private Random controlRandom;
+
+	public BasicPhysicsEngine build() {
+		BasicPhysicsEngine game = new BasicPhysicsEngine(layout);
+		Random random = new Random(seed);
+		controlRandom = new Random(seed + 1);
+		shipInputs.clear();
+		double[] region = freeRegion(game);
+		for (int i = 0; i < numParticles; i++) {
+			double r = 0.04 + random.nextDouble() * 0.06;
+			double[] at = place(game, random, region, r);
+			if (at != null)
+				game.particles.add(new BasicParticle(at[0], at[1], random.nextGaussian(), random.nextGaussian(), r, true, Color.ORANGE,
+						r * 100, 0));
+		}
+		for (int i = 0; i < numShips; i++) {
+			double[] at = place(game, random, region, 0.1);
+			if (at == null)
+				continue;
+			ControllableSpaceShip ship = new ControllableSpaceShip(at[0], at[1], 0, 0, 0.1, true, 10000);
+			ship.setExhaustEmitter(game.exhaust);
+			ShipInput input = new ShipInput();
+			ship.setInput(input);
+			shipInputs.add(input);
+			game.particles.add(ship);
+		}
+		// chains start out straight, horizontal and at their rest length, and fall from there
+		for (int c = 0; c < numChains; c++) {
+			double spacing = 0.08;
+			double[] at = placeChain(game, random, region, chainLength, spacing, 0.03);
+			if (at == null)
+				continue;
+			int first = game.particles.size();
+			for (int k = 0; k < chainLength; k++)
+				game.particles.add(new BasicParticle(at[0] + k * spacing, at[1], 0, 0, 0.03, true, Color.YELLOW, 0.5,
+						BasicPhysicsEngine.rollingFriction));
+			for (int k = 1; k < chainLength; k++)
+				game.connectorNetwork.addConnector(first + k - 1, first + k, spacing, BasicPhysicsEngine.springConstant / 100,
+						BasicPhysicsEngine.springDampingConstant / 100, false, null);
+		}
+		return game;
+	}
+
+	// the box around the layout's bounded barriers, inset a little
+	private static double[] freeRegion(BasicPhysicsEngine game) {
+		double[] region = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		double[] box = new double[4];
+		for (AnchoredBarrier b : game.barriers) {
+			b.getBoundingBox(box);
+			if (Double.isInfinite(box[0]) || Double.isInfinite(box[2]))
+				continue;
+			region[0] = Math.min(region[0], box[0]);
+			region[1] = Math.min(region[1], box[1]);
+			region[2] = Math.max(region[2], box[2]);
+			region[3] = Math.max(region[3], box[3]);
+		}
+		if (Double.isInfinite(region[0])) {
+			region[0] = region[1] = 0;
+			region[2] = BasicPhysicsEngine.WORLD_WIDTH;
+			region[3] = BasicPhysicsEngine.WORLD_HEIGHT;
+		}
+		region[0] += 0.2;
+		region[1] += 0.2;
+		region[2] -= 0.2;
+		region[3] -= 0.2;
+		return region;
+	}
+
+	// a random spot clear of barriers and other particles, or null after enough tries
+	private static double[] place(BasicPhysicsEngine game, Random random, double[] region, double r) {
+		return placeChain(game, random, region, 1, 0, r);
+	}
+
+	// the left end of a horizontal row of links circles spacing apart, each clear of barriers
+	// and other particles, or null after enough tries
+	private static double[] placeChain(BasicPhysicsEngine game, Random random, double[] region, int links, double spacing,
+			double r) {
+		double length = (links - 1) * spacing;
+		if (region[2] - region[0] < length)
+			return null;
+		Vector2D at = new Vector2D();
+		tries: for (int attempt = 0; attempt < 100; attempt++) {
+			double x = region[0] + random.nextDouble() * (region[2] - region[0] - length);
+			double y = region[1] + random.nextDouble() * (region[3] - region[1]);
+			for (int k = 0; k < links; k++) {
+				at.set(x + k * spacing, y);
+				if (!isClear(game, at, r))
+					continue tries;
+			}
+			return new double[] {x, y};
+		}
+		return null;
+	}
+
+	private static boolean isClear(BasicPhysicsEngine game, Vector2D at, double r) {
+		for (AnchoredBarrier b : game.barriers)
+			if (b.isCircleCollidingBarrier(at, r))
+				return false;
+		for (BasicParticle p : game.particles)
+			if (p.getPos().dist(at) < p.getRadius() + r)
+				return false;
+		return true;
+	}
+
+	public Result run(int warmupUpdates, int updates) {
+		BasicPhysicsEngine game = build();
+		for (int i = 0; i < warmupUpdates; i++)
+			step(game, i);
+		long[] nanos = new long[updates];
+		long start = System.nanoTime();
+		for (int i = 0; i < updates; i++) {
+			long t0 = System.nanoTime();
+			step(game, warmupUpdates + i);
+			nanos[i] = System.nanoTime() - t0;
+		}
+		long total = System.nanoTime() - start;
+		Arrays.sort(nanos);
+		return new Result(name, game.particles.size(), updates / (total / 1e9), nanos[nanos.length / 2] / 1e3,
+				nanos[Math.min(nanos.length - 1, (int) Math.ceil(nanos.length * 0.99) - 1)] / 1e3);
+	}
+
+	// one update of a world made by build(), steering the ships as run() does
+	public void step(BasicPhysicsEngine game, int update) {
+		if (update % CONTROL_PERIOD == 0)
+			for (ShipInput input : shipInputs)
+				input.setBits(controlRandom.nextInt(8));
+		game.update();
+	}
+
+	public static class Result {
+		public final String name;
+		public final int particles;
+		public final double updatesPerSecond, medianMicros, p99Micros;
+
+		Result(String name, int particles, double updatesPerSecond, double medianMicros, double p99Micros) {
+			this.name = name;
+			this.particles = particles;
+			this.updatesPerSecond = updatesPerSecond;
+			this.medianMicros = medianMicros;
+			this.p99Micros = p99Micros;
+		}
+
+		static Result best(Result a, Result b) {
+			return new Result(a.name, a.particles, Math.max(a.updatesPerSecond, b.updatesPerSecond), Math.min(a.medianMicros,
+					b.medianMicros), Math.min(a.p99Micros, b.p99Micros));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-10s %5d particles %9.0f updates/s  median %8.1f us  p99 %8.1f us", name, particles,
+					updatesPerSecond, medianMicros, p99Micros);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		// LoadTestScenario [-record] [-baseline file] [-threshold fraction] [-updates n] [-repeats n]
+		boolean record = false;
+		File baselineFile = new File("loadtest-baselines.properties");
+		double threshold = DEFAULT_THRESHOLD;
+		int updates = 5000, repeats = 3;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-record"))
+				record = true;
+			else if (args[i].equals("-baseline"))
+				baselineFile = new File(args[++i]);
+			else if (args[i].equals("-threshold"))
+				threshold = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-updates"))
+				updates = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-repeats"))
+				repeats = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+		}
+		Properties baselines = new Properties();
+		if (!record) {
+			if (!baselineFile.exists()) {
+				System.out.println("no baselines in " + baselineFile + "; run with -record first");
+				System.exit(1);
+			}
+			InputStream in = new FileInputStream(baselineFile);
+			try {
+				baselines.load(in);
+			} finally {
+				in.close();
+			}
+		}
+
+		boolean failed = false;
+		for (LoadTestScenario scenario : standardScenarios()) {
+			Result result = scenario.run(updates / 5, updates);
+			for (int r = 1; r < repeats; r++)
+				result = Result.best(result, scenario.run(updates / 5, updates));
+			System.out.println(result);
+			String key = scenario.getName();
+			if (record) {
+				baselines.setProperty(key + ".updatesPerSecond", String.valueOf(result.updatesPerSecond));
+				baselines.setProperty(key + ".p99Micros", String.valueOf(result.p99Micros));
+				continue;
+			}
+			String rate = baselines.getProperty(key + ".updatesPerSecond"), p99 = baselines.getProperty(key + ".p99Micros");
+			if (rate == null || p99 == null) {
+				System.out.println("  no baseline for " + key);
+				failed = true;
+				continue;
+			}
+			double rateChange = result.updatesPerSecond / Double.parseDouble(rate) - 1;
+			double p99Change = result.p99Micros / Double.parseDouble(p99) - 1;
+			boolean regressed = rateChange < -threshold || p99Change > threshold;
+			System.out.println(String.format("  vs baseline: updates/s %+.1f%%, p99 %+.1f%%%s", rateChange * 100, p99Change * 100,
+					regressed ? "  REGRESSION" : ""));
+			failed |= regressed;
+		}
+		if (record) {
+			OutputStream out = new FileOutputStream(baselineFile);
+			try {
+				baselines.store(out, "LoadTestScenario baselines");
+			} finally {
+				out.close();
+			}
+			System.out.println("baselines written to " + baselineFile);
+		} else if (failed) {
+			System.out.println(String.format("FAILED: regression beyond %.0f%%", threshold * 100));
+			System.exit(1);
+		}
+	}
+}
@@ -20,6 +20,18 @@ public class ParticleAttachedToMousePointer extends BasicParticle {
 		setPos(new Vector2D(BasicMouseListener.getWorldCoordinatesOfMousePointer()));
 	}
 
+	@Override
+	public boolean hasCustomIntegration() {
+		return true;
+	}
+
+	// the engine's ForcePipeline calls this instead of update(): forces don't move this
+	// particle, it just follows the mouse
+	@Override
+	public void integrate() {
+		setPos(new Vector2D(BasicMouseListener.getWorldCoordinatesOfMousePointer()));
+	}
+
 
 
 }
@@ -0,0 +1,147 @@
+package pbgLecture4lab;
+
+import static pbgLecture4lab.BasicPhysicsEngine.DELTA_T;
+import static pbgLecture4lab.BasicPhysicsEngine.GRAVITY;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.List;
+import java.util.Random;
+
+public class ParticleEmitter {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Short-lived cosmetic particles (ship exhaust, crash debris) kept in a fixed-capacity
+	// ring pool of primitive arrays.  They never collide with each other or with BasicParticles,
+	// only optionally with barriers.  Spawning and expiring never allocate: a spawn takes the
+	// next slot of the ring, overwriting the oldest particle if the pool is full.
+
+	private final int capacity;
+	private final double[] posX, posY, velX, velY, age, lifetime;
+	private int next = 0;
+	private int numAlive = 0;
+
+	private final double radius;
+	private final double gravityScale;
+	private final double drag;
+	private final boolean collidesWithBarriers;
+	// colours to fade through from birth to expiry, drawn one colour at a time
+	private final Color[] palette;
+	private final Random random;
+
+	// reused so barrier collision tests don't allocate
+	private final Vector2D scratchPos = new Vector2D(), scratchVel = new Vector2D();
+
+	public ParticleEmitter(int capacity, double radius, double gravityScale, double drag, boolean collidesWithBarriers,
+			Color[] palette, long seed) {
+		this.capacity = capacity;
+		this.posX = new double[capacity];
+		this.posY = new double[capacity];
+		this.velX = new double[capacity];
+		this.velY = new double[capacity];
+		this.age = new double[capacity];
+		this.lifetime = new double[capacity];
+		this.radius = radius;
+		this.gravityScale = gravityScale;
+		this.drag = drag;
+		this.collidesWithBarriers = collidesWithBarriers;
+		this.palette = palette;
+		this.random = new Random(seed);
+	}
+
+	public static ParticleEmitter createExhaust() {
+		return new ParticleEmitter(4096, 0.02, 0.2, 2, true, new Color[] { Color.YELLOW, Color.ORANGE, Color.RED, Color.DARK_GRAY }, 1);
+	}
+
+	public static ParticleEmitter createDebris() {
+		return new ParticleEmitter(2048, 0.03, 1, 0.2, true, new Color[] { Color.WHITE, Color.CYAN, Color.BLUE }, 2);
+	}
+
+	public void emit(double x, double y, double vx, double vy, double lifetime) {
+		int i = next;
+		next = (next + 1) % capacity;
+		if (!(age[i] < this.lifetime[i]))
+			numAlive++;
+		posX[i] = x;
+		posY[i] = y;
+		velX[i] = vx;
+		velY[i] = vy;
+		age[i] = 0;
+		this.lifetime[i] = lifetime;
+	}
+
+	// emits count particles in a cone around direction angle (radians, anticlockwise from +x)
+	public void emitSpray(int count, double x, double y, double baseVx, double baseVy, double angle, double spread,
+			double speed, double lifetime) {
+		for (int k = 0; k < count; k++) {
+			double a = angle + (random.nextDouble() - 0.5) * spread;
+			double s = speed * (0.5 + random.nextDouble());
+			emit(x, y, baseVx + s * Math.cos(a), baseVy + s * Math.sin(a), lifetime * (0.5 + random.nextDouble()));
+		}
+	}
+
+	public void update(List<AnchoredBarrier> barriers) {
+		if (numAlive == 0)
+			return;
+		double dragFactor = Math.max(0, 1 - drag * DELTA_T);
+		double dvy = -GRAVITY * gravityScale * DELTA_T;
+		for (int i = 0; i < capacity; i++) {
+			if (!(age[i] < lifetime[i]))
+				continue;
+			age[i] += DELTA_T;
+			if (!(age[i] < lifetime[i])) {
+				numAlive--;
+				continue;
+			}
+			// basic Euler with linear drag; there are no other forces on these particles
+			posX[i] += velX[i] * DELTA_T;
+			posY[i] += velY[i] * DELTA_T;
+			velX[i] *= dragFactor;
+			velY[i] = velY[i] * dragFactor + dvy;
+			if (collidesWithBarriers) {
+				scratchPos.set(posX[i], posY[i]);
+				for (AnchoredBarrier b : barriers) {
+					if (b.isCircleCollidingBarrier(scratchPos, radius)) {
+						scratchVel.set(velX[i], velY[i]);
+						b.bounceVelocity(scratchPos, scratchVel);
+						velX[i] = scratchVel.x;
+						velY[i] = scratchVel.y;
+					}
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < capacity; i++)
+			age[i] = lifetime[i] = 0;
+		numAlive = 0;
+	}
+
+	public int getNumAlive() {
+		return numAlive;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void draw(Graphics2D g) {
+		if (numAlive == 0)
+			return;
+		int size = Math.max(1, 2 * BasicPhysicsEngine.convertWorldLengthToScreenLength(radius));
+		int half = size / 2;
+		// one pass per palette colour so the colour is only set palette.length times per frame
+		for (int c = 0; c < palette.length; c++) {
+			g.setColor(palette[c]);
+			for (int i = 0; i < capacity; i++) {
+				if (!(age[i] < lifetime[i]) || (int) (age[i] / lifetime[i] * palette.length) != c)
+					continue;
+				int x = BasicPhysicsEngine.convertWorldXtoScreenX(posX[i]);
+				int y = BasicPhysicsEngine.convertWorldYtoScreenY(posY[i]);
+				g.fillRect(x - half, y - half, size, size);
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package pbgLecture4lab;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public abstract class ParticleKernels {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The engine's innermost per-particle loops, over primitive arrays: adding weight and
+	// rolling friction, integrating positions and velocities, and testing candidate particle
+	// pairs for overlap.  Each is a plain loop over the arrays with no calls or allocation,
+	// which the JIT can pack into SIMD instructions where the elements are independent.
+	// ParticleKernels_Scalar does one element per loop pass, with the same arithmetic as the
+	// code it replaced; ParticleKernels_Unrolled tests four pairs per pass.  Both do the same
+	// arithmetic in the same order, so their results are identical to the last bit.
+	//
+	// select() picks one at startup: the unrolled set unless the system property
+	// thrust.kernels is "scalar", or unless the unrolled set disagrees with the scalar one
+	// on a small self-check, in which case it falls back to scalar.
+
+	private static final ParticleKernels SELECTED = select();
+
+	// the kernels chosen at startup
+	public static ParticleKernels get() {
+		return SELECTED;
+	}
+
+	public static ParticleKernels select() {
+		ParticleKernels scalar = new ParticleKernels_Scalar();
+		if ("scalar".equals(System.getProperty("thrust.kernels")))
+			return scalar;
+		ParticleKernels unrolled = new ParticleKernels_Unrolled();
+		String difference = compare(unrolled, scalar, 61, new Random(1));
+		if (difference != null) {
+			System.err.println("unrolled particle kernels disagree (" + difference + "), using scalar ones");
+			return scalar;
+		}
+		return unrolled;
+	}
+
+	public abstract String getName();
+
+	// forceX[i] += mass[i] * accelerationX, and the same for y, for i < n
+	public abstract void addWeight(double[] mass, double[] forceX, double[] forceY, int n, double accelerationX,
+			double accelerationY);
+
+	// force -= rollingFriction[i] * mass[i] * velocity, for i < n
+	public abstract void addRollingFriction(double[] rollingFriction, double[] mass, double[] velX, double[] velY,
+			double[] forceX, double[] forceY, int n);
+
+	// moves elements from .. to - 1 on by dt under their forces, as BasicParticle.integrate
+	// does, with improved Euler or basic Euler
+	public abstract void integrate(double[] posX, double[] posY, double[] velX, double[] velY, double[] forceX,
+			double[] forceY, double[] inverseMass, int from, int to, double dt, boolean improvedEuler);
+
+	// puts the index k of each pair (pairA[k], pairB[k]) whose circles overlap into hits, in
+	// order, and returns how many there are; hits must have room for numPairs
+	public abstract int findOverlaps(int[] pairA, int[] pairB, int numPairs, double[] x, double[] y, double[] radius,
+			int[] hits);
+
+	// runs every kernel of both sets on the same random data; null if they agree exactly,
+	// otherwise which kernel differed
+	public static String compare(ParticleKernels a, ParticleKernels b, int n, Random random) {
+		double[] mass = new double[n], friction = new double[n], inverseMass = new double[n], radius = new double[n];
+		double[] posX = new double[n], posY = new double[n], velX = new double[n], velY = new double[n];
+		for (int i = 0; i < n; i++) {
+			mass[i] = 0.5 + random.nextDouble() * 10;
+			inverseMass[i] = 1 / mass[i];
+			friction[i] = random.nextInt(3) == 0 ? 0 : random.nextDouble();
+			radius[i] = 0.05 + random.nextDouble() * 0.2;
+			posX[i] = random.nextDouble() * 10;
+			posY[i] = random.nextDouble() * 10;
+			velX[i] = random.nextGaussian() * 3;
+			velY[i] = random.nextGaussian() * 3;
+		}
+		double[][] forces = new double[4][];
+		for (int s = 0; s < 2; s++) {
+			ParticleKernels kernels = s == 0 ? a : b;
+			double[] forceX = new double[n], forceY = new double[n];
+			kernels.addWeight(mass, forceX, forceY, n, 0.3, -9.8);
+			kernels.addRollingFriction(friction, mass, velX, velY, forceX, forceY, n);
+			forces[2 * s] = forceX;
+			forces[2 * s + 1] = forceY;
+		}
+		if (!Arrays.equals(forces[0], forces[2]) || !Arrays.equals(forces[1], forces[3]))
+			return "weight and rolling friction";
+
+		for (int improved = 0; improved < 2; improved++) {
+			double[][] state = new double[8][];
+			for (int s = 0; s < 2; s++) {
+				double[] px = posX.clone(), py = posY.clone(), vx = velX.clone(), vy = velY.clone();
+				(s == 0 ? a : b).integrate(px, py, vx, vy, forces[0], forces[1], inverseMass, 1, n, 0.001, improved == 1);
+				state[4 * s] = px;
+				state[4 * s + 1] = py;
+				state[4 * s + 2] = vx;
+				state[4 * s + 3] = vy;
+			}
+			for (int k = 0; k < 4; k++)
+				if (!Arrays.equals(state[k], state[k + 4]))
+					return improved == 1 ? "improved Euler integration" : "basic Euler integration";
+		}
+
+		int numPairs = n * 4;
+		int[] pairA = new int[numPairs], pairB = new int[numPairs], hitsA = new int[numPairs], hitsB = new int[numPairs];
+		for (int k = 0; k < numPairs; k++) {
+			pairA[k] = random.nextInt(n);
+			pairB[k] = random.nextInt(n);
+		}
+		int foundA = a.findOverlaps(pairA, pairB, numPairs, posX, posY, radius, hitsA);
+		int foundB = b.findOverlaps(pairA, pairB, numPairs, posX, posY, radius, hitsB);
+		if (foundA != foundB || !Arrays.equals(Arrays.copyOf(hitsA, foundA), Arrays.copyOf(hitsB, foundB)))
+			return "pair overlaps";
+		return null;
+	}
+
+	// checks the unrolled kernels against the scalar ones, then times both
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		ParticleKernels scalar = new ParticleKernels_Scalar(), unrolled = new ParticleKernels_Unrolled();
+		Random random = new Random(7);
+		for (int trial = 0; trial < 20; trial++) {
+			String difference = compare(unrolled, scalar, 1 + random.nextInt(n), random);
+			if (difference != null) {
+				System.out.println("FAILED: " + difference + " differ");
+				System.exit(1);
+			}
+		}
+		System.out.println("unrolled and scalar kernels agree exactly on 20 random sets");
+		System.out.println("selected at startup: " + get().getName());
+
+		double[] mass = new double[n], friction = new double[n], inverseMass = new double[n], radius = new double[n];
+		double[] posX = new double[n], posY = new double[n], velX = new double[n], velY = new double[n];
+		double[] forceX = new double[n], forceY = new double[n];
+		for (int i = 0; i < n; i++) {
+			mass[i] = 1 + random.nextDouble();
+			inverseMass[i] = 1 / mass[i];
+			friction[i] = random.nextDouble();
+			radius[i] = 0.1;
+			posX[i] = random.nextDouble() * 100;
+			posY[i] = random.nextDouble() * 100;
+		}
+		int numPairs = n * 8;
+		int[] pairA = new int[numPairs], pairB = new int[numPairs], hits = new int[numPairs];
+		for (int k = 0; k < numPairs; k++) {
+			// pairs of particles near each other, as the grid finds them, about half overlapping
+			pairA[k] = random.nextInt(n);
+			pairB[k] = (pairA[k] + 1 + random.nextInt(2)) % n;
+		}
+		for (int i = 1; i < n; i++) {
+			posX[i] = posX[i - 1] + 0.1 + random.nextDouble() * 0.2;
+			posY[i] = 0;
+		}
+		// only the selected set is timed, so its calls stay monomorphic as they are in the engine;
+		// run again with -Dthrust.kernels=scalar for the other
+		ParticleKernels kernels = get();
+		double bestForces = Double.POSITIVE_INFINITY, bestOverlaps = Double.POSITIVE_INFINITY;
+		int found = 0;
+		for (int round = 0; round < 10; round++) {
+			long start = System.nanoTime();
+			for (int r = 0; r < repeats; r++) {
+				Arrays.fill(forceX, 0, n, 0);
+				Arrays.fill(forceY, 0, n, 0);
+				kernels.addWeight(mass, forceX, forceY, n, 0, -9.8);
+				kernels.addRollingFriction(friction, mass, velX, velY, forceX, forceY, n);
+				kernels.integrate(posX, posY, velX, velY, forceX, forceY, inverseMass, 0, n, 1e-9, true);
+			}
+			bestForces = Math.min(bestForces, (System.nanoTime() - start) / (double) repeats / n);
+			start = System.nanoTime();
+			for (int r = 0; r < repeats / 8; r++)
+				found = kernels.findOverlaps(pairA, pairB, numPairs, posX, posY, radius, hits);
+			bestOverlaps = Math.min(bestOverlaps, (System.nanoTime() - start) / (double) (repeats / 8) / numPairs);
+		}
+		System.out.printf("%s: weight, friction and integration %.2f ns/particle, overlaps %.2f ns/pair (%d of %d overlap)%n",
+				kernels.getName(), bestForces, bestOverlaps, found, numPairs);
+	}
+}
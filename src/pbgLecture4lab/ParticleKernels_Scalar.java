@@ -0,0 +1,67 @@
+package pbgLecture4lab;
+
+public class ParticleKernels_Scalar extends ParticleKernels {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// One element per loop pass; the reference the unrolled kernels are checked against.
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void addWeight(double[] mass, double[] forceX, double[] forceY, int n, double accelerationX,
+			double accelerationY) {
+		for (int i = 0; i < n; i++) {
+			forceX[i] += mass[i] * accelerationX;
+			forceY[i] += mass[i] * accelerationY;
+		}
+	}
+
+	@Override
+	public void addRollingFriction(double[] rollingFriction, double[] mass, double[] velX, double[] velY,
+			double[] forceX, double[] forceY, int n) {
+		for (int i = 0; i < n; i++) {
+			double k = rollingFriction[i] * mass[i];
+			forceX[i] -= k * velX[i];
+			forceY[i] -= k * velY[i];
+		}
+	}
+
+	@Override
+	public void integrate(double[] posX, double[] posY, double[] velX, double[] velY, double[] forceX,
+			double[] forceY, double[] inverseMass, int from, int to, double dt, boolean improvedEuler) {
+		if (improvedEuler) {
+			// the mean of the velocities at the start and end of the step, with constant acceleration
+			for (int i = from; i < to; i++) {
+				double ax = forceX[i] * inverseMass[i], ay = forceY[i] * inverseMass[i];
+				posX[i] += (velX[i] + ax * dt + velX[i]) * 0.5 * dt;
+				posY[i] += (velY[i] + ay * dt + velY[i]) * 0.5 * dt;
+				velX[i] += ax * dt;
+				velY[i] += ay * dt;
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				posX[i] += velX[i] * dt;
+				posY[i] += velY[i] * dt;
+				velX[i] += forceX[i] * inverseMass[i] * dt;
+				velY[i] += forceY[i] * inverseMass[i] * dt;
+			}
+		}
+	}
+
+	@Override
+	public int findOverlaps(int[] pairA, int[] pairB, int numPairs, double[] x, double[] y, double[] radius,
+			int[] hits) {
+		int found = 0;
+		for (int k = 0; k < numPairs; k++) {
+			int a = pairA[k], b = pairB[k];
+			double dx = x[b] - x[a], dy = y[b] - y[a], radii = radius[a] + radius[b];
+			if (dx * dx + dy * dy < radii * radii)
+				hits[found++] = k;
+		}
+		return found;
+	}
+}
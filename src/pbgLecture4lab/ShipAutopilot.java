@@ -0,0 +1,244 @@
+package pbgLecture4lab;
+
+import static pbgLecture4lab.BasicPhysicsEngine.DELTA_T;
+import static pbgLecture4lab.BasicPhysicsEngine.GRAVITY;
+import static pbgLecture4lab.BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ShipAutopilot {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Plans a ControllableSpaceShip's controls by simulating many candidate input
+	// sequences forward from the current state and keeping the best one.  Re-planned
+	// every frame; the previous best plan, shifted by one frame, is always evaluated first
+	// and seeds the mutations, so the planner keeps improving one plan rather than starting over.
+	//
+	// The world clone is just the ship's position, velocity and angle in primitives:
+	// barriers are immutable and shared between rollouts, and other particles are
+	// ignored, so a rollout never allocates more than one small state object.
+	// Rollouts run on a ForkJoinPool and stop starting new ones once the frame's time
+	// budget is used up.
+
+	// rollouts evaluated per task before splitting stops
+	private static final int ROLLOUTS_PER_TASK = 8;
+	private static final double CRASH_PENALTY = 1000;
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final ControllableSpaceShip ship;
+	private final List<AnchoredBarrier> barriers;
+	private final ShipInput input = new ShipInput();
+	private final int horizon; // frames simulated per rollout
+	private final int numCandidates;
+	private final long budgetNanos;
+	private final Random random = new Random(1);
+
+	// candidate input bits, [candidate][frame]; candidate 0 is the warm start
+	private final int[][] candidates;
+	private final double[] scores;
+	private final int[] bestPlan;
+	private double targetX, targetY;
+
+	private double startX, startY, startVx, startVy, startAngle;
+	private long deadline;
+
+	private long totalRollouts, totalPlanNanos, plans;
+
+	public ShipAutopilot(ControllableSpaceShip ship, List<AnchoredBarrier> barriers, int horizon, int numCandidates,
+			long budgetNanos) {
+		this.ship = ship;
+		this.barriers = barriers;
+		this.horizon = horizon;
+		this.numCandidates = numCandidates;
+		this.budgetNanos = budgetNanos;
+		this.candidates = new int[numCandidates][horizon];
+		this.scores = new double[numCandidates];
+		this.bestPlan = new int[horizon];
+		ship.setInput(input);
+		setTarget(ship.getPos().x, ship.getPos().y);
+	}
+
+	public void setTarget(double x, double y) {
+		targetX = x;
+		targetY = y;
+	}
+
+	public ShipInput getInput() {
+		return input;
+	}
+
+	// call once per screen refresh, before the frame's updates
+	public void plan() {
+		long start = System.nanoTime();
+		deadline = start + budgetNanos;
+		startX = ship.getPos().x;
+		startY = ship.getPos().y;
+		startVx = ship.getVel().x;
+		startVy = ship.getVel().y;
+		startAngle = ship.getAngle();
+
+		// warm start: last frame's best plan advanced by one frame
+		System.arraycopy(bestPlan, 1, candidates[0], 0, horizon - 1);
+		candidates[0][horizon - 1] = bestPlan[horizon - 1];
+		for (int c = 1; c < numCandidates; c++)
+			mutate(candidates[0], candidates[c], c < numCandidates / 2);
+
+		scores[0] = rollout(candidates[0]);
+		int evaluated = 1;
+		if (numCandidates > 1) {
+			RolloutTask task = new RolloutTask(1, numCandidates);
+			POOL.invoke(task);
+			evaluated += task.evaluated;
+		}
+		int best = 0;
+		for (int c = 1; c < numCandidates; c++)
+			if (scores[c] < scores[best])
+				best = c;
+		System.arraycopy(candidates[best], 0, bestPlan, 0, horizon);
+		input.setBits(bestPlan[0]);
+
+		totalRollouts += evaluated;
+		totalPlanNanos += System.nanoTime() - start;
+		plans++;
+	}
+
+	// small changes to the warm start for the first half of the candidates, fresh random plans for the rest
+	private void mutate(int[] source, int[] dest, boolean small) {
+		if (small) {
+			System.arraycopy(source, 0, dest, 0, horizon);
+			int from = random.nextInt(horizon);
+			int to = Math.min(horizon, from + 1 + random.nextInt(horizon / 4 + 1));
+			int bits = random.nextInt(8);
+			for (int f = from; f < to; f++)
+				dest[f] = bits;
+		} else {
+			// piecewise constant controls, which are closer to how a player flies
+			int f = 0;
+			while (f < horizon) {
+				int bits = random.nextInt(8);
+				int len = 1 + random.nextInt(Math.max(1, horizon / 3));
+				for (int end = Math.min(horizon, f + len); f < end; f++)
+					dest[f] = bits;
+			}
+		}
+	}
+
+	// lower is better; Double.POSITIVE_INFINITY means the rollout was skipped
+	private double rollout(int[] plan) {
+		if (System.nanoTime() > deadline)
+			return Double.POSITIVE_INFINITY;
+		ShipState s = new ShipState(startX, startY, startVx, startVy, startAngle);
+		double r = ship.getRadius();
+		double mass = ship.getMass();
+		double cost = 0;
+		for (int f = 0; f < horizon; f++) {
+			int bits = plan[f];
+			for (int i = 0; i < NUM_EULER_UPDATES_PER_SCREEN_REFRESH; i++) {
+				s.step(bits, mass);
+				for (AnchoredBarrier b : barriers) {
+					if (b.isCircleCollidingBarrier(s.pos, r))
+						return CRASH_PENALTY * (2 - (double) f / horizon) + distanceToTarget(s);
+				}
+			}
+			cost += distanceToTarget(s) / horizon;
+		}
+		double speed = Math.hypot(s.vel.x, s.vel.y);
+		return cost + distanceToTarget(s) + 0.1 * speed;
+	}
+
+	private double distanceToTarget(ShipState s) {
+		return Math.hypot(s.pos.x - targetX, s.pos.y - targetY);
+	}
+
+	// the same dynamics as ControllableSpaceShip.update followed by BasicParticle.update
+	private static class ShipState {
+		final Vector2D pos, vel;
+		double angle;
+
+		ShipState(double x, double y, double vx, double vy, double angle) {
+			this.pos = new Vector2D(x, y);
+			this.vel = new Vector2D(vx, vy);
+			this.angle = angle;
+		}
+
+		void step(int bits, double mass) {
+			if ((bits & ShipInput.ROTATE_LEFT) != 0)
+				angle += ControllableSpaceShip.STEER_RATE * DELTA_T;
+			if ((bits & ShipInput.ROTATE_RIGHT) != 0)
+				angle -= ControllableSpaceShip.STEER_RATE * DELTA_T;
+			double ax = 0, ay = -GRAVITY;
+			if ((bits & ShipInput.THRUST) != 0) {
+				double thrust = ControllableSpaceShip.MAGNITUDE_OF_ENGINE_THRUST_FORCE / mass;
+				ax -= thrust * Math.sin(angle);
+				ay += thrust * Math.cos(angle);
+			}
+			// improved Euler with constant acceleration, as in BasicParticle
+			pos.x += (vel.x + 0.5 * ax * DELTA_T) * DELTA_T;
+			pos.y += (vel.y + 0.5 * ay * DELTA_T) * DELTA_T;
+			vel.x += ax * DELTA_T;
+			vel.y += ay * DELTA_T;
+		}
+	}
+
+	private class RolloutTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		int evaluated;
+
+		RolloutTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= ROLLOUTS_PER_TASK) {
+				for (int c = from; c < to; c++) {
+					scores[c] = rollout(candidates[c]);
+					if (scores[c] != Double.POSITIVE_INFINITY)
+						evaluated++;
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			RolloutTask left = new RolloutTask(from, mid), right = new RolloutTask(mid, to);
+			invokeAll(left, right);
+			evaluated = left.evaluated + right.evaluated;
+		}
+	}
+
+	public double getRolloutsPerSecond() {
+		return totalPlanNanos == 0 ? 0 : totalRollouts / (totalPlanNanos / 1e9);
+	}
+
+	public String formatReport() {
+		return String.format("%d plans, %.1f rollouts per plan, %.0f rollouts/s, %.2f ms per plan (%d frames x %d candidates)",
+				plans, plans == 0 ? 0 : (double) totalRollouts / plans, getRolloutsPerSecond(),
+				plans == 0 ? 0 : totalPlanNanos / 1e6 / plans, horizon, numCandidates);
+	}
+
+	public static void main(String[] args) {
+		// headless planner load: ShipAutopilot [frames] [candidates] [horizon] [budgetMillis]
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int numCandidates = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int horizon = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		long budgetMillis = args.length > 3 ? Long.parseLong(args[3]) : BasicPhysicsEngine.DELAY / 2;
+		BasicPhysicsEngine game = new BasicPhysicsEngine();
+		ControllableSpaceShip ship = (ControllableSpaceShip) game.particles.get(0);
+		ShipAutopilot autopilot = new ShipAutopilot(ship, game.barriers, horizon, numCandidates, budgetMillis * 1000000);
+		// fly towards the ball waiting on the start pad
+		Vector2D ball = game.particles.get(1).getPos();
+		autopilot.setTarget(ball.x, ball.y + 1);
+		for (int frame = 1; frame <= frames; frame++) {
+			autopilot.plan();
+			for (int i = 0; i < NUM_EULER_UPDATES_PER_SCREEN_REFRESH; i++)
+				game.update();
+			if (frame % 100 == 0)
+				System.out.println("frame " + frame + ": ship at " + ship.getPos() + ", " + autopilot.formatReport());
+		}
+	}
+}
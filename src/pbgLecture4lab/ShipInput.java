@@ -0,0 +1,41 @@
+package pbgLecture4lab;
+
+public class ShipInput {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// The controls of one ControllableSpaceShip, so that a ship can be driven by
+	// something other than the keyboard (a network client, an autopilot, ...).
+	public static final int ROTATE_LEFT = 1, ROTATE_RIGHT = 2, THRUST = 4;
+
+	public boolean rotateLeft, rotateRight, thrust;
+
+	public ShipInput() {
+	}
+
+	public ShipInput(int bits) {
+		setBits(bits);
+	}
+
+	public void readKeyboard() {
+		rotateLeft = BasicKeyListener.isRotateLeftKeyPressed();
+		rotateRight = BasicKeyListener.isRotateRightKeyPressed();
+		thrust = BasicKeyListener.isThrustKeyPressed();
+	}
+
+	public int getBits() {
+		return (rotateLeft ? ROTATE_LEFT : 0) | (rotateRight ? ROTATE_RIGHT : 0) | (thrust ? THRUST : 0);
+	}
+
+	public void setBits(int bits) {
+		rotateLeft = (bits & ROTATE_LEFT) != 0;
+		rotateRight = (bits & ROTATE_RIGHT) != 0;
+		thrust = (bits & THRUST) != 0;
+	}
+
+	public void set(ShipInput other) {
+		rotateLeft = other.rotateLeft;
+		rotateRight = other.rotateRight;
+		thrust = other.thrust;
+	}
+}
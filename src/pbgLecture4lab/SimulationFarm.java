@@ -0,0 +1,590 @@
+package pbgLecture4lab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class SimulationFarm implements Runnable {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Spreads headless BasicPhysicsEngine runs over worker JVMs, each with its own heap and
+	// garbage collector, on this host or others.  A work unit is one LoadTestScenario with its
+	// own seed and number of loose particles, run for a number of updates; the worker sends
+	// back a small Result record for it.
+	//
+	// Workers (SimulationFarmWorker) connect to the farm's port: the farm can fork them on this
+	// host, and more can be started by hand on other hosts.  Networking is non-blocking NIO on
+	// the farm's own thread, as in ThrustServer, and every message is an int length followed
+	// by the payload:
+	//   HELLO     worker->farm  type, worker id (-1 if not forked by the farm), slots
+	//   WORK      farm->worker  type, unit id, scenario, seed, particles, updates
+	//   CANCEL    farm->worker  type, unit id
+	//   RESULT    worker->farm  type, Result record
+	//   HEARTBEAT worker->farm  type
+	//   SHUTDOWN  farm->worker  type
+	//
+	// Each worker holds up to its number of slots of units: the one it is running and the
+	// rest queued behind it, so it never waits on the network between units.  Once the farm's
+	// own queue is empty, a worker with a free slot steals the last queued unit of the worker
+	// with the most queued; that worker is told to drop it, and should it have started the
+	// unit already, the first result to arrive is kept.
+	//
+	// A worker that disconnects, or sends nothing for WORKER_TIMEOUT_MILLIS while it holds
+	// work, is taken to be dead: its units go back to the front of the queue.  A unit is given
+	// up once MAX_ATTEMPTS workers have died running it, while units that were only queued
+	// behind it go back without penalty.  A forked worker that dies is replaced.
+	public static final byte MSG_HELLO = 1, MSG_WORK = 2, MSG_CANCEL = 3, MSG_RESULT = 4, MSG_HEARTBEAT = 5, MSG_SHUTDOWN = 6;
+	public static final int DEFAULT_PORT = 4456;
+	public static final int DEFAULT_SLOTS = 2;
+	public static final int MAX_ATTEMPTS = 3;
+	public static final long WORKER_TIMEOUT_MILLIS = 10000;
+	// workers send a heartbeat at least this often while running a unit
+	public static final long HEARTBEAT_MILLIS = 1000;
+
+	// one scenario run
+	public static class WorkUnit {
+		public final int id, scenario, particles, updates;
+		public final long seed;
+		// filled in by the farm
+		Result result;
+		boolean failed;
+		int losses;
+		WorkerConnection holder;
+
+		public WorkUnit(int id, int scenario, long seed, int particles, int updates) {
+			this.id = id;
+			this.scenario = scenario;
+			this.seed = seed;
+			this.particles = particles;
+			this.updates = updates;
+		}
+
+		public Result getResult() {
+			return result;
+		}
+
+		public boolean isFailed() {
+			return failed;
+		}
+	}
+
+	// what a worker reports for one unit: the state the world ended in, and a hash of every
+	// particle's position and velocity, which is the same however often the unit is run
+	public static class Result {
+		public int unitId, particles, updates, contacts;
+		public long nanos, fingerprint;
+		public float kineticEnergy, centreX, centreY, maxSpeed;
+		// the worker that sent it
+		public int workerId;
+
+		void write(ByteBuffer out) {
+			VarInt.writeUnsigned(out, unitId);
+			VarInt.writeUnsigned(out, particles);
+			VarInt.writeUnsigned(out, updates);
+			VarInt.writeUnsigned(out, contacts);
+			VarInt.writeUnsignedLong(out, nanos);
+			out.putLong(fingerprint);
+			out.putFloat(kineticEnergy);
+			out.putFloat(centreX);
+			out.putFloat(centreY);
+			out.putFloat(maxSpeed);
+		}
+
+		static Result read(ByteBuffer in) {
+			Result r = new Result();
+			r.unitId = VarInt.readUnsigned(in);
+			r.particles = VarInt.readUnsigned(in);
+			r.updates = VarInt.readUnsigned(in);
+			r.contacts = VarInt.readUnsigned(in);
+			r.nanos = VarInt.readUnsignedLong(in);
+			r.fingerprint = in.getLong();
+			r.kineticEnergy = in.getFloat();
+			r.centreX = in.getFloat();
+			r.centreY = in.getFloat();
+			r.maxSpeed = in.getFloat();
+			return r;
+		}
+	}
+
+	private final List<WorkUnit> units;
+	private final ArrayDeque<WorkUnit> queue = new ArrayDeque<WorkUnit>();
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final List<WorkerConnection> workers = new ArrayList<WorkerConnection>();
+
+	// forked local workers, by worker id
+	private final List<Process> processes = new ArrayList<Process>();
+	private String workerHeap;
+	private int workerSlots = DEFAULT_SLOTS;
+	private int respawnsLeft;
+	private int killAfter = -1;
+
+	// metrics, all cumulative since run() started
+	private long startNanos, endNanos;
+	private int completed, failed;
+	private long retries, steals, duplicates, mismatches, respawns, bytesReceived;
+	private long simulatedUpdates, particleUpdates, workerNanos;
+
+	public SimulationFarm(int port, List<WorkUnit> units) throws IOException {
+		this.units = units;
+		queue.addAll(units);
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	// starts worker JVMs on this host, connecting over loopback; heap is an -Xmx size or null
+	public void forkLocalWorkers(int count, String heap, int slots) throws IOException {
+		workerHeap = heap;
+		workerSlots = slots;
+		respawnsLeft = count * MAX_ATTEMPTS;
+		for (int i = 0; i < count; i++)
+			processes.add(startWorker(i));
+	}
+
+	// destroys the first forked worker once this many results are in, to try out recovery
+	public void setKillAfter(int results) {
+		killAfter = results;
+	}
+
+	private Process startWorker(int id) throws IOException {
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+		List<String> command = new ArrayList<String>();
+		command.add(java);
+		command.add("-Djava.awt.headless=true");
+		if (workerHeap != null)
+			command.add("-Xmx" + workerHeap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(SimulationFarmWorker.class.getName());
+		command.add("localhost");
+		command.add(String.valueOf(getPort()));
+		command.add(String.valueOf(id));
+		command.add(String.valueOf(workerSlots));
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.inheritIO();
+		return builder.start();
+	}
+
+	@Override
+	public void run() {
+		startNanos = System.nanoTime();
+		try {
+			while (completed + failed < units.size()) {
+				selector.select(100);
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					WorkerConnection worker = (WorkerConnection) key.attachment();
+					try {
+						if (key.isReadable())
+							worker.read();
+						if (key.isValid() && key.isWritable())
+							worker.flush();
+					} catch (IOException e) {
+						disconnect(worker);
+					}
+				}
+				checkWorkers();
+				assign();
+			}
+			endNanos = System.nanoTime();
+			for (WorkerConnection worker : workers) {
+				try {
+					worker.beginFrame().put(MSG_SHUTDOWN);
+					worker.endFrame();
+				} catch (IOException e) {
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			close();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			WorkerConnection worker = new WorkerConnection(channel);
+			worker.key = channel.register(selector, SelectionKey.OP_READ, worker);
+			workers.add(worker);
+		}
+	}
+
+	// hands out queued units, then stolen ones, to every worker with a free slot
+	private void assign() {
+		for (WorkerConnection worker : new ArrayList<WorkerConnection>(workers)) {
+			while (worker.outstanding.size() < worker.slots) {
+				WorkUnit unit = queue.pollFirst();
+				if (unit == null)
+					unit = steal(worker);
+				if (unit == null)
+					break;
+				try {
+					send(worker, unit);
+				} catch (IOException e) {
+					disconnect(worker);
+					break;
+				}
+			}
+		}
+	}
+
+	private WorkUnit steal(WorkerConnection thief) {
+		WorkerConnection victim = null;
+		for (WorkerConnection worker : workers)
+			if (worker != thief && worker.outstanding.size() > 1
+					&& (victim == null || worker.outstanding.size() > victim.outstanding.size()))
+				victim = worker;
+		if (victim == null)
+			return null;
+		// the first unit a worker holds is the one it is running; the last has waited least
+		WorkUnit unit = victim.outstanding.remove(victim.outstanding.size() - 1);
+		try {
+			cancel(victim, unit);
+		} catch (IOException e) {
+			disconnect(victim);
+		}
+		steals++;
+		return unit;
+	}
+
+	private void send(WorkerConnection worker, WorkUnit unit) throws IOException {
+		worker.outstanding.add(unit);
+		unit.holder = worker;
+		ByteBuffer out = worker.beginFrame();
+		out.put(MSG_WORK);
+		out.putInt(unit.id);
+		out.putInt(unit.scenario);
+		out.putLong(unit.seed);
+		out.putInt(unit.particles);
+		out.putInt(unit.updates);
+		worker.endFrame();
+	}
+
+	private void cancel(WorkerConnection worker, WorkUnit unit) throws IOException {
+		ByteBuffer out = worker.beginFrame();
+		out.put(MSG_CANCEL);
+		out.putInt(unit.id);
+		worker.endFrame();
+	}
+
+	private void receive(WorkerConnection worker, Result result) {
+		result.workerId = worker.id;
+		if (result.unitId < 0 || result.unitId >= units.size())
+			return;
+		WorkUnit unit = units.get(result.unitId);
+		worker.outstanding.remove(unit);
+		if (unit.result != null || unit.failed) {
+			// a stolen unit its first worker had already started
+			duplicates++;
+			if (unit.result != null && unit.result.fingerprint != result.fingerprint)
+				mismatches++;
+			return;
+		}
+		unit.result = result;
+		completed++;
+		worker.completed++;
+		simulatedUpdates += result.updates;
+		particleUpdates += (long) result.updates * result.particles;
+		workerNanos += result.nanos;
+		if (unit.holder != null && unit.holder != worker) {
+			unit.holder.outstanding.remove(unit);
+			try {
+				cancel(unit.holder, unit);
+			} catch (IOException e) {
+				disconnect(unit.holder);
+			}
+		}
+		unit.holder = null;
+		if (completed == killAfter && !processes.isEmpty())
+			processes.get(0).destroy();
+	}
+
+	private void disconnect(WorkerConnection worker) {
+		if (!workers.remove(worker))
+			return;
+		worker.key.cancel();
+		try {
+			worker.channel.close();
+		} catch (IOException e) {
+		}
+		// back to the front of the queue, in the order they were handed out.  Only the first
+		// unit was running, so only it can have killed the worker; the rest were just waiting.
+		for (int i = worker.outstanding.size() - 1; i >= 0; i--) {
+			WorkUnit unit = worker.outstanding.get(i);
+			unit.holder = null;
+			if (i == 0 && ++unit.losses >= MAX_ATTEMPTS) {
+				unit.failed = true;
+				failed++;
+			} else {
+				queue.addFirst(unit);
+				retries++;
+			}
+		}
+		worker.outstanding.clear();
+	}
+
+	private void checkWorkers() throws IOException {
+		long now = System.nanoTime();
+		for (WorkerConnection worker : new ArrayList<WorkerConnection>(workers))
+			if (!worker.outstanding.isEmpty() && now - worker.lastHeardNanos > WORKER_TIMEOUT_MILLIS * 1000000L)
+				disconnect(worker);
+		for (int id = 0; id < processes.size(); id++) {
+			try {
+				int status = processes.get(id).exitValue();
+				if (respawnsLeft == 0) {
+					if (workers.isEmpty() && allExited())
+						throw new IllegalStateException("every worker has exited, the last with status " + status);
+					continue;
+				}
+				respawnsLeft--;
+				respawns++;
+				processes.set(id, startWorker(id));
+			} catch (IllegalThreadStateException e) {
+				// still running
+			}
+		}
+	}
+
+	private boolean allExited() {
+		for (Process process : processes) {
+			try {
+				process.exitValue();
+			} catch (IllegalThreadStateException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void close() {
+		for (WorkerConnection worker : workers)
+			worker.key.cancel();
+		for (WorkerConnection worker : new ArrayList<WorkerConnection>(workers)) {
+			try {
+				// let the shutdown message go before closing; a channel only blocks once deregistered
+				selector.selectNow();
+				worker.channel.configureBlocking(true);
+				worker.out.flip();
+				while (worker.out.hasRemaining())
+					worker.channel.write(worker.out);
+			} catch (IOException e) {
+			}
+			disconnect(worker);
+		}
+		try {
+			selector.close();
+			serverChannel.close();
+		} catch (IOException e) {
+		}
+		for (Process process : processes) {
+			try {
+				process.waitFor();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				process.destroy();
+			}
+		}
+	}
+
+	public List<WorkUnit> getUnits() {
+		return units;
+	}
+
+	public String formatReport() {
+		double seconds = ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1e9;
+		StringBuilder report = new StringBuilder(String.format(
+				"%d of %d units done, %d failed, in %.1f s: %.1f units/s, %.0f updates/s, %.3g particle updates/s%n", completed,
+				units.size(), failed, seconds, completed / seconds, simulatedUpdates / seconds, particleUpdates / seconds));
+		report.append(String.format("%d retried after a worker died, %d stolen, %d run twice (%d with different results), "
+				+ "%d workers replaced, %.0f bytes received per result", retries, steals, duplicates, mismatches, respawns,
+				completed == 0 ? 0.0 : (double) bytesReceived / completed));
+		return report.toString();
+	}
+
+	private class WorkerConnection {
+		final SocketChannel channel;
+		SelectionKey key;
+		ByteBuffer in = ByteBuffer.allocate(1024);
+		ByteBuffer out = ByteBuffer.allocate(1024);
+		int frameStart;
+		int id = -1;
+		// no work until the worker has said how much it takes
+		int slots = 0;
+		final List<WorkUnit> outstanding = new ArrayList<WorkUnit>();
+		long lastHeardNanos = System.nanoTime();
+		int completed;
+
+		WorkerConnection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void read() throws IOException {
+			int n;
+			while ((n = channel.read(in)) > 0) {
+				bytesReceived += n;
+				lastHeardNanos = System.nanoTime();
+				in.flip();
+				parseFrames();
+				in.compact();
+			}
+			if (n < 0)
+				throw new IOException("worker closed connection");
+		}
+
+		private void parseFrames() throws IOException {
+			while (in.remaining() >= 4) {
+				int len = in.getInt(in.position());
+				if (len <= 0 || len > in.capacity() - 4)
+					throw new IOException("bad frame length " + len);
+				if (in.remaining() < 4 + len)
+					return;
+				in.getInt();
+				int end = in.position() + len;
+				byte type = in.get();
+				if (type == MSG_HELLO) {
+					id = in.getInt();
+					slots = Math.max(1, in.getInt());
+				} else if (type == MSG_RESULT) {
+					receive(this, Result.read(in));
+				}
+				in.position(end);
+			}
+		}
+
+		// frames are added behind any still waiting to go; none is longer than 64 bytes
+		ByteBuffer beginFrame() {
+			if (out.remaining() < 64) {
+				ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+				out.flip();
+				bigger.put(out);
+				out = bigger;
+			}
+			frameStart = out.position();
+			out.putInt(0); // length placeholder
+			return out;
+		}
+
+		void endFrame() throws IOException {
+			out.putInt(frameStart, out.position() - frameStart - 4);
+			flush();
+		}
+
+		void flush() throws IOException {
+			out.flip();
+			channel.write(out);
+			out.compact();
+			key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		// SimulationFarm [-workers n] [-port p] [-heap size] [-slots n] [-scenarios name,name,...]
+		//   [-particles n,n,...] [-seeds n] [-updates n] [-kill-after results] [-results file.csv]
+		int numWorkers = Runtime.getRuntime().availableProcessors(), port = DEFAULT_PORT, seeds = 4, updates = 2000;
+		int killAfter = -1, slots = DEFAULT_SLOTS;
+		String heap = null, scenarioNames = null, particleCounts = "100,400";
+		File resultsFile = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-workers"))
+				numWorkers = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-port"))
+				port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-heap"))
+				heap = args[++i];
+			else if (args[i].equals("-slots"))
+				slots = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-scenarios"))
+				scenarioNames = args[++i];
+			else if (args[i].equals("-particles"))
+				particleCounts = args[++i];
+			else if (args[i].equals("-seeds"))
+				seeds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-updates"))
+				updates = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-kill-after"))
+				killAfter = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-results"))
+				resultsFile = new File(args[++i]);
+			else
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+		}
+
+		List<LoadTestScenario> scenarios = LoadTestScenario.standardScenarios();
+		List<WorkUnit> units = new ArrayList<WorkUnit>();
+		for (int s = 0; s < scenarios.size(); s++) {
+			if (scenarioNames != null && !("," + scenarioNames + ",").contains("," + scenarios.get(s).getName() + ","))
+				continue;
+			for (String count : particleCounts.split(","))
+				for (int seed = 1; seed <= seeds; seed++)
+					units.add(new WorkUnit(units.size(), s, seed, Integer.parseInt(count.trim()), updates));
+		}
+		if (units.isEmpty())
+			throw new IllegalArgumentException("no scenario called " + scenarioNames);
+
+		SimulationFarm farm = new SimulationFarm(port, units);
+		farm.setKillAfter(killAfter);
+		farm.forkLocalWorkers(numWorkers, heap, slots);
+		System.out.println(String.format("%d units on port %d, %d local workers", units.size(), farm.getPort(), numWorkers));
+		farm.run();
+
+		PrintWriter csv = resultsFile == null ? null : new PrintWriter(resultsFile, "UTF-8");
+		if (csv != null)
+			csv.println("unit,scenario,seed,particles,updates,worker,ms,kinetic energy,centre x,centre y,max speed,contacts,fingerprint");
+		System.out.println("scenario   particles  runs  ms/run  mean kinetic energy");
+		for (int u = 0; u < units.size();) {
+			// the units of one scenario and particle count are next to each other
+			WorkUnit first = units.get(u);
+			int runs = 0;
+			double millis = 0, energy = 0;
+			for (; u < units.size() && units.get(u).scenario == first.scenario && units.get(u).particles == first.particles; u++) {
+				WorkUnit unit = units.get(u);
+				Result r = unit.result;
+				if (r == null)
+					continue;
+				runs++;
+				millis += r.nanos / 1e6;
+				energy += r.kineticEnergy;
+				if (csv != null)
+					csv.println(String.format("%d,%s,%d,%d,%d,%d,%.1f,%s,%s,%s,%s,%d,%016x", unit.id,
+							scenarios.get(unit.scenario).getName(), unit.seed, r.particles, r.updates, r.workerId, r.nanos / 1e6,
+							r.kineticEnergy, r.centreX, r.centreY, r.maxSpeed, r.contacts, r.fingerprint));
+			}
+			System.out.println(String.format("%-10s %9d %5d %7.0f %20.3f", scenarios.get(first.scenario).getName(),
+					first.particles, runs, runs == 0 ? 0 : millis / runs, runs == 0 ? 0 : energy / runs));
+		}
+		if (csv != null)
+			csv.close();
+		System.out.println(farm.formatReport());
+		if (farm.failed > 0)
+			System.exit(1);
+	}
+}
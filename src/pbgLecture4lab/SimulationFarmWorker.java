@@ -0,0 +1,159 @@
+package pbgLecture4lab;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+
+public class SimulationFarmWorker {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// One worker JVM of a SimulationFarm.  A reader thread takes messages from the farm, so
+	// that a cancel reaches units still queued while the main thread is busy running one; the
+	// main thread runs the units in the order they came and sends back a Result for each.
+	// The socket is blocking: a worker has one connection and nothing else to wait on.
+
+	private final SocketChannel channel;
+	private final int id, slots;
+	private final LinkedBlockingDeque<SimulationFarm.WorkUnit> queue = new LinkedBlockingDeque<SimulationFarm.WorkUnit>();
+	private final ByteBuffer out = ByteBuffer.allocate(256);
+	// the end of the queue: the reader thread has seen a shutdown or lost the farm
+	private static final SimulationFarm.WorkUnit STOP = new SimulationFarm.WorkUnit(-1, 0, 0, 0, 0);
+	private long lastSentNanos;
+
+	public SimulationFarmWorker(String host, int port, int id, int slots) throws IOException {
+		this.id = id;
+		this.slots = slots;
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+	}
+
+	public void run() throws IOException, InterruptedException {
+		beginFrame().put(SimulationFarm.MSG_HELLO);
+		out.putInt(id);
+		out.putInt(slots);
+		endFrame();
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					readMessages();
+				} catch (IOException e) {
+					// the farm has gone, so there is no one to send results to
+				}
+				queue.addFirst(STOP);
+			}
+		}, "farm reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		while (true) {
+			SimulationFarm.WorkUnit unit = queue.takeFirst();
+			if (unit == STOP)
+				break;
+			SimulationFarm.Result result = runUnit(unit);
+			ByteBuffer frame = beginFrame();
+			frame.put(SimulationFarm.MSG_RESULT);
+			result.write(frame);
+			endFrame();
+		}
+		channel.close();
+	}
+
+	private void readMessages() throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(256);
+		while (true) {
+			while (in.position() < 4 || in.position() < 4 + in.getInt(0))
+				if (channel.read(in) < 0)
+					throw new IOException("farm closed connection");
+			in.flip();
+			int len = in.getInt();
+			int end = in.position() + len;
+			byte type = in.get();
+			if (type == SimulationFarm.MSG_WORK) {
+				int unitId = in.getInt(), scenario = in.getInt();
+				long seed = in.getLong();
+				int particles = in.getInt(), updates = in.getInt();
+				queue.addLast(new SimulationFarm.WorkUnit(unitId, scenario, seed, particles, updates));
+			} else if (type == SimulationFarm.MSG_CANCEL) {
+				int unitId = in.getInt();
+				Iterator<SimulationFarm.WorkUnit> it = queue.iterator();
+				while (it.hasNext())
+					if (it.next().id == unitId)
+						it.remove();
+			} else if (type == SimulationFarm.MSG_SHUTDOWN) {
+				return;
+			}
+			in.position(end);
+			in.compact();
+		}
+	}
+
+	private SimulationFarm.Result runUnit(SimulationFarm.WorkUnit unit) throws IOException {
+		List<LoadTestScenario> scenarios = LoadTestScenario.standardScenarios();
+		LoadTestScenario scenario = scenarios.get(unit.scenario).withSeed(unit.seed, unit.particles);
+		long start = System.nanoTime();
+		BasicPhysicsEngine game = scenario.build();
+		for (int u = 0; u < unit.updates; u++) {
+			scenario.step(game, u);
+			if (System.nanoTime() - lastSentNanos > SimulationFarm.HEARTBEAT_MILLIS * 1000000L) {
+				beginFrame().put(SimulationFarm.MSG_HEARTBEAT);
+				endFrame();
+			}
+		}
+		SimulationFarm.Result result = new SimulationFarm.Result();
+		result.nanos = System.nanoTime() - start;
+		result.unitId = unit.id;
+		result.updates = unit.updates;
+		result.particles = game.particles.size();
+		result.contacts = game.contactSolver.getNumContacts();
+		double energy = 0, x = 0, y = 0, maxSpeed = 0, mass = 0;
+		// FNV-1a over the bits of every position and velocity
+		long fingerprint = 0xcbf29ce484222325L;
+		for (BasicParticle p : game.particles) {
+			double speed = p.getVel().mag();
+			energy += 0.5 * p.getMass() * speed * speed;
+			x += p.getMass() * p.getPos().x;
+			y += p.getMass() * p.getPos().y;
+			mass += p.getMass();
+			maxSpeed = Math.max(maxSpeed, speed);
+			fingerprint = (fingerprint ^ Double.doubleToLongBits(p.getPos().x)) * 0x100000001b3L;
+			fingerprint = (fingerprint ^ Double.doubleToLongBits(p.getPos().y)) * 0x100000001b3L;
+			fingerprint = (fingerprint ^ Double.doubleToLongBits(p.getVel().x)) * 0x100000001b3L;
+			fingerprint = (fingerprint ^ Double.doubleToLongBits(p.getVel().y)) * 0x100000001b3L;
+		}
+		result.kineticEnergy = (float) energy;
+		result.centreX = (float) (mass == 0 ? 0 : x / mass);
+		result.centreY = (float) (mass == 0 ? 0 : y / mass);
+		result.maxSpeed = (float) maxSpeed;
+		result.fingerprint = fingerprint;
+		return result;
+	}
+
+	private ByteBuffer beginFrame() {
+		out.clear();
+		out.putInt(0); // length placeholder
+		return out;
+	}
+
+	private void endFrame() throws IOException {
+		out.putInt(0, out.position() - 4);
+		out.flip();
+		while (out.hasRemaining())
+			channel.write(out);
+		lastSentNanos = System.nanoTime();
+	}
+
+	public static void main(String[] args) throws Exception {
+		// SimulationFarmWorker host port [id [slots]]
+		if (args.length < 2)
+			throw new IllegalArgumentException("usage: SimulationFarmWorker host port [id [slots]]");
+		int id = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+		int slots = args.length > 3 ? Integer.parseInt(args[3]) : SimulationFarm.DEFAULT_SLOTS;
+		new SimulationFarmWorker(args[0], Integer.parseInt(args[1]), id, slots).run();
+	}
+}
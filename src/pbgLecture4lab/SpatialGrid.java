@@ -0,0 +1,157 @@
+package pbgLecture4lab;
+
+import java.util.Arrays;
+
+public class SpatialGrid {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Uniform grid over axis-aligned bounding boxes, stored as flat int arrays
+	// (counting sort by cell), for finding the items that overlap a rectangle.
+	// Items are referred to by their index in the arrays passed to build.
+	// Items spanning several cells are listed in each; query removes the duplicates.
+	public static final int MAX_CELLS = 1 << 16;
+
+	private final double preferredCellSize;
+	private double cellSize;
+	private double originX, originY;
+	private int cols, rows;
+	private int[] cellStart = new int[1];
+	private int[] cellItems = new int[0];
+	private int[] cellCursor = new int[1];
+
+	private int numItems;
+	private int[] stamp = new int[0];
+	private int currentStamp = 0;
+	private int[] result = new int[16];
+	private int resultSize;
+
+	public SpatialGrid(double preferredCellSize) {
+		this.preferredCellSize = preferredCellSize;
+	}
+
+	public void build(int n, double[] minX, double[] minY, double[] maxX, double[] maxY) {
+		numItems = n;
+		if (stamp.length < n)
+			stamp = new int[Math.max(n, stamp.length * 2)];
+		double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+		double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			loX = Math.min(loX, minX[i]);
+			loY = Math.min(loY, minY[i]);
+			hiX = Math.max(hiX, maxX[i]);
+			hiY = Math.max(hiY, maxY[i]);
+		}
+		if (n == 0) {
+			loX = loY = hiX = hiY = 0;
+		}
+		originX = loX;
+		originY = loY;
+		cellSize = preferredCellSize;
+		double width = hiX - loX, height = hiY - loY;
+		while ((Math.floor(width / cellSize) + 1) * (Math.floor(height / cellSize) + 1) > MAX_CELLS)
+			cellSize *= 2;
+		cols = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+		int cells = cols * rows;
+		if (cellStart.length < cells + 1) {
+			cellStart = new int[cells + 1];
+			cellCursor = new int[cells + 1];
+		} else {
+			Arrays.fill(cellStart, 0, cells + 1, 0);
+		}
+		// count, prefix sum, fill
+		int total = 0;
+		for (int i = 0; i < n; i++) {
+			int c0 = col(minX[i]), c1 = col(maxX[i]), r0 = row(minY[i]), r1 = row(maxY[i]);
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					cellStart[r * cols + c + 1]++;
+			total += (c1 - c0 + 1) * (r1 - r0 + 1);
+		}
+		for (int c = 0; c < cells; c++)
+			cellStart[c + 1] += cellStart[c];
+		if (cellItems.length < total)
+			cellItems = new int[Math.max(total, cellItems.length * 2)];
+		System.arraycopy(cellStart, 0, cellCursor, 0, cells);
+		for (int i = 0; i < n; i++) {
+			int c0 = col(minX[i]), c1 = col(maxX[i]), r0 = row(minY[i]), r1 = row(maxY[i]);
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					cellItems[cellCursor[r * cols + c]++] = i;
+		}
+	}
+
+	// Direct, read-only access to the cells.  Unlike query this keeps no state, so several
+	// threads can search the same grid at once, but an item spanning several cells is seen once per cell.
+	public int colOf(double x) {
+		return col(x);
+	}
+
+	public int rowOf(double y) {
+		return row(y);
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	public int getCellStart(int col, int row) {
+		return cellStart[row * cols + col];
+	}
+
+	public int getCellEnd(int col, int row) {
+		return cellStart[row * cols + col + 1];
+	}
+
+	public int getCellItem(int k) {
+		return cellItems[k];
+	}
+
+	public boolean isEmpty() {
+		return numItems == 0;
+	}
+
+	private int col(double x) {
+		int c = (int) ((x - originX) / cellSize);
+		return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+	}
+
+	private int row(double y) {
+		int r = (int) ((y - originY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+	}
+
+	// returns the number of candidate items whose cells overlap the rectangle; read them with getResult.
+	// Candidates share a cell with the rectangle, so callers still test the exact bounds if they need to.
+	public int query(double minX, double minY, double maxX, double maxY) {
+		resultSize = 0;
+		if (numItems == 0 || maxX < originX || maxY < originY || minX > originX + cols * cellSize
+				|| minY > originY + rows * cellSize)
+			return 0;
+		if (++currentStamp == 0) {
+			Arrays.fill(stamp, 0);
+			currentStamp = 1;
+		}
+		int c0 = col(minX), c1 = col(maxX), r0 = row(minY), r1 = row(maxY);
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				int cell = r * cols + c;
+				for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+					int item = cellItems[k];
+					if (stamp[item] == currentStamp)
+						continue;
+					stamp[item] = currentStamp;
+					if (resultSize == result.length)
+						result = Arrays.copyOf(result, resultSize * 2);
+					result[resultSize++] = item;
+				}
+			}
+		}
+		return resultSize;
+	}
+
+	public int getResult(int i) {
+		return result[i];
+	}
+}
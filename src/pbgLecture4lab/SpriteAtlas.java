@@ -0,0 +1,122 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SpriteAtlas {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Pre-rendered images of ships and particles, so that drawing one is a single drawImage
+	// instead of a transform change and polygon fill, or an oval fill.
+	//
+	// Ships are rendered, with and without the thrust flame, at numAngles evenly spaced
+	// angles for each screen radius in use; a ship is drawn with the nearest angle.
+	// Particles are rendered once per screen radius and colour.  Images are made on first
+	// use and kept, so the first frame after a new size or colour appears is slower.
+	// Only used from the painting thread.
+	private final int numAngles;
+	// [thrust ? 1 : 0][angle index], per screen radius
+	private final Map<Integer, BufferedImage[][]> ships = new HashMap<Integer, BufferedImage[][]>();
+	private final Map<Long, BufferedImage> particles = new HashMap<Long, BufferedImage>();
+	// consecutive particles usually look alike, so the last lookup is remembered
+	private long lastParticleKey = -1;
+	private BufferedImage lastParticle;
+	private int lastShipRadius = -1;
+	private BufferedImage[][] lastShip;
+
+	public SpriteAtlas(int numAngles) {
+		this.numAngles = numAngles;
+	}
+
+	public int getNumAngles() {
+		return numAngles;
+	}
+
+	public void drawShip(Graphics2D g, ControllableSpaceShip ship) {
+		int radius = ship.SCREEN_RADIUS;
+		if (radius != lastShipRadius) {
+			lastShip = ships.get(radius);
+			if (lastShip == null) {
+				lastShip = new BufferedImage[2][numAngles];
+				ships.put(radius, lastShip);
+			}
+			lastShipRadius = radius;
+		}
+		int thrust = ship.isThrusting() ? 1 : 0;
+		int index = (int) Math.round(ship.getAngle() / (2 * Math.PI) * numAngles) % numAngles;
+		if (index < 0)
+			index += numAngles;
+		BufferedImage image = lastShip[thrust][index];
+		if (image == null)
+			image = lastShip[thrust][index] = renderShip(radius, thrust == 1, index * 2 * Math.PI / numAngles);
+		int x = BasicPhysicsEngine.convertWorldXtoScreenX(ship.getPos().x);
+		int y = BasicPhysicsEngine.convertWorldYtoScreenY(ship.getPos().y);
+		g.drawImage(image, x - image.getWidth() / 2, y - image.getHeight() / 2, null);
+	}
+
+	public void drawParticle(Graphics2D g, BasicParticle p) {
+		int radius = p.SCREEN_RADIUS;
+		long key = ((long) radius << 32) | (p.col.getRGB() & 0xFFFFFFFFL);
+		if (key != lastParticleKey) {
+			lastParticle = particles.get(key);
+			if (lastParticle == null) {
+				lastParticle = renderParticle(radius, p.col);
+				particles.put(key, lastParticle);
+			}
+			lastParticleKey = key;
+		}
+		int x = BasicPhysicsEngine.convertWorldXtoScreenX(p.getPos().x);
+		int y = BasicPhysicsEngine.convertWorldYtoScreenY(p.getPos().y);
+		// same placement as BasicParticle.draw's fillOval
+		g.drawImage(lastParticle, x - radius, y - radius, null);
+	}
+
+	public int getNumImages() {
+		int n = particles.size();
+		for (BufferedImage[][] frames : ships.values())
+			for (BufferedImage[] row : frames)
+				for (BufferedImage image : row)
+					if (image != null)
+						n++;
+		return n;
+	}
+
+	private BufferedImage renderShip(int radius, boolean thrust, double angle) {
+		// the ship's outline reaches 3.6 radii from its centre at most
+		int half = (int) Math.ceil(ControllableSpaceShip.SHAPE_EXTENT * radius) + 1;
+		BufferedImage image = createImage(2 * half + 1, 2 * half + 1);
+		Graphics2D g = image.createGraphics();
+		g.translate(half, half);
+		g.rotate(-angle);
+		g.scale(radius, radius);
+		ControllableSpaceShip.drawShape(g, thrust);
+		g.dispose();
+		return image;
+	}
+
+	private BufferedImage renderParticle(int radius, Color col) {
+		BufferedImage image = createImage(2 * radius + 1, 2 * radius + 1);
+		Graphics2D g = image.createGraphics();
+		g.setColor(col);
+		g.fillOval(0, 0, 2 * radius, 2 * radius);
+		g.dispose();
+		return image;
+	}
+
+	// an image in the screen's own format where possible, which the pipeline can blit fastest
+	private static BufferedImage createImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			return gc.createCompatibleImage(width, height, Transparency.BITMASK);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	}
+}
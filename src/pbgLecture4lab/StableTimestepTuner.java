@@ -0,0 +1,292 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class StableTimestepTuner {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Finds the largest stable timestep for each combination of spring constant, spring
+	// damping and Hooke's law truncation, so the game can ship with no more substeps than it needs.
+	//
+	// DELTA_T is fixed when BasicPhysicsEngine is loaded (it follows from
+	// NUM_EULER_UPDATES_PER_SCREEN_REFRESH, set with -Dthrust.substeps), so each timestep is
+	// tried in a JVM of its own.  Those child processes run in parallel, one per core, and
+	// each simulates the test scene for every spring configuration in turn.
+	//
+	// The scene is the game's tethered ship and ball in a plain rectangle, flown by a fixed
+	// pattern of thrust and steering; -rope n hangs a rope of n light links from the ball,
+	// whose stiff, light springs need far smaller timesteps.  A run is unstable if
+	//   - anything becomes NaN or infinite,
+	//   - the energy gained beyond what the engine's thrust has put in exceeds
+	//     BLOWUP_FRACTION of the scene's energy scale (mass * g * world height), or
+	//   - something tunnels: a particle leaves the arena, or its centre passes through a barrier.
+	// A configuration's largest stable timestep is the largest one for which it and every
+	// smaller timestep tried were stable.
+	public static final double BLOWUP_FRACTION = 0.1;
+	public static final int[] DEFAULT_SUBSTEPS = {1, 2, 3, 4, 5, 6, 8, 10, 12, 16, 20, 30, 40};
+	private static final double[] SPRING_CONSTANTS = {5000, 20000, 80000};
+	private static final double[] DAMPING_CONSTANTS = {0, 250, 1000, 4000};
+	private static final Double[] TRUNCATIONS = {null, 0.5};
+	private static final double ROPE_SPACING = 0.3;
+
+	public static class Configuration {
+		public final double springConstant, dampingConstant;
+		public final Double truncation;
+
+		Configuration(double springConstant, double dampingConstant, Double truncation) {
+			this.springConstant = springConstant;
+			this.dampingConstant = dampingConstant;
+			this.truncation = truncation;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("k %6.0f  damping %5.0f  truncation %4s", springConstant, dampingConstant, truncation == null ? "none"
+					: String.valueOf(truncation));
+		}
+	}
+
+	public static List<Configuration> configurations() {
+		List<Configuration> configurations = new ArrayList<Configuration>();
+		for (double k : SPRING_CONSTANTS)
+			for (double c : DAMPING_CONSTANTS)
+				for (Double t : TRUNCATIONS)
+					configurations.add(new Configuration(k, c, t));
+		return configurations;
+	}
+
+	// outcome of one run, as printed by a child process: STABLE, NAN, BLOWUP or TUNNELLED
+	static class Run {
+		final String outcome;
+		final double failedAtSeconds;
+
+		Run(String outcome, double failedAtSeconds) {
+			this.outcome = outcome;
+			this.failedAtSeconds = failedAtSeconds;
+		}
+
+		boolean isStable() {
+			return outcome.equals("STABLE");
+		}
+	}
+
+	// simulates the scene for the given number of seconds with this JVM's DELTA_T
+	static Run simulate(Configuration config, double seconds, int ropeLength) {
+		BasicPhysicsEngine game = new BasicPhysicsEngine(BasicPhysicsEngine.LayoutMode.RECTANGLE);
+		ControllableSpaceShip ship = (ControllableSpaceShip) game.particles.get(0);
+		BasicParticle ball = game.particles.get(1);
+		ship.getPos().set(BasicPhysicsEngine.WORLD_WIDTH / 2, BasicPhysicsEngine.WORLD_HEIGHT / 2);
+		ball.getPos().set(ship.getPos().x, ship.getPos().y - 1);
+		ShipInput input = new ShipInput();
+		ship.setInput(input);
+		game.connectors.add(new ElasticConnector(ship, ball, 1, config.springConstant, config.dampingConstant, false, Color.WHITE,
+				config.truncation));
+		BasicParticle previous = ball;
+		for (int i = 1; i <= ropeLength; i++) {
+			BasicParticle link = new BasicParticle(ball.getPos().x, ball.getPos().y - i * ROPE_SPACING, 0, 0, 0.05, true,
+					Color.YELLOW, 1, 0);
+			game.particles.add(link);
+			game.connectors.add(new ElasticConnector(previous, link, ROPE_SPACING, config.springConstant, config.dampingConstant,
+					false, Color.WHITE, config.truncation));
+			previous = link;
+		}
+
+		double[] bounds = new double[4], box = new double[4];
+		bounds[0] = bounds[1] = Double.POSITIVE_INFINITY;
+		bounds[2] = bounds[3] = Double.NEGATIVE_INFINITY;
+		for (AnchoredBarrier b : game.barriers) {
+			b.getBoundingBox(box);
+			bounds[0] = Math.min(bounds[0], box[0]);
+			bounds[1] = Math.min(bounds[1], box[1]);
+			bounds[2] = Math.max(bounds[2], box[2]);
+			bounds[3] = Math.max(bounds[3], box[3]);
+		}
+		double totalMass = 0;
+		for (BasicParticle p : game.particles)
+			totalMass += p.getMass();
+		double energyScale = totalMass * BasicPhysicsEngine.GRAVITY * BasicPhysicsEngine.WORLD_HEIGHT;
+		double initialEnergy = energy(game), thrustWork = 0;
+
+		double dt = BasicPhysicsEngine.DELTA_T;
+		int updatesPerFrame = BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH;
+		int frames = (int) Math.ceil(seconds / (dt * updatesPerFrame));
+		for (int frame = 0; frame < frames; frame++) {
+			// a quarter of a second each of: thrust, thrust turning left, coasting, thrust turning right
+			int phase = frame * 4 / (int) Math.round(1 / (dt * updatesPerFrame)) % 4;
+			input.setBits(phase == 2 ? 0 : ShipInput.THRUST | (phase == 1 ? ShipInput.ROTATE_LEFT : phase == 3 ? ShipInput.ROTATE_RIGHT : 0));
+			for (int u = 0; u < updatesPerFrame; u++) {
+				double vx = ship.getVel().x, vy = ship.getVel().y;
+				game.update();
+				if (input.thrust) {
+					// work done by the thrust over the update, from the ship's average velocity
+					double thrust = ControllableSpaceShip.MAGNITUDE_OF_ENGINE_THRUST_FORCE, angle = ship.getAngle();
+					thrustWork += thrust * (-Math.sin(angle) * (vx + ship.getVel().x) + Math.cos(angle) * (vy + ship.getVel().y)) / 2 * dt;
+				}
+				// a blow-up usually also throws particles through walls, so energy is checked first
+				double t = (frame * updatesPerFrame + u + 1) * dt;
+				double e = energy(game);
+				if (Double.isNaN(e) || Double.isInfinite(e))
+					return new Run("NAN", t);
+				if (e - initialEnergy - Math.max(thrustWork, 0) > BLOWUP_FRACTION * energyScale)
+					return new Run("BLOWUP", t);
+				for (BasicParticle p : game.particles) {
+					double x = p.getPos().x, y = p.getPos().y;
+					if (x < bounds[0] || x > bounds[2] || y < bounds[1] || y > bounds[3])
+						return new Run("TUNNELLED", t);
+				}
+				for (int c = 0; c < game.contactSolver.getNumContacts(); c++)
+					if (game.contactSolver.getPenetration(c) > game.particles.get(game.contactSolver.getParticle(c)).getRadius())
+						return new Run("TUNNELLED", t);
+			}
+		}
+		return new Run("STABLE", seconds);
+	}
+
+	// kinetic + gravitational + elastic energy
+	private static double energy(BasicPhysicsEngine game) {
+		double e = 0;
+		for (BasicParticle p : game.particles) {
+			Vector2D v = p.getVel();
+			e += 0.5 * p.getMass() * (v.x * v.x + v.y * v.y) + p.getMass() * BasicPhysicsEngine.GRAVITY * p.getPos().y;
+		}
+		for (ElasticConnector ec : game.connectors) {
+			double length = ec.getNaturalLength();
+			double extension = Math.abs(ec.getParticle1().getPos().dist(ec.getParticle2().getPos()) - length) / length;
+			Double t = ec.getHookesLawTruncation();
+			// integral of the (possibly truncated) Hooke's law tension over the extension
+			if (t == null || extension <= t)
+				e += ec.getSpringConstant() * length * extension * extension / 2;
+			else
+				e += ec.getSpringConstant() * length * (t * extension - t * t / 2);
+		}
+		return e;
+	}
+
+	// one child process: every configuration at this JVM's timestep, one RESULT line each
+	private static void runWorker(double seconds, int ropeLength) {
+		List<Configuration> configurations = configurations();
+		for (int i = 0; i < configurations.size(); i++) {
+			Run run = simulate(configurations.get(i), seconds, ropeLength);
+			System.out.println("RESULT " + i + " " + run.outcome + " " + run.failedAtSeconds);
+		}
+	}
+
+	private static Run[] runChild(int substeps, double seconds, int ropeLength) throws IOException, InterruptedException {
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+		ProcessBuilder builder = new ProcessBuilder(java, "-Djava.awt.headless=true", "-Dthrust.substeps=" + substeps, "-cp",
+				System.getProperty("java.class.path"), StableTimestepTuner.class.getName(), "-worker", "-seconds",
+				String.valueOf(seconds), "-rope", String.valueOf(ropeLength));
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		Run[] runs = new Run[configurations().size()];
+		BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split(" ");
+				if (fields.length == 4 && fields[0].equals("RESULT"))
+					runs[Integer.parseInt(fields[1])] = new Run(fields[2], Double.parseDouble(fields[3]));
+				else
+					System.err.println("[substeps " + substeps + "] " + line);
+			}
+		} finally {
+			in.close();
+		}
+		int status = process.waitFor();
+		for (int i = 0; i < runs.length; i++)
+			if (runs[i] == null)
+				throw new IOException("substeps " + substeps + ": no result for configuration " + i + " (exit status " + status + ")");
+		return runs;
+	}
+
+	public static void main(String[] args) throws Exception {
+		// StableTimestepTuner [-seconds s] [-substeps n,n,...] [-rope links] [-processes n]
+		double seconds = 5;
+		int ropeLength = 0;
+		int[] substeps = DEFAULT_SUBSTEPS;
+		int processes = Runtime.getRuntime().availableProcessors();
+		boolean worker = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-worker"))
+				worker = true;
+			else if (args[i].equals("-seconds"))
+				seconds = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-substeps")) {
+				String[] values = args[++i].split(",");
+				substeps = new int[values.length];
+				for (int k = 0; k < values.length; k++)
+					substeps[k] = Integer.parseInt(values[k].trim());
+			} else if (args[i].equals("-rope"))
+				ropeLength = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-processes"))
+				processes = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+		}
+		if (worker) {
+			runWorker(seconds, ropeLength);
+			return;
+		}
+
+		final int[] sweep = substeps.clone();
+		Arrays.sort(sweep);
+		final double duration = seconds;
+		final int rope = ropeLength;
+		List<Callable<Run[]>> children = new ArrayList<Callable<Run[]>>();
+		for (final int n : sweep)
+			children.add(new Callable<Run[]>() {
+				@Override
+				public Run[] call() throws Exception {
+					return runChild(n, duration, rope);
+				}
+			});
+		long t0 = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, processes));
+		Run[][] results = new Run[sweep.length][];
+		try {
+			List<Future<Run[]>> futures = pool.invokeAll(children);
+			for (int s = 0; s < sweep.length; s++)
+				results[s] = futures.get(s).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		double frameSeconds = BasicPhysicsEngine.DELAY / 1000.0 / 4;
+		int current = BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH;
+		System.out.println(String.format("%d timesteps x %d configurations, %.0f simulated seconds each, in %.1f s", sweep.length,
+				configurations().size(), seconds, (System.nanoTime() - t0) / 1e9));
+		List<Configuration> configurations = configurations();
+		for (int i = 0; i < configurations.size(); i++) {
+			// walk from the smallest timestep (most substeps) up to the first failure
+			int best = -1;
+			String failure = "";
+			for (int s = sweep.length - 1; s >= 0; s--) {
+				Run run = results[s][i];
+				if (!run.isStable()) {
+					failure = String.format("  (%s at %d substeps after %.2f s)", run.outcome, sweep[s], run.failedAtSeconds);
+					break;
+				}
+				best = s;
+			}
+			if (best < 0)
+				System.out.println(configurations.get(i) + "  : no stable timestep" + failure);
+			else
+				System.out.println(String.format("%s  : dt %.6f s, %2d substeps per refresh, %4.1fx the updates of %d%s",
+						configurations.get(i), frameSeconds / sweep[best], sweep[best], (double) sweep[best] / current, current, failure));
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package pbgLecture4lab;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class StateSnapshot {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Quantized state of every particle at one server tick.  Snapshots are sent as
+	// zigzag varint deltas against a baseline snapshot the receiver already has,
+	// so particles at rest cost one byte per field.
+	public static final double POSITION_SCALE = 1000; // millimetres
+	public static final double VELOCITY_SCALE = 1000; // millimetres per second
+	public static final double ANGLE_SCALE = 10000;
+	public static final int FIELDS_PER_PARTICLE = 5; // x, y, vx, vy, angle
+
+	private int tick = -1;
+	private int count;
+	private int[] values = new int[0];
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void capture(List<BasicParticle> particles, int tick) {
+		this.tick = tick;
+		count = particles.size();
+		ensureCapacity(count);
+		for (int i = 0; i < count; i++) {
+			BasicParticle p = particles.get(i);
+			int k = i * FIELDS_PER_PARTICLE;
+			values[k] = (int) Math.round(p.getPos().x * POSITION_SCALE);
+			values[k + 1] = (int) Math.round(p.getPos().y * POSITION_SCALE);
+			values[k + 2] = (int) Math.round(p.getVel().x * VELOCITY_SCALE);
+			values[k + 3] = (int) Math.round(p.getVel().y * VELOCITY_SCALE);
+			values[k + 4] = p instanceof ControllableSpaceShip
+					? (int) Math.round(((ControllableSpaceShip) p).getAngle() * ANGLE_SCALE) : 0;
+		}
+	}
+
+	public void copyFrom(StateSnapshot other) {
+		tick = other.tick;
+		count = other.count;
+		ensureCapacity(count);
+		System.arraycopy(other.values, 0, values, 0, count * FIELDS_PER_PARTICLE);
+	}
+
+	// upper bound on the bytes written by writeDelta
+	public int maxEncodedSize() {
+		return VarInt.MAX_BYTES * (1 + count * FIELDS_PER_PARTICLE);
+	}
+
+	// baseline may be null, in which case the full state is sent as deltas from zero
+	public void writeDelta(ByteBuffer buf, StateSnapshot baseline) {
+		VarInt.writeUnsigned(buf, count);
+		int baselineFields = baseline == null ? 0 : baseline.count * FIELDS_PER_PARTICLE;
+		int n = count * FIELDS_PER_PARTICLE;
+		for (int k = 0; k < n; k++)
+			VarInt.writeSigned(buf, values[k] - (k < baselineFields ? baseline.values[k] : 0));
+	}
+
+	public void readDelta(ByteBuffer buf, StateSnapshot baseline, int tick) {
+		this.tick = tick;
+		count = VarInt.readUnsigned(buf);
+		ensureCapacity(count);
+		int baselineFields = baseline == null ? 0 : baseline.count * FIELDS_PER_PARTICLE;
+		int n = count * FIELDS_PER_PARTICLE;
+		for (int k = 0; k < n; k++)
+			values[k] = VarInt.readSigned(buf) + (k < baselineFields ? baseline.values[k] : 0);
+	}
+
+	public void applyTo(int index, BasicParticle p) {
+		int k = index * FIELDS_PER_PARTICLE;
+		p.getPos().set(values[k] / POSITION_SCALE, values[k + 1] / POSITION_SCALE);
+		p.getVel().set(values[k + 2] / VELOCITY_SCALE, values[k + 3] / VELOCITY_SCALE);
+		if (p instanceof ControllableSpaceShip)
+			((ControllableSpaceShip) p).setAngle(values[k + 4] / ANGLE_SCALE);
+	}
+
+	public double getX(int index) {
+		return values[index * FIELDS_PER_PARTICLE] / POSITION_SCALE;
+	}
+
+	public double getY(int index) {
+		return values[index * FIELDS_PER_PARTICLE + 1] / POSITION_SCALE;
+	}
+
+	private void ensureCapacity(int particles) {
+		if (values.length < particles * FIELDS_PER_PARTICLE)
+			values = Arrays.copyOf(values, Math.max(particles * FIELDS_PER_PARTICLE, values.length * 2));
+	}
+}
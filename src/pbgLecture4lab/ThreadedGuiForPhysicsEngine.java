@@ -21,7 +21,8 @@ public class ThreadedGuiForPhysicsEngine {
 	}
 
 	private static JButton jButton_go;
-	private static Thread theThread;
+	// volatile, so that an old simulation thread sees it has been replaced and stops
+	private static volatile Thread theThread;
 	public static void main(String[] args) throws Exception {
 		BasicPhysicsEngine game = new BasicPhysicsEngine ();
 		final BasicView view = new BasicView(game);
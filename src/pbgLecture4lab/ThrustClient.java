@@ -0,0 +1,235 @@
+package pbgLecture4lab;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+public class ThrustClient {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Client for a ThrustServer session.  The client keeps its own copy of the world
+	// for drawing.  Its own ship is predicted locally from the controls it sends, and when
+	// an authoritative snapshot arrives the ship is reset to the server's state and the
+	// inputs the server hasn't processed yet are replayed on top (reconciliation).
+	private static final int INPUT_HISTORY = 256;
+
+	public final BasicPhysicsEngine world;
+	private final SocketChannel channel;
+	private final ByteBuffer in = ByteBuffer.allocate(1 << 20);
+	// messages not yet written to the socket, kept ready for more to be appended
+	private ByteBuffer out = ByteBuffer.allocate(64);
+
+	private int clientId = -1;
+	private int shipIndex = -1;
+	private final ShipInput predictedInput = new ShipInput();
+
+	// inputs sent but not yet acknowledged, and where prediction put the ship after each
+	private int inputSeq = -1;
+	private final int[] sentInputBits = new int[INPUT_HISTORY];
+	private final double[] predictedX = new double[INPUT_HISTORY], predictedY = new double[INPUT_HISTORY];
+
+	private final StateSnapshot[] received = new StateSnapshot[ThrustServer.SNAPSHOT_HISTORY];
+	private int lastReceivedTick = -1;
+
+	private long startNanos = System.nanoTime();
+	private long bytesReceived, bytesSent, snapshotsReceived, reconciliations;
+	private double totalPredictionError, maxPredictionError;
+
+	public ThrustClient(String host, int port) throws IOException {
+		world = new BasicPhysicsEngine();
+		for (int i = 0; i < received.length; i++)
+			received[i] = new StateSnapshot();
+		// every ship shown by the client is driven by snapshots, not the local keyboard
+		for (BasicParticle p : world.particles)
+			if (p instanceof ControllableSpaceShip)
+				((ControllableSpaceShip) p).setInput(new ShipInput());
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+		channel.configureBlocking(false);
+	}
+
+	public int getClientId() {
+		return clientId;
+	}
+
+	public int getShipIndex() {
+		return shipIndex;
+	}
+
+	// called once per server tick: reads any snapshots, sends the controls and predicts the own ship
+	public void tick(ShipInput controls) throws IOException {
+		poll();
+		flush();
+		if (shipIndex < 0)
+			return;
+		inputSeq++;
+		int bits = controls.getBits();
+		sentInputBits[inputSeq % INPUT_HISTORY] = bits;
+		if (out.remaining() < 14) {
+			// the server has stopped reading for a while; keep every message so the framing holds
+			ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+			out.flip();
+			bigger.put(out);
+			out = bigger;
+		}
+		out.putInt(10);
+		out.put(ThrustServer.MSG_INPUT);
+		out.putInt(inputSeq);
+		out.putInt(lastReceivedTick);
+		out.put((byte) bits);
+		flush();
+		ControllableSpaceShip ship = ownShip();
+		stepOwnShip(ship, bits);
+		predictedX[inputSeq % INPUT_HISTORY] = ship.getPos().x;
+		predictedY[inputSeq % INPUT_HISTORY] = ship.getPos().y;
+	}
+
+	// writes what the socket will take now; the rest goes on a later tick
+	private void flush() throws IOException {
+		out.flip();
+		bytesSent += channel.write(out);
+		out.compact();
+	}
+
+	public void poll() throws IOException {
+		int n;
+		while ((n = channel.read(in)) > 0) {
+			bytesReceived += n;
+			in.flip();
+			parseFrames();
+			in.compact();
+		}
+		if (n < 0)
+			throw new IOException("server closed connection");
+	}
+
+	private void parseFrames() throws IOException {
+		while (in.remaining() >= 4) {
+			int len = in.getInt(in.position());
+			if (len <= 0 || len > in.capacity() - 4)
+				throw new IOException("bad frame length " + len);
+			if (in.remaining() < 4 + len)
+				return;
+			in.getInt();
+			int end = in.position() + len;
+			byte type = in.get();
+			if (type == ThrustServer.MSG_WELCOME) {
+				clientId = in.getInt();
+				shipIndex = in.getInt();
+				in.getInt(); // tick rate
+			} else if (type == ThrustServer.MSG_SNAPSHOT) {
+				readSnapshot();
+			}
+			in.position(end);
+		}
+	}
+
+	private void readSnapshot() {
+		int tick = in.getInt();
+		int baselineTick = in.getInt();
+		int lastInputSeqApplied = in.getInt();
+		StateSnapshot baseline = null;
+		if (baselineTick >= 0) {
+			baseline = received[baselineTick % received.length];
+			if (baseline.getTick() != baselineTick)
+				throw new IllegalStateException("missing baseline snapshot " + baselineTick);
+		}
+		StateSnapshot snapshot = received[tick % received.length];
+		snapshot.readDelta(in, baseline, tick);
+		lastReceivedTick = tick;
+		snapshotsReceived++;
+		applySnapshot(snapshot, lastInputSeqApplied);
+	}
+
+	private void applySnapshot(StateSnapshot snapshot, int lastInputSeqApplied) {
+		ensureParticles(snapshot.getCount());
+		for (int i = 0; i < snapshot.getCount(); i++) {
+			if (i != shipIndex)
+				snapshot.applyTo(i, world.particles.get(i));
+		}
+		if (shipIndex < 0 || shipIndex >= snapshot.getCount())
+			return;
+		ControllableSpaceShip ship = ownShip();
+		if (lastInputSeqApplied >= 0 && inputSeq - lastInputSeqApplied < INPUT_HISTORY) {
+			double error = Math.hypot(predictedX[lastInputSeqApplied % INPUT_HISTORY] - snapshot.getX(shipIndex),
+					predictedY[lastInputSeqApplied % INPUT_HISTORY] - snapshot.getY(shipIndex));
+			totalPredictionError += error;
+			maxPredictionError = Math.max(maxPredictionError, error);
+		}
+		// reconcile: start from the authoritative state and replay the inputs the server hasn't seen
+		snapshot.applyTo(shipIndex, ship);
+		int firstUnacked = Math.max(lastInputSeqApplied + 1, inputSeq - INPUT_HISTORY + 1);
+		for (int seq = firstUnacked; seq <= inputSeq; seq++) {
+			stepOwnShip(ship, sentInputBits[seq % INPUT_HISTORY]);
+			predictedX[seq % INPUT_HISTORY] = ship.getPos().x;
+			predictedY[seq % INPUT_HISTORY] = ship.getPos().y;
+		}
+		reconciliations++;
+	}
+
+	// the server only ever appends player ships to the layout's particles.  This world is only
+	// drawn, never updated, so ships are added directly, holding the lock the view paints with
+	private void ensureParticles(int count) {
+		if (world.particles.size() >= count)
+			return;
+		synchronized (world.commands) {
+			while (world.particles.size() < count) {
+				ControllableSpaceShip ship = ThrustServer.createPlayerShip();
+				ship.setInput(new ShipInput());
+				ship.setExhaustEmitter(world.exhaust);
+				world.particles.add(ship);
+			}
+		}
+	}
+
+	private ControllableSpaceShip ownShip() {
+		ensureParticles(shipIndex + 1);
+		ControllableSpaceShip ship = (ControllableSpaceShip) world.particles.get(shipIndex);
+		if (ship.getInput() != predictedInput)
+			ship.setInput(predictedInput);
+		return ship;
+	}
+
+	// advances only the own ship by one server tick, colliding it with the barriers
+	private void stepOwnShip(ControllableSpaceShip ship, int bits) {
+		predictedInput.setBits(bits);
+		for (int i = 0; i < BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH; i++) {
+			ship.resetTotalForce();
+			ship.update();
+			for (AnchoredBarrier b : world.barriers) {
+				if (b.isCircleCollidingBarrier(ship.getPos(), ship.getRadius()))
+					b.bounceVelocity(ship.getPos(), ship.getVel());
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	public String formatReport() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return String.format("client %d: %.0f bytes/s down, %.0f bytes/s up, %d snapshots, prediction error mean %.4f m max %.4f m",
+				clientId, bytesReceived / seconds, bytesSent / seconds, snapshotsReceived,
+				reconciliations == 0 ? 0 : totalPredictionError / reconciliations, maxPredictionError);
+	}
+
+	public static void main(String[] args) throws Exception {
+		// usage: ThrustClient [host] [port]
+		String host = args.length > 0 ? args[0] : "127.0.0.1";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : ThrustServer.DEFAULT_PORT;
+		ThrustClient client = new ThrustClient(host, port);
+		BasicView view = new BasicView(client.world);
+		JEasyFrame frame = new JEasyFrame(view, "Thrust Game - client");
+		frame.addKeyListener(new BasicKeyListener());
+		ShipInput controls = new ShipInput();
+		while (true) {
+			controls.readKeyboard();
+			client.tick(controls);
+			view.repaint();
+			Thread.sleep(BasicPhysicsEngine.DELAY);
+		}
+	}
+}
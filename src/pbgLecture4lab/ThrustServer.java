@@ -0,0 +1,396 @@
+package pbgLecture4lab;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ThrustServer implements Runnable {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Authoritative server for shared Thrust sessions.  The server owns the
+	// BasicPhysicsEngine; clients only send their ship controls.  Every snapshot
+	// interval each client is sent the quantized world state, delta compressed
+	// against the last snapshot that client acknowledged.  Networking is
+	// non-blocking NIO driven from the simulation thread, so no locking is needed.
+	//
+	// Every message is framed as an int length followed by the payload:
+	//   WELCOME  server->client  type, clientId, shipIndex, tickRate
+	//   SNAPSHOT server->client  type, tick, baselineTick (-1 for none), last input seq applied, StateSnapshot delta
+	//   INPUT    client->server  type, input seq, last snapshot tick received, ShipInput bits
+	public static final byte MSG_WELCOME = 1, MSG_SNAPSHOT = 2, MSG_INPUT = 3;
+	// snapshots are kept this many ticks so that deltas can be built against any recent ack
+	public static final int SNAPSHOT_HISTORY = 64;
+	public static final int DEFAULT_PORT = 4455;
+
+	private final BasicPhysicsEngine game;
+	private final int tickRate;
+	private final int snapshotInterval;
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final List<ClientConnection> clients = new ArrayList<ClientConnection>();
+	private final StateSnapshot[] history = new StateSnapshot[SNAPSHOT_HISTORY];
+	private int tick = 0;
+	private int nextClientId = 0;
+	private volatile boolean running;
+
+	// metrics, all cumulative since start(); the run loop updates them holding the server's
+	// lock, so that formatReport() can be called from another thread
+	private long startNanos;
+	private long ticksRun, playerTicks, cpuNanos, totalBytesSent, snapshotsSent, snapshotsDropped;
+	private int players;
+
+	public ThrustServer(BasicPhysicsEngine game, int port, int tickRate, int snapshotsPerSecond) throws IOException {
+		if (snapshotsPerSecond <= 0 || snapshotsPerSecond > tickRate)
+			throw new IllegalArgumentException("snapshot rate must be between 1 and the tick rate");
+		this.game = game;
+		this.tickRate = tickRate;
+		this.snapshotInterval = tickRate / snapshotsPerSecond;
+		for (int i = 0; i < SNAPSHOT_HISTORY; i++)
+			history[i] = new StateSnapshot();
+		// ships not yet claimed by a client must not read the server's keyboard
+		for (BasicParticle p : game.particles)
+			if (p instanceof ControllableSpaceShip)
+				((ControllableSpaceShip) p).setInput(new ShipInput());
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public void run() {
+		running = true;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long period = 1000000000L / tickRate;
+		long nextTick = System.nanoTime();
+		synchronized (this) {
+			startNanos = nextTick;
+		}
+		try {
+			while (running) {
+				long cpuStart = threads.getCurrentThreadCpuTime();
+				pollNetwork();
+				for (int i = 0; i < BasicPhysicsEngine.NUM_EULER_UPDATES_PER_SCREEN_REFRESH; i++)
+					game.update();
+				tick++;
+				history[tick % SNAPSHOT_HISTORY].capture(game.particles, tick);
+				if (tick % snapshotInterval == 0)
+					broadcastSnapshot();
+				long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+				synchronized (this) {
+					cpuNanos += cpu;
+					ticksRun++;
+					playerTicks += clients.size();
+					players = clients.size();
+				}
+
+				nextTick += period;
+				long sleep = nextTick - System.nanoTime();
+				if (sleep > 0)
+					Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+				else
+					nextTick = System.nanoTime(); // running behind, don't try to catch up
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			close();
+		}
+	}
+
+	private void pollNetwork() throws IOException {
+		selector.selectNow();
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+			SelectionKey key = it.next();
+			it.remove();
+			if (!key.isValid())
+				continue;
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+			ClientConnection client = (ClientConnection) key.attachment();
+			try {
+				if (key.isReadable())
+					client.read();
+				if (key.isValid() && key.isWritable())
+					client.flush();
+			} catch (IOException e) {
+				disconnect(client);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			ClientConnection client = new ClientConnection(nextClientId++, channel, claimShip());
+			client.key = channel.register(selector, SelectionKey.OP_READ, client);
+			clients.add(client);
+			ByteBuffer out = client.beginFrame(16);
+			out.put(MSG_WELCOME);
+			out.putInt(client.id);
+			out.putInt(client.shipIndex);
+			out.putInt(tickRate);
+			try {
+				client.endFrame();
+			} catch (IOException e) {
+				disconnect(client);
+			}
+		}
+	}
+
+	// the first player takes over the layout's own ship, later players get a new ship each.
+	// New ships are spawned through the engine's command queue, applied straight away since
+	// this runs between updates, so the client can be told its ship's index.
+	private int claimShip() {
+		for (int i = 0; i < game.particles.size(); i++) {
+			if (game.particles.get(i) instanceof ControllableSpaceShip && !isShipOwned(i))
+				return i;
+		}
+		ControllableSpaceShip ship = createPlayerShip();
+		ship.setInput(new ShipInput());
+		ship.setExhaustEmitter(game.exhaust);
+		long handle = game.commands.spawn(ship);
+		game.commands.apply();
+		return game.commands.indexOf(handle);
+	}
+
+	private boolean isShipOwned(int index) {
+		for (ClientConnection c : clients)
+			if (c.shipIndex == index)
+				return true;
+		return false;
+	}
+
+	// ships the server adds for extra players; clients create the same kind of particle
+	// for any snapshot index they have not seen before
+	public static ControllableSpaceShip createPlayerShip() {
+		return new ControllableSpaceShip(1, BasicPhysicsEngine.WORLD_HEIGHT / 10 * 8.1, 0, 0, 0.1, true, 10000);
+	}
+
+	private void broadcastSnapshot() {
+		StateSnapshot current = history[tick % SNAPSHOT_HISTORY];
+		for (int i = clients.size() - 1; i >= 0; i--) {
+			ClientConnection client = clients.get(i);
+			if (client.hasPendingOutput()) {
+				// this client hasn't drained the previous snapshot yet; newer state supersedes it anyway
+				synchronized (this) {
+					snapshotsDropped++;
+				}
+				continue;
+			}
+			StateSnapshot baseline = null;
+			int ack = client.lastAckedTick;
+			if (ack >= 0 && tick - ack < SNAPSHOT_HISTORY && history[ack % SNAPSHOT_HISTORY].getTick() == ack)
+				baseline = history[ack % SNAPSHOT_HISTORY];
+			ByteBuffer out = client.beginFrame(16 + current.maxEncodedSize());
+			out.put(MSG_SNAPSHOT);
+			out.putInt(tick);
+			out.putInt(baseline == null ? -1 : ack);
+			out.putInt(client.lastInputSeq);
+			current.writeDelta(out, baseline);
+			try {
+				client.endFrame();
+				synchronized (this) {
+					snapshotsSent++;
+				}
+			} catch (IOException e) {
+				disconnect(client);
+			}
+		}
+	}
+
+	private void disconnect(ClientConnection client) {
+		clients.remove(client);
+		client.input.setBits(0);
+		client.key.cancel();
+		try {
+			client.channel.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private void close() {
+		for (ClientConnection c : new ArrayList<ClientConnection>(clients))
+			disconnect(c);
+		try {
+			selector.close();
+			serverChannel.close();
+		} catch (IOException e) {
+		}
+	}
+
+	public synchronized String formatReport() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		// bytes per player-tick times ticks per second, so clients that came and went count
+		// only for the ticks they were connected
+		return String.format("tick %d, %d players, %.0f bytes/s per client, %.1f us CPU per player-tick, %.1f us CPU per tick, %d snapshots sent, %d dropped",
+				ticksRun, players, playerTicks == 0 ? 0 : totalBytesSent / (double) playerTicks * ticksRun / seconds,
+				playerTicks == 0 ? 0 : cpuNanos / 1000.0 / playerTicks, ticksRun == 0 ? 0 : cpuNanos / 1000.0 / ticksRun,
+				snapshotsSent, snapshotsDropped);
+	}
+
+	private class ClientConnection {
+		final int id;
+		final SocketChannel channel;
+		final int shipIndex;
+		final ShipInput input;
+		SelectionKey key;
+		ByteBuffer in = ByteBuffer.allocate(1024);
+		ByteBuffer out = ByteBuffer.allocate(4096);
+		boolean pending = false;
+		int lastInputSeq = -1;
+		int lastAckedTick = -1;
+
+		ClientConnection(int id, SocketChannel channel, int shipIndex) {
+			this.id = id;
+			this.channel = channel;
+			this.shipIndex = shipIndex;
+			this.input = ((ControllableSpaceShip) game.particles.get(shipIndex)).getInput();
+		}
+
+		void read() throws IOException {
+			int n;
+			while ((n = channel.read(in)) > 0) {
+				if (!in.hasRemaining()) {
+					in.flip();
+					parseFrames();
+					in.compact();
+				}
+			}
+			in.flip();
+			parseFrames();
+			in.compact();
+			if (n < 0)
+				throw new IOException("client closed connection");
+		}
+
+		private void parseFrames() throws IOException {
+			while (in.remaining() >= 4) {
+				int len = in.getInt(in.position());
+				if (len <= 0 || len > in.capacity() - 4)
+					throw new IOException("bad frame length " + len);
+				if (in.remaining() < 4 + len)
+					return;
+				in.getInt();
+				int end = in.position() + len;
+				byte type = in.get();
+				if (type == MSG_INPUT) {
+					int seq = in.getInt();
+					int ack = in.getInt();
+					int bits = in.get();
+					if (seq > lastInputSeq) {
+						lastInputSeq = seq;
+						input.setBits(bits);
+					}
+					if (ack > lastAckedTick)
+						lastAckedTick = ack;
+				}
+				in.position(end);
+			}
+		}
+
+		boolean hasPendingOutput() {
+			return pending;
+		}
+
+		ByteBuffer beginFrame(int maxPayload) {
+			if (out.capacity() < maxPayload + 4)
+				out = ByteBuffer.allocate(Math.max(maxPayload + 4, out.capacity() * 2));
+			out.clear();
+			out.putInt(0); // length placeholder
+			return out;
+		}
+
+		void endFrame() throws IOException {
+			out.putInt(0, out.position() - 4);
+			out.flip();
+			pending = true;
+			flush();
+		}
+
+		void flush() throws IOException {
+			int written = channel.write(out);
+			synchronized (ThrustServer.this) {
+				totalBytesSent += written;
+			}
+			pending = out.hasRemaining();
+			key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		// usage: ThrustServer [port] [tickRate] [snapshotsPerSecond] [loopbackBots] [seconds]
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int tickRate = args.length > 1 ? Integer.parseInt(args[1]) : 1000 / BasicPhysicsEngine.DELAY;
+		int snapshotRate = args.length > 2 ? Integer.parseInt(args[2]) : tickRate;
+		int bots = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+		int seconds = args.length > 4 ? Integer.parseInt(args[4]) : Integer.MAX_VALUE;
+
+		final ThrustServer server = new ThrustServer(new BasicPhysicsEngine(), port, tickRate, snapshotRate);
+		final Thread serverThread = new Thread(server, "thrust-server");
+		serverThread.start();
+		final List<ThrustClient> botClients = new ArrayList<ThrustClient>();
+		for (int i = 0; i < bots; i++)
+			botClients.add(new ThrustClient("127.0.0.1", server.getPort()));
+		if (bots > 0) {
+			// loopback bots press random controls so that bandwidth and CPU can be measured headless
+			Thread botThread = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(1);
+					ShipInput controls = new ShipInput();
+					try {
+						while (serverThread.isAlive()) {
+							for (ThrustClient bot : botClients) {
+								controls.setBits(random.nextInt(8));
+								bot.tick(controls);
+							}
+							Thread.sleep(BasicPhysicsEngine.DELAY);
+						}
+					} catch (IOException e) {
+						// server has shut down
+					} catch (InterruptedException e) {
+					}
+				}
+			}, "thrust-bots");
+			botThread.setDaemon(true);
+			botThread.start();
+		}
+		for (int s = 0; s < seconds; s++) {
+			Thread.sleep(1000);
+			System.out.println(server.formatReport());
+			for (ThrustClient bot : botClients)
+				System.out.println("  " + bot.formatReport());
+		}
+		server.stop();
+		serverThread.join();
+		for (ThrustClient bot : botClients)
+			bot.close();
+	}
+}
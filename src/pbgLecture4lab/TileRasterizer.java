@@ -0,0 +1,282 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class TileRasterizer {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Draws plain particles as filled discs straight into the int[] behind a BufferedImage,
+	// so a frame with a huge number of particles costs the painting thread one drawImage
+	// instead of a fillOval each.
+	//
+	// render() first copies every visible particle's screen position, radius and colour
+	// into primitive arrays and bins it into each TILE_SIZE square tile its disc touches
+	// (a counting sort, so the bins are one flat array).  The tiles are then cleared and
+	// filled in parallel on a ForkJoinPool; no two tasks ever write the same pixel, and
+	// within a tile the particles are drawn in list order, so overlaps come out as they
+	// would with Graphics2D.  Each row of a disc is one span, measured once per radius from
+	// fillOval itself, so the discs have the shape BasicParticle.draw's have (Java2D rounds
+	// the odd edge pixel differently depending on where an oval is drawn).
+	// Ships and polygons are not drawn here: they are few, and drawn on top by the caller.
+	public static final int TILE_SIZE = 64;
+	// below this many particles the tiles are filled on the calling thread
+	public static final int PARALLEL_THRESHOLD = 2048;
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private BufferedImage image;
+	private int[] pixels;
+	private int width, height, tilesX, tilesY;
+	private int background = BasicView.BG_COLOR.getRGB();
+
+	// visible particles in screen space
+	private int numDiscs;
+	private int[] discX = new int[0], discY = new int[0], discRadius = new int[0], discRgb = new int[0];
+	// for a disc of radius r, row k of its box [x - r, x + r] by [y - r, y + r] covers
+	// columns x - r + spanFrom[r][k] to x - r + spanTo[r][k] - 1; taken from fillOval itself
+	private int[][] spanFrom = new int[0][], spanTo = new int[0][];
+	// discs in tile t are tileItems[tileStart[t]] .. tileItems[tileStart[t + 1] - 1]
+	private int[] tileStart = new int[1], tileFill = new int[0], tileItems = new int[0];
+
+	private final List<TileChunk> chunks = new ArrayList<TileChunk>();
+	private long lastRenderNanos;
+
+	public TileRasterizer() {
+		for (int i = 0; i < POOL.getParallelism(); i++)
+			chunks.add(new TileChunk(i, POOL.getParallelism()));
+	}
+
+	public void setBackground(Color col) {
+		background = col.getRGB();
+	}
+
+	// renders the disc particles onto a width x height background; the returned image is reused by the next call
+	public BufferedImage render(List<BasicParticle> particles, int width, int height) {
+		long start = System.nanoTime();
+		if (image == null || this.width != width || this.height != height)
+			allocate(Math.max(width, 1), Math.max(height, 1));
+		collect(particles);
+		bin();
+		if (numDiscs < PARALLEL_THRESHOLD) {
+			for (int t = 0, n = tilesX * tilesY; t < n; t++)
+				fillTile(t);
+		} else {
+			try {
+				for (Future<Void> result : POOL.invokeAll(chunks))
+					result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		lastRenderNanos = System.nanoTime() - start;
+		return image;
+	}
+
+	private void allocate(int width, int height) {
+		this.width = width;
+		this.height = height;
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		tileStart = new int[tilesX * tilesY + 1];
+		tileFill = new int[tilesX * tilesY];
+	}
+
+	private void collect(List<BasicParticle> particles) {
+		int n = particles.size();
+		if (discX.length < n) {
+			int capacity = Math.max(n, discX.length * 2);
+			discX = new int[capacity];
+			discY = new int[capacity];
+			discRadius = new int[capacity];
+			discRgb = new int[capacity];
+		}
+		numDiscs = 0;
+		for (int i = 0; i < n; i++) {
+			BasicParticle p = particles.get(i);
+			if (p instanceof ControllableSpaceShip || p instanceof ConvexPolygonBody)
+				continue;
+			Vector2D pos = p.getPos();
+			int x = BasicPhysicsEngine.convertWorldXtoScreenX(pos.x);
+			int y = BasicPhysicsEngine.convertWorldYtoScreenY(pos.y);
+			// smaller than a pixel: a single pixel, as BasicView plots it
+			int r = BasicPhysicsEngine.convertWorldLengthToScreenLength(p.getRadius()) < 1 ? 0 : p.SCREEN_RADIUS;
+			if (r >= spanFrom.length || spanFrom[r] == null)
+				measureSpans(r);
+			if (x + r < 0 || x - r > width || y + r < 0 || y - r > height)
+				continue;
+			discX[numDiscs] = x;
+			discY[numDiscs] = y;
+			discRadius[numDiscs] = r;
+			discRgb[numDiscs] = p.col.getRGB();
+			numDiscs++;
+		}
+	}
+
+	// renders fillOval once at this radius and records which columns each row covers
+	private void measureSpans(int r) {
+		if (r >= spanFrom.length) {
+			spanFrom = Arrays.copyOf(spanFrom, Math.max(r + 1, spanFrom.length * 2));
+			spanTo = Arrays.copyOf(spanTo, spanFrom.length);
+		}
+		if (r == 0) {
+			// a single pixel
+			spanFrom[0] = new int[] {0};
+			spanTo[0] = new int[] {1};
+			return;
+		}
+		int size = 2 * r + 1;
+		BufferedImage mask = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = mask.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillOval(0, 0, 2 * r, 2 * r);
+		g.dispose();
+		int[] from = new int[size], to = new int[size];
+		for (int row = 0; row < size; row++) {
+			while (from[row] < size && mask.getRGB(from[row], row) != -1)
+				from[row]++;
+			to[row] = from[row];
+			while (to[row] < size && mask.getRGB(to[row], row) == -1)
+				to[row]++;
+		}
+		spanFrom[r] = from;
+		spanTo[r] = to;
+	}
+
+	// the pixels a disc may cover are [x - r, x + r] by [y - r, y + r]
+	private void bin() {
+		int numTiles = tilesX * tilesY;
+		Arrays.fill(tileStart, 0);
+		int total = 0;
+		for (int i = 0; i < numDiscs; i++) {
+			int r = discRadius[i];
+			int tx0 = tileOf(discX[i] - r, tilesX), tx1 = tileOf(discX[i] + r, tilesX);
+			int ty0 = tileOf(discY[i] - r, tilesY), ty1 = tileOf(discY[i] + r, tilesY);
+			for (int ty = ty0; ty <= ty1; ty++)
+				for (int tx = tx0; tx <= tx1; tx++)
+					tileStart[ty * tilesX + tx + 1]++;
+			total += (tx1 - tx0 + 1) * (ty1 - ty0 + 1);
+		}
+		for (int t = 0; t < numTiles; t++)
+			tileStart[t + 1] += tileStart[t];
+		if (tileItems.length < total)
+			tileItems = new int[Math.max(total, tileItems.length * 2)];
+		// discs are added in list order, so each tile draws them in that order
+		System.arraycopy(tileStart, 0, tileFill, 0, numTiles);
+		for (int i = 0; i < numDiscs; i++) {
+			int r = discRadius[i];
+			int tx0 = tileOf(discX[i] - r, tilesX), tx1 = tileOf(discX[i] + r, tilesX);
+			int ty0 = tileOf(discY[i] - r, tilesY), ty1 = tileOf(discY[i] + r, tilesY);
+			for (int ty = ty0; ty <= ty1; ty++)
+				for (int tx = tx0; tx <= tx1; tx++)
+					tileItems[tileFill[ty * tilesX + tx]++] = i;
+		}
+	}
+
+	private static int tileOf(int pixel, int numTiles) {
+		return Math.max(0, Math.min(numTiles - 1, pixel < 0 ? 0 : pixel / TILE_SIZE));
+	}
+
+	private void fillTile(int t) {
+		int x0 = (t % tilesX) * TILE_SIZE, y0 = (t / tilesX) * TILE_SIZE;
+		int x1 = Math.min(x0 + TILE_SIZE, width), y1 = Math.min(y0 + TILE_SIZE, height);
+		for (int y = y0; y < y1; y++)
+			Arrays.fill(pixels, y * width + x0, y * width + x1, background);
+		for (int k = tileStart[t], end = tileStart[t + 1]; k < end; k++) {
+			int i = tileItems[k];
+			int cx = discX[i], cy = discY[i], r = discRadius[i], rgb = discRgb[i];
+			int[] from = spanFrom[r], to = spanTo[r];
+			int rowFrom = Math.max(cy - r, y0), rowTo = Math.min(cy + r + 1, y1);
+			for (int y = rowFrom; y < rowTo; y++) {
+				int row = y - cy + r;
+				int left = Math.max(cx - r + from[row], x0), right = Math.min(cx - r + to[row], x1);
+				if (left < right)
+					Arrays.fill(pixels, y * width + left, y * width + right, rgb);
+			}
+		}
+	}
+
+	private class TileChunk implements Callable<Void> {
+		// tiles first, first + stride, ...; interleaved so dense regions are shared out
+		final int first, stride;
+
+		TileChunk(int first, int stride) {
+			this.first = first;
+			this.stride = stride;
+		}
+
+		@Override
+		public Void call() {
+			for (int t = first, n = tilesX * tilesY; t < n; t += stride)
+				fillTile(t);
+			return null;
+		}
+	}
+
+	public int getNumDiscs() {
+		return numDiscs;
+	}
+
+	public long getLastRenderNanos() {
+		return lastRenderNanos;
+	}
+
+	// frame time of a full BasicView paint, with the Graphics2D path and with this one, as the particle count grows
+	public static void main(String[] args) {
+		int[] counts = {1000, 10000, 100000, 200000};
+		int frames = 20;
+		Random random = new Random(1);
+		Color[] cols = {Color.RED, Color.ORANGE, Color.YELLOW, Color.WHITE};
+		BufferedImage screen = new BufferedImage(BasicPhysicsEngine.SCREEN_WIDTH, BasicPhysicsEngine.SCREEN_HEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+		for (int n : counts) {
+			BasicPhysicsEngine game = new BasicPhysicsEngine();
+			for (int i = game.particles.size(); i < n; i++)
+				game.particles.add(new BasicParticle(random.nextDouble() * BasicPhysicsEngine.WORLD_WIDTH, random.nextDouble()
+						* BasicPhysicsEngine.WORLD_HEIGHT, 0, 0, 0.02 + random.nextDouble() * 0.06, true, cols[random.nextInt(cols.length)],
+						1, 0));
+			BasicView view = new BasicView(game);
+			view.setSize(BasicPhysicsEngine.FRAME_SIZE);
+			view.setSprites(null);
+			double direct = medianFrameMillis(view, screen, frames);
+			view.setSprites(new SpriteAtlas(64));
+			double sprites = medianFrameMillis(view, screen, frames);
+			view.setRasterizer(new TileRasterizer());
+			double tiles = medianFrameMillis(view, screen, frames);
+			System.out.println(String.format("%7d particles: fillOval %8.2f ms  sprites %8.2f ms  tiles %8.2f ms", n, direct,
+					sprites, tiles));
+		}
+		POOL.shutdown();
+	}
+
+	private static double medianFrameMillis(BasicView view, BufferedImage screen, int frames) {
+		Graphics2D g = screen.createGraphics();
+		// the first frames warm up the JIT and fill the caches
+		for (int i = 0; i < 5; i++)
+			view.paintComponent(g);
+		long[] nanos = new long[frames];
+		for (int i = 0; i < frames; i++) {
+			long t0 = System.nanoTime();
+			view.paintComponent(g);
+			nanos[i] = System.nanoTime() - t0;
+		}
+		g.dispose();
+		Arrays.sort(nanos);
+		return nanos[frames / 2] / 1e6;
+	}
+}
@@ -0,0 +1,74 @@
+package pbgLecture4lab;
+
+import java.nio.ByteBuffer;
+
+public final class VarInt {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// LEB128-style variable length integers, 7 bits per byte.  Signed values are
+	// zigzag encoded first so that small negative deltas also fit in one byte.
+
+	// worst case encoded sizes
+	public static final int MAX_BYTES = 5;
+	public static final int MAX_BYTES_LONG = 10;
+
+	private VarInt() {
+	}
+
+	public static void writeUnsigned(ByteBuffer buf, int value) {
+		while ((value & ~0x7F) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	public static int readUnsigned(ByteBuffer buf) {
+		int result = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buf.get();
+			result |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return result;
+		}
+		throw new IllegalArgumentException("malformed varint");
+	}
+
+	public static void writeSigned(ByteBuffer buf, int value) {
+		writeUnsigned(buf, (value << 1) ^ (value >> 31));
+	}
+
+	public static int readSigned(ByteBuffer buf) {
+		int raw = readUnsigned(buf);
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+
+	public static void writeUnsignedLong(ByteBuffer buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	public static long readUnsignedLong(ByteBuffer buf) {
+		long result = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = buf.get();
+			result |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return result;
+		}
+		throw new IllegalArgumentException("malformed varint");
+	}
+
+	public static void writeSignedLong(ByteBuffer buf, long value) {
+		writeUnsignedLong(buf, (value << 1) ^ (value >> 63));
+	}
+
+	public static long readSignedLong(ByteBuffer buf) {
+		long raw = readUnsignedLong(buf);
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+}
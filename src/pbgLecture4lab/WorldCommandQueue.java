@@ -0,0 +1,513 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class WorldCommandQueue {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Spawn, despawn, attach and detach requests for a BasicPhysicsEngine, and requests to add
+	// and remove barriers.  Requests may be made from any thread (the GUI, event listeners, a
+	// network thread) and are applied all together by apply(), which the engine calls at the
+	// start of each update, so an update never sees its particle or connector lists change
+	// part way through.
+	//
+	// Particles and connectors are named by handles: a slot number in the low 32 bits and
+	// that slot's generation in the high 32.  Removing something moves its slot on to the
+	// next generation, so an old handle stops working instead of naming whatever reuses the
+	// slot.  Handles are given out when the request is made, before the thing exists.
+	//
+	// Within one apply, spawns happen first, then attaches, then detaches and despawns;
+	// despawning a particle also detaches every connector on it.  Removals are done in one
+	// pass over each list, sliding the survivors down in place, so the lists keep their order
+	// and their storage.  The old-to-new particle indices are then handed to the connector
+	// network and the contact solver, which refer to particles by index.  The engine's rules
+	// expect the ship and the ball at indices 0 and 1, so those should not be despawned.
+	//
+	// Barriers have no handles; they are named by the barrier objects themselves, and are
+	// added and removed before any particle requests, in the order the requests were made.
+	// The contact solver, which also keys barrier contacts by index, is told the new indices.
+	//
+	// apply() holds this queue's lock, and BasicView paints a frame holding it too, so a frame
+	// never sees the particle, connector or barrier lists change while it walks them.  Code that
+	// changes those lists directly on a world being painted should hold the lock as well.
+	public static final long NO_HANDLE = 0;
+
+	private static final int SPAWN = 0, DESPAWN = 1, ATTACH = 2, DETACH = 3, ADD_BARRIER = 4, REMOVE_BARRIER = 5;
+
+	private final BasicPhysicsEngine engine;
+	// requests made since the last apply, swapped with applying under this queue's lock
+	private List<Command> pending = new ArrayList<Command>(), applying = new ArrayList<Command>();
+	private final HandleTable particleHandles = new HandleTable(), connectorHandles = new HandleTable();
+
+	// working storage for apply
+	private int[] newIndexOf = new int[0];
+	private boolean[] connectorRemoved = new boolean[0];
+	private final Set<BasicParticle> despawned = Collections.newSetFromMap(new IdentityHashMap<BasicParticle, Boolean>());
+	private int[] barrierNewIndexOf = new int[0];
+	private final List<AnchoredBarrier> addedBarriers = new ArrayList<AnchoredBarrier>();
+	private final Set<AnchoredBarrier> removedBarriers = Collections.newSetFromMap(new IdentityHashMap<AnchoredBarrier, Boolean>());
+
+	private int lastSpawned, lastDespawned, lastAttached, lastDetached, lastRejected;
+	private int lastBarriersAdded, lastBarriersRemoved;
+
+	public WorldCommandQueue(BasicPhysicsEngine engine) {
+		this.engine = engine;
+	}
+
+	// adds p to the engine's particles at the next apply
+	public synchronized long spawn(BasicParticle p) {
+		if (p == null)
+			throw new IllegalArgumentException("no particle");
+		long handle = particleHandles.allocate(p);
+		pending.add(new Command(SPAWN, handle, NO_HANDLE, p));
+		return handle;
+	}
+
+	// removes the particle, and every connector on it, at the next apply
+	public synchronized void despawn(long particleHandle) {
+		pending.add(new Command(DESPAWN, particleHandle, NO_HANDLE, null));
+	}
+
+	// joins two particles with a new ElasticConnector at the next apply; the connector is
+	// not made if either particle is gone by then
+	public synchronized long attach(long particleHandle1, long particleHandle2, double naturalLength, double springConstant,
+			double motionDampingConstant, boolean canGoSlack, Color col, Double hookesLawTruncation) {
+		Command command = new Command(ATTACH, particleHandle1, particleHandle2, null);
+		command.naturalLength = naturalLength;
+		command.springConstant = springConstant;
+		command.motionDampingConstant = motionDampingConstant;
+		command.canGoSlack = canGoSlack;
+		command.col = col;
+		command.hookesLawTruncation = hookesLawTruncation;
+		command.connectorHandle = connectorHandles.allocate(command);
+		pending.add(command);
+		return command.connectorHandle;
+	}
+
+	// removes the connector from the engine's connectors at the next apply
+	public synchronized void detach(long connectorHandle) {
+		pending.add(new Command(DETACH, connectorHandle, NO_HANDLE, null));
+	}
+
+	// adds b to the engine's barriers at the next apply
+	public synchronized void addBarrier(AnchoredBarrier b) {
+		if (b == null)
+			throw new IllegalArgumentException("no barrier");
+		Command command = new Command(ADD_BARRIER, NO_HANDLE, NO_HANDLE, null);
+		command.barrier = b;
+		pending.add(command);
+	}
+
+	// removes b from the engine's barriers at the next apply
+	public synchronized void removeBarrier(AnchoredBarrier b) {
+		Command command = new Command(REMOVE_BARRIER, NO_HANDLE, NO_HANDLE, null);
+		command.barrier = b;
+		pending.add(command);
+	}
+
+	// handle for the particle at this index in the engine's particles, for particles added
+	// other than through spawn.  Only valid between updates, on the engine's thread.
+	public synchronized long handleOfParticle(int index) {
+		return handleAt(particleHandles, engine.particles, index);
+	}
+
+	// handle for the connector at this index in the engine's connectors, likewise
+	public synchronized long handleOfConnector(int index) {
+		return handleAt(connectorHandles, engine.connectors, index);
+	}
+
+	// the particle's index in the engine's particles, or -1 if it has not been spawned yet or
+	// has been despawned.  Only valid between updates, on the engine's thread.
+	public synchronized int indexOf(long particleHandle) {
+		int s = particleHandles.slot(particleHandle);
+		return s < 0 ? -1 : particleHandles.index[s];
+	}
+
+	// the particle, or null once it has been despawned
+	public synchronized BasicParticle getParticle(long particleHandle) {
+		int s = particleHandles.slot(particleHandle);
+		return s < 0 ? null : (BasicParticle) particleHandles.object[s];
+	}
+
+	// the connector, or null if it has not been attached yet or has since been detached
+	public synchronized ElasticConnector getConnector(long connectorHandle) {
+		int s = connectorHandles.slot(connectorHandle);
+		return s < 0 || !(connectorHandles.object[s] instanceof ElasticConnector) ? null
+				: (ElasticConnector) connectorHandles.object[s];
+	}
+
+	// true for particles spawned or waiting to spawn, false once despawned
+	public synchronized boolean isAlive(long particleHandle) {
+		return particleHandles.slot(particleHandle) >= 0;
+	}
+
+	public synchronized int getNumPending() {
+		return pending.size();
+	}
+
+	// applies every request made so far; called by the engine between updates
+	public synchronized void apply() {
+		List<Command> swap = applying;
+		applying = pending;
+		pending = swap;
+		lastSpawned = lastDespawned = lastAttached = lastDetached = lastRejected = 0;
+		lastBarriersAdded = lastBarriersRemoved = 0;
+		if (applying.isEmpty())
+			return;
+		List<BasicParticle> particles = engine.particles;
+		List<ElasticConnector> connectors = engine.connectors;
+		applyBarriers();
+		particleHandles.track(particles);
+		for (int k = 0; k < applying.size(); k++) {
+			Command command = applying.get(k);
+			if (command.type == SPAWN) {
+				int s = particleHandles.slot(command.handle);
+				if (s < 0) {
+					lastRejected++;
+					continue;
+				}
+				particles.add(command.particle);
+				particleHandles.append(s);
+				lastSpawned++;
+			}
+		}
+
+		connectorHandles.track(connectors);
+		for (int k = 0; k < applying.size(); k++) {
+			Command command = applying.get(k);
+			if (command.type != ATTACH)
+				continue;
+			int s = connectorHandles.slot(command.connectorHandle);
+			BasicParticle p1 = getParticle(command.handle), p2 = getParticle(command.handle2);
+			if (s < 0 || p1 == null || p2 == null || p1 == p2) {
+				if (s >= 0)
+					connectorHandles.release(s);
+				lastRejected++;
+				continue;
+			}
+			ElasticConnector ec = new ElasticConnector(p1, p2, command.naturalLength, command.springConstant,
+					command.motionDampingConstant, command.canGoSlack, command.col, command.hookesLawTruncation);
+			connectorHandles.object[s] = ec;
+			connectors.add(ec);
+			connectorHandles.append(s);
+			lastAttached++;
+		}
+
+		int numParticles = particles.size(), numConnectors = connectors.size();
+		if (newIndexOf.length < numParticles)
+			newIndexOf = new int[Math.max(numParticles, newIndexOf.length * 2)];
+		if (connectorRemoved.length < numConnectors)
+			connectorRemoved = new boolean[Math.max(numConnectors, connectorRemoved.length * 2)];
+		for (int i = 0; i < numParticles; i++)
+			newIndexOf[i] = i;
+		Arrays.fill(connectorRemoved, 0, numConnectors, false);
+		despawned.clear();
+		boolean removing = false;
+		for (int k = 0; k < applying.size(); k++) {
+			Command command = applying.get(k);
+			if (command.type == DESPAWN) {
+				int s = particleHandles.slot(command.handle);
+				if (s < 0 || particleHandles.index[s] < 0) {
+					lastRejected++;
+					continue;
+				}
+				newIndexOf[particleHandles.index[s]] = -1;
+				despawned.add((BasicParticle) particleHandles.object[s]);
+				particleHandles.release(s);
+				removing = true;
+			} else if (command.type == DETACH) {
+				int s = connectorHandles.slot(command.handle);
+				if (s < 0 || connectorHandles.index[s] < 0) {
+					lastRejected++;
+					continue;
+				}
+				connectorRemoved[connectorHandles.index[s]] = true;
+				connectorHandles.release(s);
+				removing = true;
+			}
+		}
+		applying.clear();
+		if (!removing)
+			return;
+
+		if (!despawned.isEmpty())
+			for (int c = 0; c < numConnectors; c++) {
+				ElasticConnector ec = connectors.get(c);
+				if (despawned.contains(ec.getParticle1()) || despawned.contains(ec.getParticle2()))
+					connectorRemoved[c] = true;
+			}
+		lastDetached = compactConnectors(connectors, numConnectors);
+		if (despawned.isEmpty())
+			return;
+		lastDespawned = compactParticles(particles, numParticles);
+		despawned.clear();
+		engine.connectorNetwork.remapParticles(newIndexOf, numParticles);
+		engine.contactSolver.remapParticles(newIndexOf, numParticles);
+	}
+
+	// a removal cancels an addition of the same barrier made earlier, and the other way round
+	private void applyBarriers() {
+		addedBarriers.clear();
+		removedBarriers.clear();
+		for (int k = 0; k < applying.size(); k++) {
+			Command command = applying.get(k);
+			if (command.type == ADD_BARRIER) {
+				if (!removedBarriers.remove(command.barrier))
+					addedBarriers.add(command.barrier);
+			} else if (command.type == REMOVE_BARRIER) {
+				if (!removeIdentical(addedBarriers, command.barrier))
+					removedBarriers.add(command.barrier);
+			}
+		}
+		List<AnchoredBarrier> barriers = engine.barriers;
+		if (!removedBarriers.isEmpty()) {
+			int n = barriers.size(), kept = 0;
+			if (barrierNewIndexOf.length < n)
+				barrierNewIndexOf = new int[Math.max(n, barrierNewIndexOf.length * 2)];
+			for (int i = 0; i < n; i++) {
+				AnchoredBarrier b = barriers.get(i);
+				if (removedBarriers.contains(b)) {
+					barrierNewIndexOf[i] = -1;
+					continue;
+				}
+				barrierNewIndexOf[i] = kept;
+				barriers.set(kept++, b);
+			}
+			barriers.subList(kept, n).clear();
+			lastBarriersRemoved = n - kept;
+			lastRejected += removedBarriers.size() - lastBarriersRemoved;
+			removedBarriers.clear();
+			engine.contactSolver.remapBarriers(barrierNewIndexOf, n);
+		}
+		barriers.addAll(addedBarriers);
+		lastBarriersAdded = addedBarriers.size();
+		addedBarriers.clear();
+	}
+
+	private static boolean removeIdentical(List<AnchoredBarrier> list, AnchoredBarrier b) {
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (list.get(i) == b) {
+				list.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// slides the surviving particles down over the removed ones, keeping their order;
+	// afterwards newIndexOf holds each old index's new index, or -1
+	private int compactParticles(List<BasicParticle> particles, int n) {
+		int kept = 0;
+		for (int i = 0; i < n; i++) {
+			if (newIndexOf[i] < 0)
+				continue;
+			newIndexOf[i] = kept;
+			if (kept != i) {
+				particles.set(kept, particles.get(i));
+				particleHandles.move(i, kept);
+			}
+			kept++;
+		}
+		particles.subList(kept, n).clear();
+		particleHandles.tracked = kept;
+		return n - kept;
+	}
+
+	private int compactConnectors(List<ElasticConnector> connectors, int n) {
+		int kept = 0;
+		for (int c = 0; c < n; c++) {
+			if (connectorRemoved[c]) {
+				int s = connectorHandles.slotAt[c];
+				if (s >= 0 && connectorHandles.object[s] == connectors.get(c))
+					connectorHandles.release(s);
+				continue;
+			}
+			if (kept != c) {
+				connectors.set(kept, connectors.get(c));
+				connectorHandles.move(c, kept);
+			}
+			kept++;
+		}
+		connectors.subList(kept, n).clear();
+		connectorHandles.tracked = kept;
+		return n - kept;
+	}
+
+	private static long handleAt(HandleTable handles, List<?> list, int index) {
+		if (index < 0 || index >= list.size())
+			throw new IndexOutOfBoundsException("no entry " + index + " in a list of " + list.size());
+		handles.track(list);
+		int s = handles.slotAt[index];
+		if (s < 0) {
+			long handle = handles.allocate(list.get(index));
+			s = (int) handle;
+			handles.index[s] = index;
+			handles.slotAt[index] = s;
+			return handle;
+		}
+		return ((long) handles.generation[s] << 32) | s;
+	}
+
+	// requests applied in the last apply, and those refused because their handles had gone
+	// stale or their barriers were not in the list
+	public int getLastSpawned() {
+		return lastSpawned;
+	}
+
+	public int getLastDespawned() {
+		return lastDespawned;
+	}
+
+	public int getLastAttached() {
+		return lastAttached;
+	}
+
+	public int getLastDetached() {
+		return lastDetached;
+	}
+
+	public int getLastRejected() {
+		return lastRejected;
+	}
+
+	public int getLastBarriersAdded() {
+		return lastBarriersAdded;
+	}
+
+	public int getLastBarriersRemoved() {
+		return lastBarriersRemoved;
+	}
+
+	private static class Command {
+		final int type;
+		final long handle, handle2;
+		final BasicParticle particle;
+		AnchoredBarrier barrier;
+		long connectorHandle;
+		double naturalLength, springConstant, motionDampingConstant;
+		boolean canGoSlack;
+		Color col;
+		Double hookesLawTruncation;
+
+		Command(int type, long handle, long handle2, BasicParticle particle) {
+			this.type = type;
+			this.handle = handle;
+			this.handle2 = handle2;
+			this.particle = particle;
+		}
+	}
+
+	// slots for one list (particles or connectors): what each slot holds, where that is in the
+	// list, and the other way round, which slot each list position belongs to
+	private static class HandleTable {
+		Object[] object = new Object[16];
+		int[] index = new int[16]; // -1 while not in the list
+		int[] generation = new int[16];
+		int numSlots;
+		int[] free = new int[16];
+		int numFree;
+		// slot of each list position, -1 for things added to the list directly
+		int[] slotAt = new int[16];
+		// list positions covered by slotAt
+		int tracked;
+
+		long allocate(Object o) {
+			int s;
+			if (numFree > 0) {
+				s = free[--numFree];
+			} else {
+				if (numSlots == object.length) {
+					int capacity = numSlots * 2;
+					object = Arrays.copyOf(object, capacity);
+					index = Arrays.copyOf(index, capacity);
+					generation = Arrays.copyOf(generation, capacity);
+					free = Arrays.copyOf(free, capacity);
+				}
+				s = numSlots++;
+				generation[s] = 1; // so that NO_HANDLE is never valid
+			}
+			object[s] = o;
+			index[s] = -1;
+			return ((long) generation[s] << 32) | s;
+		}
+
+		// the slot named by a handle, or -1 if the handle is stale or was never given out
+		int slot(long handle) {
+			int s = (int) handle, g = (int) (handle >>> 32);
+			if (s < 0 || s >= numSlots || generation[s] != g || object[s] == null)
+				return -1;
+			return s;
+		}
+
+		void release(int s) {
+			if (index[s] >= 0 && index[s] < tracked && slotAt[index[s]] == s)
+				slotAt[index[s]] = -1;
+			object[s] = null;
+			index[s] = -1;
+			if (++generation[s] == 0)
+				generation[s] = 1;
+			free[numFree++] = s;
+		}
+
+		void move(int from, int to) {
+			int s = slotAt[from];
+			slotAt[to] = s;
+			slotAt[from] = -1;
+			if (s >= 0)
+				index[s] = to;
+		}
+
+		// brings slotAt and index up to date with the list, which other code may have
+		// added to or removed from directly since the last call
+		void track(List<?> list) {
+			int n = list.size();
+			if (slotAt.length < n)
+				slotAt = Arrays.copyOf(slotAt, Math.max(n, slotAt.length * 2));
+			boolean intact = n >= tracked;
+			for (int i = 0; i < tracked && intact; i++) {
+				int s = slotAt[i];
+				intact = s < 0 || object[s] == list.get(i);
+			}
+			if (!intact) {
+				// something was removed directly; find every slot's object again
+				Map<Object, Integer> slots = new IdentityHashMap<Object, Integer>();
+				for (int s = 0; s < numSlots; s++)
+					if (object[s] != null && index[s] >= 0)
+						slots.put(object[s], s);
+				for (int s = 0; s < numSlots; s++)
+					index[s] = -1;
+				for (int i = 0; i < n; i++) {
+					Integer s = slots.get(list.get(i));
+					slotAt[i] = s == null ? -1 : s;
+					if (s != null)
+						index[s] = i;
+				}
+				// things removed behind the queue's back are gone for good
+				for (Map.Entry<Object, Integer> e : slots.entrySet())
+					if (index[e.getValue()] < 0)
+						release(e.getValue());
+				tracked = n;
+				return;
+			}
+			for (int i = tracked; i < n; i++)
+				slotAt[i] = -1;
+			tracked = n;
+		}
+
+		// slot s has just been added to the end of the list, which was tracked up to then
+		void append(int s) {
+			if (tracked == slotAt.length)
+				slotAt = Arrays.copyOf(slotAt, tracked * 2);
+			slotAt[tracked] = s;
+			index[s] = tracked++;
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class WorldStateCodec {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Compact binary format for the whole world: particles, ships, connectors and
+	// barriers, written straight into a ByteBuffer.
+	//
+	// Layout: MAGIC, VERSION, precision byte, [quantum if QUANTIZED], then
+	// particles, barriers, connectors, network connectors (each a varint count followed
+	// by the records) and finally the indices of the start and winning barriers.
+	// Counts, indices and colours are varints.  Real numbers are written according to the
+	// precision: raw doubles, raw floats, or fixed-point multiples of the quantum sent as a
+	// zigzag varint delta from the same field of the previous record, which makes
+	// neighbouring particles in ropes and piles cost a byte or two per field.
+	public static final int MAGIC = 0x54485253; // "THRS"
+	public static final byte VERSION = 1;
+	public static final byte DOUBLE = 0, FLOAT = 1, QUANTIZED = 2;
+
+	private static final byte PARTICLE = 0, SPACE_SHIP = 1, MOUSE_PARTICLE = 2;
+	private static final byte STRAIGHT_LINE = 0, CURVE = 1, POINT = 2, POLYLINE = 3;
+	private static final int FLAG_IMPROVED_EULER = 1, FLAG_CAN_GO_SLACK = 2, FLAG_HAS_DEPTH = 4, FLAG_NORMAL_INWARDS = 8,
+			FLAG_HAS_TRUNCATION = 16, FLAG_CLOSED = 32;
+
+	// delta channels, one per kind of field, so each field is predicted from its own previous value
+	private static final int X = 0, Y = 1, VX = 2, VY = 3, RADIUS = 4, MASS = 5, FRICTION = 6, ANGLE = 7, LENGTH = 8,
+			STIFFNESS = 9, DAMPING = 10, DEPTH = 11, TRUNCATION = 12, NUM_CHANNELS = 13;
+
+	private final byte precision;
+	private final double quantum;
+	private final long[] previous = new long[NUM_CHANNELS];
+
+	public WorldStateCodec(byte precision, double quantum) {
+		if (precision < DOUBLE || precision > QUANTIZED)
+			throw new IllegalArgumentException("unknown precision " + precision);
+		this.precision = precision;
+		this.quantum = quantum;
+	}
+
+	public static WorldStateCodec lossless() {
+		return new WorldStateCodec(DOUBLE, 0);
+	}
+
+	// positions to the nearest 1/10 mm
+	public static WorldStateCodec quantized() {
+		return new WorldStateCodec(QUANTIZED, 1e-4);
+	}
+
+	public void encode(BasicPhysicsEngine game, ByteBuffer buf) {
+		writeHeader(buf);
+
+		List<BasicParticle> particles = game.particles;
+		writeParticles(buf, particles);
+
+		List<AnchoredBarrier> barriers = game.barriers;
+		VarInt.writeUnsigned(buf, barriers.size());
+		for (AnchoredBarrier b : barriers) {
+			if (b instanceof AnchoredBarrier_StraightLine) {
+				AnchoredBarrier_StraightLine line = (AnchoredBarrier_StraightLine) b;
+				Double depth = line.getBarrierDepth();
+				buf.put(STRAIGHT_LINE);
+				buf.put((byte) (depth != null ? FLAG_HAS_DEPTH : 0));
+				writeReal(buf, X, line.getStartPos().x);
+				writeReal(buf, Y, line.getStartPos().y);
+				writeReal(buf, X, line.getEndPos().x);
+				writeReal(buf, Y, line.getEndPos().y);
+				if (depth != null)
+					writeReal(buf, DEPTH, depth);
+				VarInt.writeUnsigned(buf, line.getColor().getRGB());
+			} else if (b instanceof AnchoredBarrier_Point) {
+				AnchoredBarrier_Point point = (AnchoredBarrier_Point) b;
+				Double depth = point.getBarrierDepth();
+				buf.put(POINT);
+				buf.put((byte) (depth != null ? FLAG_HAS_DEPTH : 0));
+				writeReal(buf, X, point.barrierPointPosition.x);
+				writeReal(buf, Y, point.barrierPointPosition.y);
+				if (depth != null)
+					writeReal(buf, DEPTH, depth);
+			} else if (b instanceof AnchoredBarrier_Curve) {
+				AnchoredBarrier_Curve curve = (AnchoredBarrier_Curve) b;
+				Double depth = curve.getBarrierDepth();
+				buf.put(CURVE);
+				buf.put((byte) ((depth != null ? FLAG_HAS_DEPTH : 0) | (curve.isNormalPointingInwards() ? FLAG_NORMAL_INWARDS : 0)));
+				writeReal(buf, X, curve.getCentre().x);
+				writeReal(buf, Y, curve.getCentre().y);
+				writeReal(buf, RADIUS, curve.getRadiusOfBarrier());
+				// angles are in degrees and always stored exactly
+				buf.putDouble(curve.getStartAngle());
+				buf.putDouble(curve.getDeltaAngle());
+				if (depth != null)
+					writeReal(buf, DEPTH, depth);
+				VarInt.writeUnsigned(buf, curve.getColor().getRGB());
+			} else if (b instanceof AnchoredBarrier_Polyline) {
+				AnchoredBarrier_Polyline polyline = (AnchoredBarrier_Polyline) b;
+				buf.put(POLYLINE);
+				buf.put((byte) (FLAG_HAS_DEPTH | (polyline.isClosed() ? FLAG_CLOSED : 0)));
+				VarInt.writeUnsigned(buf, polyline.getNumVertices());
+				for (int v = 0; v < polyline.getNumVertices(); v++) {
+					writeReal(buf, X, polyline.getVertexX(v));
+					writeReal(buf, Y, polyline.getVertexY(v));
+				}
+				writeReal(buf, DEPTH, polyline.getBarrierDepth());
+				VarInt.writeUnsigned(buf, polyline.getColor().getRGB());
+			} else {
+				throw new IllegalArgumentException("no encoding for barrier type " + b.getClass().getName());
+			}
+		}
+
+		List<ElasticConnector> connectors = game.connectors;
+		VarInt.writeUnsigned(buf, connectors.size());
+		for (ElasticConnector ec : connectors) {
+			writeConnector(buf, particles.indexOf(ec.getParticle1()), particles.indexOf(ec.getParticle2()), ec.getNaturalLength(),
+					ec.getSpringConstant(), ec.getMotionDampingConstant(), ec.canGoSlack(), ec.getHookesLawTruncation());
+			VarInt.writeUnsigned(buf, ec.getColor().getRGB());
+		}
+		ElasticConnectorNetwork network = game.connectorNetwork;
+		VarInt.writeUnsigned(buf, network.getNumConnectors());
+		for (int c = 0; c < network.getNumConnectors(); c++) {
+			writeConnector(buf, network.getParticleIndex1(c), network.getParticleIndex2(c), network.getNaturalLength(c),
+					network.getSpringConstant(c), network.getMotionDampingConstant(c), network.canGoSlack(c),
+					network.getHookesLawTruncation(c));
+		}
+		VarInt.writeSigned(buf, barriers.indexOf(game.startBarrierBall));
+		VarInt.writeSigned(buf, barriers.indexOf(game.winningBarrier));
+	}
+
+	// just a list of particles, with the same header, for storing parts of a world
+	public void encodeParticles(List<BasicParticle> particles, ByteBuffer buf) {
+		writeHeader(buf);
+		writeParticles(buf, particles);
+	}
+
+	private void writeHeader(ByteBuffer buf) {
+		buf.putInt(MAGIC);
+		buf.put(VERSION);
+		buf.put(precision);
+		if (precision == QUANTIZED)
+			buf.putDouble(quantum);
+		Arrays.fill(previous, 0);
+	}
+
+	private void writeParticles(ByteBuffer buf, List<BasicParticle> particles) {
+		VarInt.writeUnsigned(buf, particles.size());
+		for (BasicParticle p : particles) {
+			byte type = p instanceof ControllableSpaceShip ? SPACE_SHIP
+					: p instanceof ParticleAttachedToMousePointer ? MOUSE_PARTICLE : PARTICLE;
+			buf.put(type);
+			buf.put((byte) (p.isImprovedEuler() ? FLAG_IMPROVED_EULER : 0));
+			writeReal(buf, X, p.getPos().x);
+			writeReal(buf, Y, p.getPos().y);
+			writeReal(buf, VX, p.getVel().x);
+			writeReal(buf, VY, p.getVel().y);
+			writeReal(buf, RADIUS, p.getRadius());
+			writeReal(buf, MASS, p.getMass());
+			if (type == PARTICLE) {
+				writeReal(buf, FRICTION, p.getRollingFriction());
+				VarInt.writeUnsigned(buf, p.col.getRGB());
+			} else if (type == SPACE_SHIP) {
+				writeReal(buf, ANGLE, ((ControllableSpaceShip) p).getAngle());
+			}
+		}
+	}
+
+	private void writeConnector(ByteBuffer buf, int index1, int index2, double naturalLength, double springConstant,
+			double damping, boolean canGoSlack, Double truncation) {
+		VarInt.writeUnsigned(buf, index1);
+		// connectors mostly join neighbouring particles, so store the second index relative to the first
+		VarInt.writeSigned(buf, index2 - index1);
+		buf.put((byte) ((canGoSlack ? FLAG_CAN_GO_SLACK : 0) | (truncation != null ? FLAG_HAS_TRUNCATION : 0)));
+		writeReal(buf, LENGTH, naturalLength);
+		writeReal(buf, STIFFNESS, springConstant);
+		writeReal(buf, DAMPING, damping);
+		if (truncation != null)
+			writeReal(buf, TRUNCATION, truncation);
+	}
+
+	// replaces the contents of game with the decoded world
+	public static void decode(ByteBuffer buf, BasicPhysicsEngine game) {
+		readHeader(buf).decodeBody(buf, game);
+	}
+
+	// appends the particles written by encodeParticles to particles
+	public static void decodeParticles(ByteBuffer buf, List<BasicParticle> particles, ParticleEmitter exhaust) {
+		readHeader(buf).readParticles(buf, particles, exhaust);
+	}
+
+	private static WorldStateCodec readHeader(ByteBuffer buf) {
+		if (buf.getInt() != MAGIC)
+			throw new IllegalArgumentException("not an encoded world state");
+		byte version = buf.get();
+		if (version != VERSION)
+			throw new IllegalArgumentException("unsupported world state version " + version);
+		byte precision = buf.get();
+		double quantum = precision == QUANTIZED ? buf.getDouble() : 0;
+		return new WorldStateCodec(precision, quantum);
+	}
+
+	private void decodeBody(ByteBuffer buf, BasicPhysicsEngine game) {
+		List<BasicParticle> particles = game.particles;
+		particles.clear();
+		readParticles(buf, particles, game.exhaust);
+
+		List<AnchoredBarrier> barriers = game.barriers;
+		barriers.clear();
+		int numBarriers = VarInt.readUnsigned(buf);
+		for (int i = 0; i < numBarriers; i++) {
+			byte type = buf.get();
+			int flags = buf.get();
+			if (type == STRAIGHT_LINE) {
+				double x1 = readReal(buf, X), y1 = readReal(buf, Y), x2 = readReal(buf, X), y2 = readReal(buf, Y);
+				Double depth = (flags & FLAG_HAS_DEPTH) != 0 ? Double.valueOf(readReal(buf, DEPTH)) : null;
+				barriers.add(new AnchoredBarrier_StraightLine(x1, y1, x2, y2, new Color(VarInt.readUnsigned(buf), true), depth));
+			} else if (type == POINT) {
+				double x = readReal(buf, X), y = readReal(buf, Y);
+				Double depth = (flags & FLAG_HAS_DEPTH) != 0 ? Double.valueOf(readReal(buf, DEPTH)) : null;
+				barriers.add(new AnchoredBarrier_Point(x, y, depth));
+			} else if (type == CURVE) {
+				double x = readReal(buf, X), y = readReal(buf, Y), radius = readReal(buf, RADIUS);
+				double startAngle = buf.getDouble(), deltaAngle = buf.getDouble();
+				Double depth = (flags & FLAG_HAS_DEPTH) != 0 ? Double.valueOf(readReal(buf, DEPTH)) : null;
+				barriers.add(new AnchoredBarrier_Curve(x, y, radius, startAngle, deltaAngle, (flags & FLAG_NORMAL_INWARDS) != 0,
+						depth, new Color(VarInt.readUnsigned(buf), true)));
+			} else if (type == POLYLINE) {
+				int n = VarInt.readUnsigned(buf);
+				double[] xs = new double[n], ys = new double[n];
+				for (int v = 0; v < n; v++) {
+					xs[v] = readReal(buf, X);
+					ys[v] = readReal(buf, Y);
+				}
+				double depth = readReal(buf, DEPTH);
+				barriers.add(new AnchoredBarrier_Polyline(xs, ys, (flags & FLAG_CLOSED) != 0, new Color(VarInt.readUnsigned(buf), true),
+						depth));
+			} else {
+				throw new IllegalArgumentException("unknown barrier type " + type);
+			}
+		}
+
+		game.connectors.clear();
+		int numConnectors = VarInt.readUnsigned(buf);
+		for (int i = 0; i < numConnectors; i++) {
+			int index1 = VarInt.readUnsigned(buf);
+			int index2 = index1 + VarInt.readSigned(buf);
+			int flags = buf.get();
+			double naturalLength = readReal(buf, LENGTH), springConstant = readReal(buf, STIFFNESS), damping = readReal(buf, DAMPING);
+			Double truncation = (flags & FLAG_HAS_TRUNCATION) != 0 ? Double.valueOf(readReal(buf, TRUNCATION)) : null;
+			Color col = new Color(VarInt.readUnsigned(buf), true);
+			game.connectors.add(new ElasticConnector(particles.get(index1), particles.get(index2), naturalLength, springConstant,
+					damping, (flags & FLAG_CAN_GO_SLACK) != 0, col, truncation));
+		}
+		ElasticConnectorNetwork network = game.connectorNetwork;
+		network.clear();
+		int numNetworkConnectors = VarInt.readUnsigned(buf);
+		for (int i = 0; i < numNetworkConnectors; i++) {
+			int index1 = VarInt.readUnsigned(buf);
+			int index2 = index1 + VarInt.readSigned(buf);
+			int flags = buf.get();
+			double naturalLength = readReal(buf, LENGTH), springConstant = readReal(buf, STIFFNESS), damping = readReal(buf, DAMPING);
+			Double truncation = (flags & FLAG_HAS_TRUNCATION) != 0 ? Double.valueOf(readReal(buf, TRUNCATION)) : null;
+			network.addConnector(index1, index2, naturalLength, springConstant, damping, (flags & FLAG_CAN_GO_SLACK) != 0, truncation);
+		}
+		int start = VarInt.readSigned(buf), winning = VarInt.readSigned(buf);
+		game.startBarrierBall = start >= 0 ? (AnchoredBarrier_StraightLine) barriers.get(start) : null;
+		game.winningBarrier = winning >= 0 ? (AnchoredBarrier_StraightLine) barriers.get(winning) : null;
+	}
+
+	private void readParticles(ByteBuffer buf, List<BasicParticle> particles, ParticleEmitter exhaust) {
+		int numParticles = VarInt.readUnsigned(buf);
+		for (int i = 0; i < numParticles; i++) {
+			byte type = buf.get();
+			boolean improvedEuler = (buf.get() & FLAG_IMPROVED_EULER) != 0;
+			double x = readReal(buf, X), y = readReal(buf, Y);
+			double vx = readReal(buf, VX), vy = readReal(buf, VY);
+			double radius = readReal(buf, RADIUS), mass = readReal(buf, MASS);
+			BasicParticle p;
+			if (type == PARTICLE) {
+				double friction = readReal(buf, FRICTION);
+				Color col = new Color(VarInt.readUnsigned(buf), true);
+				p = new BasicParticle(x, y, vx, vy, radius, improvedEuler, col, mass, friction);
+			} else if (type == SPACE_SHIP) {
+				ControllableSpaceShip ship = new ControllableSpaceShip(x, y, vx, vy, radius, improvedEuler, mass);
+				ship.setAngle(readReal(buf, ANGLE));
+				ship.setExhaustEmitter(exhaust);
+				p = ship;
+			} else if (type == MOUSE_PARTICLE) {
+				p = new ParticleAttachedToMousePointer(x, y, vx, vy, radius, improvedEuler, mass);
+			} else {
+				throw new IllegalArgumentException("unknown particle type " + type);
+			}
+			particles.add(p);
+		}
+	}
+
+	private void writeReal(ByteBuffer buf, int channel, double value) {
+		if (precision == DOUBLE) {
+			buf.putDouble(value);
+		} else if (precision == FLOAT) {
+			buf.putFloat((float) value);
+		} else {
+			long q = Math.round(value / quantum);
+			VarInt.writeSignedLong(buf, q - previous[channel]);
+			previous[channel] = q;
+		}
+	}
+
+	private double readReal(ByteBuffer buf, int channel) {
+		if (precision == DOUBLE)
+			return buf.getDouble();
+		if (precision == FLOAT)
+			return buf.getFloat();
+		long q = previous[channel] + VarInt.readSignedLong(buf);
+		previous[channel] = q;
+		return q * quantum;
+	}
+
+	// upper bound on the encoded size of game, for sizing buffers
+	public static int maxEncodedSize(BasicPhysicsEngine game) {
+		int perReal = 10;
+		int particles = maxEncodedParticlesSize(game.particles.size());
+		int barriers = game.barriers.size() * (2 + 5 * perReal + 16 + VarInt.MAX_BYTES);
+		for (AnchoredBarrier b : game.barriers)
+			if (b instanceof AnchoredBarrier_Polyline)
+				barriers += ((AnchoredBarrier_Polyline) b).getNumVertices() * 2 * perReal;
+		int connectors = (game.connectors.size() + game.connectorNetwork.getNumConnectors()) * (1 + 4 * perReal + 3 * VarInt.MAX_BYTES);
+		return 32 + 4 * VarInt.MAX_BYTES + particles + barriers + connectors;
+	}
+
+	public static int maxEncodedParticlesSize(int numParticles) {
+		return 32 + numParticles * (2 + 8 * 10 + VarInt.MAX_BYTES);
+	}
+}
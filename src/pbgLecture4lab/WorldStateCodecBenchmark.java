@@ -0,0 +1,164 @@
+package pbgLecture4lab;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class WorldStateCodecBenchmark {
+	/* Creation Date: 2026-10-19
+	 * Significant changes applied:
+	 */
+	// Compares WorldStateCodec against default Java serialization for size and speed.
+	// Only Vector2D is Serializable, so the serialization baseline writes the same
+	// state the codec does: each particle's position and velocity as Vector2D objects
+	// plus its scalar fields, and each network connector's indices and constants.
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		int numParticles = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		BasicPhysicsEngine game = createRope(numParticles);
+
+		System.out.println(numParticles + " particles, " + game.connectorNetwork.getNumConnectors() + " connectors, "
+				+ game.barriers.size() + " barriers");
+		report("ObjectOutputStream", repeats, new SerializationRun(game));
+		report("codec DOUBLE", repeats, new CodecRun(game, WorldStateCodec.lossless()));
+		report("codec FLOAT", repeats, new CodecRun(game, new WorldStateCodec(WorldStateCodec.FLOAT, 0)));
+		report("codec QUANTIZED 1e-4", repeats, new CodecRun(game, WorldStateCodec.quantized()));
+	}
+
+	private static BasicPhysicsEngine createRope(int numParticles) {
+		BasicPhysicsEngine game = new BasicPhysicsEngine();
+		Random random = new Random(1);
+		double spacing = BasicPhysicsEngine.WORLD_WIDTH / numParticles;
+		int first = game.particles.size();
+		for (int i = 0; i < numParticles; i++)
+			game.particles.add(new BasicParticle(i * spacing, BasicPhysicsEngine.WORLD_HEIGHT / 2 + random.nextGaussian() * 0.01,
+					random.nextGaussian(), random.nextGaussian(), 0.02, false, Color.YELLOW, 0.1, BasicPhysicsEngine.rollingFriction));
+		for (int i = 1; i < numParticles; i++)
+			game.connectorNetwork.addConnector(first + i - 1, first + i, spacing, BasicPhysicsEngine.springConstant,
+					BasicPhysicsEngine.springDampingConstant, false, BasicPhysicsEngine.hookesLawTruncation);
+		return game;
+	}
+
+	private static void report(String name, int repeats, Run run) throws IOException, ClassNotFoundException {
+		// warm up, then time
+		for (int i = 0; i < repeats; i++) {
+			run.encode();
+			run.decode();
+		}
+		long encodeNanos = 0, decodeNanos = 0;
+		for (int i = 0; i < repeats; i++) {
+			long t0 = System.nanoTime();
+			run.encode();
+			long t1 = System.nanoTime();
+			run.decode();
+			long t2 = System.nanoTime();
+			encodeNanos += t1 - t0;
+			decodeNanos += t2 - t1;
+		}
+		System.out.println(String.format("%-22s %9d bytes  encode %8.3f ms  decode %8.3f ms", name, run.size(),
+				encodeNanos / 1e6 / repeats, decodeNanos / 1e6 / repeats));
+	}
+
+	private interface Run {
+		void encode() throws IOException;
+
+		void decode() throws IOException, ClassNotFoundException;
+
+		int size();
+	}
+
+	private static class CodecRun implements Run {
+		private final BasicPhysicsEngine game, target = new BasicPhysicsEngine();
+		private final WorldStateCodec codec;
+		private final ByteBuffer buf;
+
+		CodecRun(BasicPhysicsEngine game, WorldStateCodec codec) {
+			this.game = game;
+			this.codec = codec;
+			this.buf = ByteBuffer.allocateDirect(WorldStateCodec.maxEncodedSize(game));
+		}
+
+		public void encode() {
+			buf.clear();
+			codec.encode(game, buf);
+			buf.flip();
+		}
+
+		public void decode() {
+			WorldStateCodec.decode(buf.duplicate(), target);
+		}
+
+		public int size() {
+			return buf.limit();
+		}
+	}
+
+	private static class SerializationRun implements Run {
+		private final BasicPhysicsEngine game;
+		private byte[] bytes;
+
+		SerializationRun(BasicPhysicsEngine game) {
+			this.game = game;
+		}
+
+		public void encode() throws IOException {
+			ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytesOut);
+			out.writeInt(game.particles.size());
+			for (BasicParticle p : game.particles) {
+				out.writeObject(new Vector2D(p.getPos()));
+				out.writeObject(new Vector2D(p.getVel()));
+				out.writeDouble(p.getRadius());
+				out.writeDouble(p.getMass());
+				out.writeDouble(p.getRollingFriction());
+				out.writeInt(p.col.getRGB());
+			}
+			ElasticConnectorNetwork network = game.connectorNetwork;
+			out.writeInt(network.getNumConnectors());
+			for (int c = 0; c < network.getNumConnectors(); c++) {
+				out.writeInt(network.getParticleIndex1(c));
+				out.writeInt(network.getParticleIndex2(c));
+				out.writeDouble(network.getNaturalLength(c));
+				out.writeDouble(network.getSpringConstant(c));
+				out.writeDouble(network.getMotionDampingConstant(c));
+				out.writeBoolean(network.canGoSlack(c));
+				out.writeObject(network.getHookesLawTruncation(c));
+			}
+			out.close();
+			bytes = bytesOut.toByteArray();
+		}
+
+		public void decode() throws IOException, ClassNotFoundException {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				in.readObject();
+				in.readObject();
+				in.readDouble();
+				in.readDouble();
+				in.readDouble();
+				in.readInt();
+			}
+			int c = in.readInt();
+			for (int i = 0; i < c; i++) {
+				in.readInt();
+				in.readInt();
+				in.readDouble();
+				in.readDouble();
+				in.readDouble();
+				in.readBoolean();
+				in.readObject();
+			}
+		}
+
+		public int size() {
+			return bytes.length;
+		}
+	}
+}